@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.client.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * emits the client stub source of the service interface annotated with {@code ServiceStub}. The stub is named as the
+ * StubProxyFactory expects, for example {@code Outer.Service} is stubbed by {@code Outer_ServiceFocusStub} in the same
+ * package. Add this module to the annotation processor path of the client build to enable it.
+ *
+ * @author dinstone
+ */
+@SupportedAnnotationTypes(StubProcessor.SERVICE_STUB)
+public class StubProcessor extends AbstractProcessor {
+
+    static final String SERVICE_STUB = "com.dinstone.focus.annotation.ServiceStub";
+
+    private static final String STUB_SUFFIX = "FocusStub";
+
+    private static final String ABSTRACT_STUB = "com.dinstone.focus.client.proxy.AbstractStub";
+
+    private static final String METHOD_CONFIG = "com.dinstone.focus.config.MethodConfig";
+
+    private static final String SERVICE_CONFIG = "com.dinstone.focus.config.ServiceConfig";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.INTERFACE) {
+                    error(element, "@ServiceStub is only for the service interface");
+                    continue;
+                }
+                generate((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement service) {
+        if (!service.getTypeParameters().isEmpty()) {
+            error(service, "generic service interface is unsupported");
+            return;
+        }
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(service);
+        for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+            if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE
+                    || method.getModifiers().contains(Modifier.STATIC) || isObjectMethod(method)) {
+                continue;
+            }
+            if (!names.add(method.getSimpleName().toString())) {
+                error(method, "method overload unsupported");
+                return;
+            }
+            if (method.getParameters().size() > 1 || !method.getTypeParameters().isEmpty()) {
+                error(method, "only support one parameter and no type parameter");
+                return;
+            }
+            methods.add(method);
+        }
+
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(service);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(service).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + STUB_SUFFIX;
+        String stubName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(stubName, service).openWriter()) {
+            writer.write(source(packageName, simpleName, service, methods));
+        } catch (IOException e) {
+            error(service, "can't write stub " + stubName + ": " + e.getMessage());
+        }
+    }
+
+    private String source(String packageName, String simpleName, TypeElement service,
+            List<ExecutableElement> methods) {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * generated by ").append(StubProcessor.class.getName()).append(", don't edit.\n */\n");
+        source.append("@SuppressWarnings(\"unchecked\")\n");
+        source.append("public final class ").append(simpleName).append(" extends ").append(ABSTRACT_STUB)
+                .append(" implements ").append(service.getQualifiedName()).append(" {\n");
+
+        for (ExecutableElement method : methods) {
+            source.append("\n    private final ").append(METHOD_CONFIG).append(' ').append(method.getSimpleName())
+                    .append(";\n");
+        }
+
+        source.append("\n    public ").append(simpleName).append('(').append(SERVICE_CONFIG)
+                .append(" serviceConfig) {\n");
+        source.append("        super(serviceConfig);\n");
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            source.append("        this.").append(name).append(" = methodConfig(\"").append(name).append("\");\n");
+        }
+        source.append("    }\n");
+
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            TypeMirror returnType = method.getReturnType();
+            String parameter = "null";
+
+            source.append("\n    @Override\n    public ").append(returnType).append(' ').append(name).append('(');
+            if (!method.getParameters().isEmpty()) {
+                VariableElement variable = method.getParameters().get(0);
+                parameter = variable.getSimpleName().toString();
+                source.append(variable.asType()).append(' ').append(parameter);
+            }
+            source.append(") {\n        ");
+
+            String call = "call(this." + name + ", " + parameter + ")";
+            if (returnType.getKind() == TypeKind.VOID) {
+                source.append(call).append(";\n");
+            } else if (returnType.getKind().isPrimitive()) {
+                TypeElement boxed = processingEnv.getTypeUtils().boxedClass((PrimitiveType) returnType);
+                source.append("return (").append(boxed.getQualifiedName()).append(") ").append(call).append(";\n");
+            } else {
+                source.append("return (").append(returnType).append(") ").append(call).append(";\n");
+            }
+            source.append("    }\n");
+        }
+
+        source.append("\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * the stub inherits the object methods, the same as the JDK proxy handles them locally
+     */
+    private boolean isObjectMethod(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        int count = method.getParameters().size();
+        return count == 0 && ("hashCode".equals(name) || "toString".equals(name))
+                || count == 1 && "equals".equals(name);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
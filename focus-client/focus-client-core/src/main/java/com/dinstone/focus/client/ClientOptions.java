@@ -61,6 +61,12 @@ public class ClientOptions extends FocusOptions<ClientOptions> {
 
     private int connectRetry = DEFAULT_CONNECT_RETRY;
 
+    private boolean domainSocket = true;
+
+    private boolean localInvoke;
+
+    private boolean localDeepCopy;
+
     public ClientOptions(String application) {
         super(application);
     }
@@ -163,4 +169,41 @@ public class ClientOptions extends FocusOptions<ClientOptions> {
         this.connectRetry = connectRetry;
         return this;
     }
+
+    /**
+     * connect the same host instances by the unix domain socket they advertise.
+     */
+    public boolean isDomainSocket() {
+        return domainSocket;
+    }
+
+    public ClientOptions setDomainSocket(boolean domainSocket) {
+        this.domainSocket = domainSocket;
+        return this;
+    }
+
+    /**
+     * invoke the services exported in this JVM in memory, without the network. It is disabled by default, the local
+     * call throws the provider's exception as is, not the invoke exception of the remote call.
+     */
+    public boolean isLocalInvoke() {
+        return localInvoke;
+    }
+
+    public ClientOptions setLocalInvoke(boolean localInvoke) {
+        this.localInvoke = localInvoke;
+        return this;
+    }
+
+    /**
+     * copy the parameter and the reply of the in-JVM invocation, the consumer and the provider don't share them.
+     */
+    public boolean isLocalDeepCopy() {
+        return localDeepCopy;
+    }
+
+    public ClientOptions setLocalDeepCopy(boolean localDeepCopy) {
+        this.localDeepCopy = localDeepCopy;
+        return this;
+    }
 }
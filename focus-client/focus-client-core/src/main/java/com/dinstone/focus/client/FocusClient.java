@@ -137,6 +137,9 @@ public class FocusClient implements ServiceImporter, AutoCloseable {
         } else {
             serviceConfig.setConnectRetry(clientOptions.getConnectRetry());
         }
+        serviceConfig.setDomainSocket(clientOptions.isDomainSocket());
+        serviceConfig.setLocalInvoke(clientOptions.isLocalInvoke());
+        serviceConfig.setLocalDeepCopy(clientOptions.isLocalDeepCopy());
         // timeout retry
         if (importOptions.getTimeoutRetry() > 0) {
             serviceConfig.setTimeoutRetry(importOptions.getTimeoutRetry());
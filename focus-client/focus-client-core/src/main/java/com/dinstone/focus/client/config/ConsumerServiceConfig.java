@@ -27,6 +27,12 @@ public class ConsumerServiceConfig extends AbstractServiceConfig {
 
     protected int connectRetry;
 
+    protected boolean domainSocket;
+
+    protected boolean localInvoke;
+
+    protected boolean localDeepCopy;
+
     public int getTimeoutMillis() {
         return timeoutMillis;
     }
@@ -51,6 +57,30 @@ public class ConsumerServiceConfig extends AbstractServiceConfig {
         this.connectRetry = connectRetry;
     }
 
+    public boolean isDomainSocket() {
+        return domainSocket;
+    }
+
+    public void setDomainSocket(boolean domainSocket) {
+        this.domainSocket = domainSocket;
+    }
+
+    public boolean isLocalInvoke() {
+        return localInvoke;
+    }
+
+    public void setLocalInvoke(boolean localInvoke) {
+        this.localInvoke = localInvoke;
+    }
+
+    public boolean isLocalDeepCopy() {
+        return localDeepCopy;
+    }
+
+    public void setLocalDeepCopy(boolean localDeepCopy) {
+        this.localDeepCopy = localDeepCopy;
+    }
+
     public void parseMethod(Method... methods) {
         for (Method method : methods) {
             ConsumerMethodConfig methodConfig = parse(method, ConsumerMethodConfig::new);
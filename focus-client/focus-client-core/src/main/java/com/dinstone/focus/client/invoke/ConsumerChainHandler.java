@@ -43,17 +43,16 @@ public class ConsumerChainHandler extends ChainHandler {
     }
 
     public CompletableFuture<Object> handle(Invocation invocation) {
-        try (Context context = Context.create()) {
-            ((DefaultInvocation) invocation).context(context);
+        Context context = Context.fork();
+        ((DefaultInvocation) invocation).context(context);
 
-            // inject propagate baggage to invocation
-            Baggage baggage = context.get(Baggage.CONTEXT_KEY);
-            if (baggage != null) {
-                propagator.inject(invocation, baggage);
-            }
-
-            return invokeHandler.handle(invocation);
+        // inject propagate baggage to invocation
+        Baggage baggage = context.get(Baggage.KEY);
+        if (baggage != null) {
+            propagator.inject(invocation, baggage);
         }
+
+        return context.call(() -> invokeHandler.handle(invocation));
     }
 
 }
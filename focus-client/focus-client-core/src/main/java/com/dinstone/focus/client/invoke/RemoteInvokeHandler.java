@@ -34,7 +34,9 @@ import com.dinstone.focus.invoke.Handler;
 import com.dinstone.focus.invoke.Invocation;
 import com.dinstone.focus.naming.ServiceInstance;
 import com.dinstone.focus.transport.Connector;
+import com.dinstone.focus.transport.local.LocalConnector;
 import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.focus.utils.NetworkUtil;
 import com.dinstone.loghub.Logger;
 import com.dinstone.loghub.LoggerFactory;
 
@@ -45,9 +47,18 @@ public class RemoteInvokeHandler implements Handler {
     private final ServiceLocator serviceLocator;
     private final Connector connector;
     private final int connectRetry;
+    private final boolean domainSocket;
+    private final LocalConnector localConnector;
 
     public RemoteInvokeHandler(ServiceConfig serviceConfig, ServiceLocator serviceLocator, Connector connector) {
-        this.connectRetry = ((ConsumerServiceConfig) serviceConfig).getConnectRetry();
+        ConsumerServiceConfig consumerConfig = (ConsumerServiceConfig) serviceConfig;
+        this.connectRetry = consumerConfig.getConnectRetry();
+        this.domainSocket = consumerConfig.isDomainSocket();
+        if (consumerConfig.isLocalInvoke()) {
+            this.localConnector = new LocalConnector(consumerConfig.isLocalDeepCopy());
+        } else {
+            this.localConnector = null;
+        }
         this.serviceLocator = serviceLocator;
         this.connector = connector;
     }
@@ -96,50 +107,88 @@ public class RemoteInvokeHandler implements Handler {
         Context context = invocation.context();
 
         List<ServiceInstance> exclusions = new LinkedList<>();
-        ServiceInstance exclusion = context.get(ConstantUtil.RPC_SERVER);
+        ServiceInstance exclusion = context.get(ConstantUtil.RPC_SERVER_KEY);
         if (exclusion != null) {
             exclusions.add(exclusion);
         }
 
-        int total = connectRetry + 1;
-        for (int i = 1; i <= total; i++) {
-            // find a service instance
-            ServiceInstance selected = serviceLocator.locate(invocation, exclusions);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        connectRetry(future, invocation, exclusions, 1, connectRetry + 1);
+        return future;
+    }
+
+    /**
+     * the connect error may be thrown by the connector or completed by the returned future, both retry the next
+     * instance, so the asynchronous connectors never block the caller.
+     */
+    private void connectRetry(CompletableFuture<Object> future, Invocation invocation,
+            List<ServiceInstance> exclusions, int count, int total) {
+        if (count > total) {
+            future.completeExceptionally(new ServiceException(ErrorCode.ACCESS_ERROR,
+                    total + " times connect error for " + invocation.getProvider() + "/" + invocation.getService()));
+            return;
+        }
+
+        // find a service instance
+        ServiceInstance selected = serviceLocator.locate(invocation, exclusions);
+
+        // check
+        if (selected == null) {
+            future.completeExceptionally(new ServiceException(ErrorCode.ACCESS_ERROR,
+                    "locate " + count + "times, can't find a live service instance for " + invocation.getProvider()
+                            + "/" + invocation.getService()));
+            return;
+        }
 
-            // check
-            if (selected == null) {
-                throw new ServiceException(ErrorCode.ACCESS_ERROR,
-                        "locate " + i + "times, can't find a live service instance for " + invocation.getProvider()
-                                + "/" + invocation.getService());
+        // invoke
+        Context context = invocation.context();
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<Object> reply;
+        try {
+            context.put(ConstantUtil.RPC_RETRY_KEY, exclusions);
+            context.put(ConstantUtil.RPC_SERVER_KEY, selected);
+            // route to the domain socket of the same host instance
+            String domainSocketPath = domainSocket ? NetworkUtil.domainSocketPath(selected.getMetadata()) : null;
+            if (domainSocketPath != null) {
+                context.put(ConstantUtil.RPC_DOMAIN_SOCKET_KEY, domainSocketPath);
+            } else {
+                context.remove(ConstantUtil.RPC_DOMAIN_SOCKET_KEY);
             }
 
-            // invoke
-            final ServiceInstance instance = selected;
-            long startTime = System.currentTimeMillis();
-            try {
-                context.put(ConstantUtil.RPC_RETRY, exclusions);
-                context.put(ConstantUtil.RPC_SERVER, selected);
-
-                return connector.send(invocation, instance).whenComplete((reply, error) -> {
-                    long finishTime = System.currentTimeMillis();
-                    serviceLocator.feedback(instance, invocation, reply, error, finishTime - startTime);
-                });
-            } catch (Exception e) {
-                long finishTime = System.currentTimeMillis();
-                serviceLocator.feedback(instance, invocation, null, e, finishTime - startTime);
-
-                if (e instanceof ConnectException) {
-                    exclusions.add(selected);
-                } else {
-                    throw new InvokeException(ErrorCode.INVOKE_ERROR,
-                            invocation.getService() + " connect to " + instance.getInstanceAddress(), e);
-                }
+            // short-circuit the provider of this JVM
+            if (localConnector != null && localConnector.applicable(invocation, selected)) {
+                reply = localConnector.send(invocation, selected);
+            } else {
+                reply = connector.send(invocation, selected);
             }
+        } catch (Exception e) {
+            long finishTime = System.currentTimeMillis();
+            serviceLocator.feedback(selected, invocation, null, e, finishTime - startTime);
 
+            if (e instanceof ConnectException) {
+                exclusions.add(selected);
+                connectRetry(future, invocation, exclusions, count + 1, total);
+            } else {
+                future.completeExceptionally(new InvokeException(ErrorCode.INVOKE_ERROR,
+                        invocation.getService() + " connect to " + selected.getInstanceAddress(), e));
+            }
+            return;
         }
 
-        throw new ServiceException(ErrorCode.ACCESS_ERROR,
-                total + " times connect error for " + invocation.getProvider() + "/" + invocation.getService());
+        reply.whenComplete((result, error) -> {
+            long finishTime = System.currentTimeMillis();
+            serviceLocator.feedback(selected, invocation, result, error, finishTime - startTime);
+
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof ConnectException) {
+                exclusions.add(selected);
+                connectRetry(future, invocation, exclusions, count + 1, total);
+            } else if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        });
     }
 
 }
@@ -23,6 +23,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import com.dinstone.focus.invoke.Invocation;
@@ -36,6 +37,9 @@ public abstract class DiscoveryServiceLocator extends AbstractServiceLocator {
 
     private final Map<String, ServiceCache> serviceCacheMap = new ConcurrentHashMap<>();
 
+    // not a monitor, the initial fresh may block on a virtual thread
+    private final ReentrantLock serviceCacheLock = new ReentrantLock();
+
     private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
         Thread t = new Thread(task, "Service-Locator-Fresh");
         t.setDaemon(true);
@@ -85,7 +89,7 @@ public abstract class DiscoveryServiceLocator extends AbstractServiceLocator {
         }
 
         String swimlaneValue = null;
-        Baggage baggage = invocation.context().get(Baggage.CONTEXT_KEY);
+        Baggage baggage = invocation.context().get(Baggage.KEY);
         if (baggage != null) {
             swimlaneValue = baggage.get(ConstantUtil.SWIMLANE_LABEL);
         }
@@ -110,7 +114,8 @@ public abstract class DiscoveryServiceLocator extends AbstractServiceLocator {
 
     @Override
     public void subscribe(String serviceName) {
-        synchronized (serviceCacheMap) {
+        serviceCacheLock.lock();
+        try {
             ServiceCache serviceCache = serviceCacheMap.get(serviceName);
             if (serviceCache == null) {
                 serviceCache = new ServiceCache(serviceName);
@@ -134,6 +139,8 @@ public abstract class DiscoveryServiceLocator extends AbstractServiceLocator {
                 // cache the service
                 serviceCacheMap.put(serviceName, serviceCache);
             }
+        } finally {
+            serviceCacheLock.unlock();
         }
     }
 
@@ -146,12 +153,15 @@ public abstract class DiscoveryServiceLocator extends AbstractServiceLocator {
 
     @Override
     public void destroy() {
-        synchronized (serviceCacheMap) {
+        serviceCacheLock.lock();
+        try {
             for (ServiceCache serviceCache : serviceCacheMap.values()) {
                 serviceCache.destroy();
             }
             serviceCacheMap.clear();
             executor.shutdownNow();
+        } finally {
+            serviceCacheLock.unlock();
         }
     }
 
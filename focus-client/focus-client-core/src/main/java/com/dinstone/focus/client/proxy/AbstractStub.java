@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.client.proxy;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.invoke.Handler;
+
+/**
+ * base class of the generated client stubs. A stub keeps the method config of each service method in a final field
+ * and calls the handler directly, without the proxy dispatch and the method config lookup.
+ *
+ * @author dinstone
+ */
+public abstract class AbstractStub {
+
+    private final ServiceConfig serviceConfig;
+
+    private final Handler invokeHandler;
+
+    protected AbstractStub(ServiceConfig serviceConfig) {
+        this.serviceConfig = serviceConfig;
+        this.invokeHandler = serviceConfig.getHandler();
+    }
+
+    /**
+     * lookup the method config when the stub is created.
+     *
+     * @throws IllegalStateException
+     *             if the method is not parsed by the service config
+     */
+    protected final MethodConfig methodConfig(String methodName) {
+        MethodConfig methodConfig = serviceConfig.lookup(methodName);
+        if (methodConfig == null) {
+            throw new IllegalStateException("can't find method config: " + methodName);
+        }
+        return methodConfig;
+    }
+
+    /**
+     * invoke the method, the checked exception is thrown as the undeclared throwable like the JDK proxy does.
+     */
+    protected final Object call(MethodConfig methodConfig, Object parameter) {
+        try {
+            return ProxyHandler.call(serviceConfig, invokeHandler, methodConfig, parameter);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+}
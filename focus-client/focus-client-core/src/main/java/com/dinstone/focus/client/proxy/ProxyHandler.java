@@ -61,7 +61,14 @@ class ProxyHandler implements InvocationHandler {
         }
 
         MethodConfig methodConfig = serviceConfig.lookup(methodName);
+        return call(serviceConfig, invokeHandler, methodConfig, parameter);
+    }
 
+    /**
+     * build the invocation of the method and handle it, shared by the proxy and the generated stubs.
+     */
+    static Object call(ServiceConfig serviceConfig, Handler invokeHandler, MethodConfig methodConfig,
+            Object parameter) throws Throwable {
         DefaultInvocation invocation = new DefaultInvocation(serviceConfig.getService(), methodConfig.getMethodName(),
                 parameter);
         invocation.setTimeout(methodConfig.getTimeoutMillis());
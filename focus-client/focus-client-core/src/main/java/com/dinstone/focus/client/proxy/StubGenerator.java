@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.client.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * writes the class file of the client stub, the JDK has no class writer and the stub is simple enough to emit it
+ * directly. The stub extends {@link AbstractStub}, keeps the method config of each method in a final field and every
+ * method is linear code without branches, so the class file needs no stack map frames:
+ *
+ * <pre>
+ * public final class Service$$FocusStub extends AbstractStub implements Service {
+ *     private final MethodConfig hi;
+ *
+ *     public Service$$FocusStub(ServiceConfig serviceConfig) {
+ *         super(serviceConfig);
+ *         this.hi = methodConfig("hi");
+ *     }
+ *
+ *     public String hi(String p) {
+ *         return (String) call(hi, p);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author dinstone
+ */
+final class StubGenerator {
+
+    private static final int JAVA_8 = 52;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final String STUB_TYPE = "com/dinstone/focus/client/proxy/AbstractStub";
+    private static final String CONFIG_DESC = "Lcom/dinstone/focus/config/MethodConfig;";
+    private static final String INIT_DESC = "(Lcom/dinstone/focus/config/ServiceConfig;)V";
+    private static final String LOOKUP_DESC = "(Ljava/lang/String;)" + CONFIG_DESC;
+    private static final String CALL_DESC = "(" + CONFIG_DESC + "Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolCount = 1;
+
+    private final String className;
+
+    private StubGenerator(String className) {
+        this.className = className;
+    }
+
+    /**
+     * generate the stub class file.
+     *
+     * @param stubName
+     *            the binary name of the stub
+     * @param serviceType
+     *            the service interface
+     * @param methods
+     *            the service methods, one parameter at most
+     */
+    static byte[] generate(String stubName, Class<?> serviceType, List<Method> methods) {
+        try {
+            return new StubGenerator(internalName(stubName)).write(serviceType, methods);
+        } catch (IOException e) {
+            throw new IllegalStateException("can't generate stub for " + serviceType.getName(), e);
+        }
+    }
+
+    private byte[] write(Class<?> serviceType, List<Method> methods) throws IOException {
+        int thisClass = classRef(className);
+        int superClass = classRef(STUB_TYPE);
+        int serviceClass = classRef(internalName(serviceType.getName()));
+        int codeName = utf8("Code");
+
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        body.writeShort(thisClass);
+        body.writeShort(superClass);
+        body.writeShort(1);
+        body.writeShort(serviceClass);
+
+        // fields
+        body.writeShort(methods.size());
+        for (Method method : methods) {
+            body.writeShort(ACC_PRIVATE | ACC_FINAL);
+            body.writeShort(utf8(method.getName()));
+            body.writeShort(utf8(CONFIG_DESC));
+            body.writeShort(0);
+        }
+
+        // methods
+        body.writeShort(methods.size() + 1);
+        writeMethod(body, codeName, "<init>", INIT_DESC, 3, 2, constructorCode(methods));
+        for (Method method : methods) {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            int locals = 1 + (parameterTypes.length == 0 ? 0 : slots(parameterTypes[0]));
+            writeMethod(body, codeName, method.getName(), descriptor(method), 4, locals, methodCode(method));
+        }
+
+        // attributes
+        body.writeShort(0);
+
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream(16 + poolBytes.size() + bodyBytes.size());
+        DataOutputStream out = new DataOutputStream(classBytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(JAVA_8);
+        out.writeShort(poolCount);
+        poolBytes.writeTo(out);
+        bodyBytes.writeTo(out);
+        out.flush();
+        return classBytes.toByteArray();
+    }
+
+    private void writeMethod(DataOutputStream out, int codeName, String name, String descriptor, int maxStack,
+            int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(utf8(name));
+        out.writeShort(utf8(descriptor));
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        // exception table and attributes
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private byte[] constructorCode(List<Method> methods) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream code = new DataOutputStream(bytes);
+        // super(serviceConfig)
+        code.writeByte(Opcodes.ALOAD_0);
+        code.writeByte(Opcodes.ALOAD_1);
+        code.writeByte(Opcodes.INVOKESPECIAL);
+        code.writeShort(methodRef(STUB_TYPE, "<init>", INIT_DESC));
+        // this.name = methodConfig("name")
+        for (Method method : methods) {
+            code.writeByte(Opcodes.ALOAD_0);
+            code.writeByte(Opcodes.ALOAD_0);
+            code.writeByte(Opcodes.LDC_W);
+            code.writeShort(string(method.getName()));
+            code.writeByte(Opcodes.INVOKEVIRTUAL);
+            code.writeShort(methodRef(STUB_TYPE, "methodConfig", LOOKUP_DESC));
+            code.writeByte(Opcodes.PUTFIELD);
+            code.writeShort(fieldRef(className, method.getName(), CONFIG_DESC));
+        }
+        code.writeByte(Opcodes.RETURN);
+        return bytes.toByteArray();
+    }
+
+    private byte[] methodCode(Method method) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream code = new DataOutputStream(bytes);
+        // call(this.name, parameter)
+        code.writeByte(Opcodes.ALOAD_0);
+        code.writeByte(Opcodes.ALOAD_0);
+        code.writeByte(Opcodes.GETFIELD);
+        code.writeShort(fieldRef(className, method.getName(), CONFIG_DESC));
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 0) {
+            code.writeByte(Opcodes.ACONST_NULL);
+        } else {
+            Class<?> parameterType = parameterTypes[0];
+            code.writeByte(loadOpcode(parameterType));
+            if (parameterType.isPrimitive()) {
+                String wrapper = internalName(wrap(parameterType).getName());
+                code.writeByte(Opcodes.INVOKESTATIC);
+                code.writeShort(methodRef(wrapper, "valueOf",
+                        "(" + descriptor(parameterType) + ")L" + wrapper + ";"));
+            }
+        }
+        code.writeByte(Opcodes.INVOKEVIRTUAL);
+        code.writeShort(methodRef(STUB_TYPE, "call", CALL_DESC));
+
+        // return the result
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            code.writeByte(Opcodes.POP);
+            code.writeByte(Opcodes.RETURN);
+        } else if (returnType.isPrimitive()) {
+            String wrapper = internalName(wrap(returnType).getName());
+            code.writeByte(Opcodes.CHECKCAST);
+            code.writeShort(classRef(wrapper));
+            code.writeByte(Opcodes.INVOKEVIRTUAL);
+            code.writeShort(methodRef(wrapper, returnType.getName() + "Value", "()" + descriptor(returnType)));
+            code.writeByte(returnOpcode(returnType));
+        } else {
+            if (returnType != Object.class) {
+                code.writeByte(Opcodes.CHECKCAST);
+                code.writeShort(classRef(internalName(returnType.getName())));
+            }
+            code.writeByte(Opcodes.ARETURN);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int utf8(String value) throws IOException {
+        Integer index = constants.get("U" + value);
+        if (index == null) {
+            pool.writeByte(1);
+            pool.writeUTF(value);
+            index = poolCount++;
+            constants.put("U" + value, index);
+        }
+        return index;
+    }
+
+    private int classRef(String internalName) throws IOException {
+        return reference("C" + internalName, 7, utf8(internalName), -1);
+    }
+
+    private int string(String value) throws IOException {
+        return reference("S" + value, 8, utf8(value), -1);
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+        return reference("N" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    private int fieldRef(String owner, String name, String descriptor) throws IOException {
+        return reference("F" + owner + "." + name + ":" + descriptor, 9, classRef(owner),
+                nameAndType(name, descriptor));
+    }
+
+    private int methodRef(String owner, String name, String descriptor) throws IOException {
+        return reference("M" + owner + "." + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    private int reference(String key, int tag, int first, int second) throws IOException {
+        Integer index = constants.get(key);
+        if (index == null) {
+            pool.writeByte(tag);
+            pool.writeShort(first);
+            if (second >= 0) {
+                pool.writeShort(second);
+            }
+            index = poolCount++;
+            constants.put(key, index);
+        }
+        return index;
+    }
+
+    private static String descriptor(Method method) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            descriptor.append(descriptor(parameterType));
+        }
+        return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return internalName(type.getName());
+        }
+        if (type == void.class) {
+            return "V";
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == double.class) {
+            return "D";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == char.class) {
+            return "C";
+        }
+        return "L" + internalName(type.getName()) + ";";
+    }
+
+    private static String internalName(String binaryName) {
+        return binaryName.replace('.', '/');
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static int slots(Class<?> type) {
+        return type == long.class || type == double.class ? 2 : 1;
+    }
+
+    private static int loadOpcode(Class<?> type) {
+        if (type == long.class) {
+            return Opcodes.LLOAD_1;
+        } else if (type == float.class) {
+            return Opcodes.FLOAD_1;
+        } else if (type == double.class) {
+            return Opcodes.DLOAD_1;
+        } else if (type.isPrimitive()) {
+            return Opcodes.ILOAD_1;
+        }
+        return Opcodes.ALOAD_1;
+    }
+
+    private static int returnOpcode(Class<?> type) {
+        if (type == long.class) {
+            return Opcodes.LRETURN;
+        } else if (type == float.class) {
+            return Opcodes.FRETURN;
+        } else if (type == double.class) {
+            return Opcodes.DRETURN;
+        }
+        return Opcodes.IRETURN;
+    }
+
+    private static final class Opcodes {
+        static final int ACONST_NULL = 0x01;
+        static final int LDC_W = 0x13;
+        static final int ILOAD_1 = 0x1b;
+        static final int LLOAD_1 = 0x1f;
+        static final int FLOAD_1 = 0x23;
+        static final int DLOAD_1 = 0x27;
+        static final int ALOAD_0 = 0x2a;
+        static final int ALOAD_1 = 0x2b;
+        static final int POP = 0x57;
+        static final int IRETURN = 0xac;
+        static final int LRETURN = 0xad;
+        static final int FRETURN = 0xae;
+        static final int DRETURN = 0xaf;
+        static final int ARETURN = 0xb0;
+        static final int RETURN = 0xb1;
+        static final int GETFIELD = 0xb4;
+        static final int PUTFIELD = 0xb5;
+        static final int INVOKEVIRTUAL = 0xb6;
+        static final int INVOKESPECIAL = 0xb7;
+        static final int INVOKESTATIC = 0xb8;
+        static final int CHECKCAST = 0xc0;
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.client.proxy;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * proxy factory of the generated stubs. It uses the stub emitted at build time by the stub annotation processor if
+ * present, otherwise it generates the stub class at runtime. The service that can't be stubbed, such as a non-public
+ * interface, falls back to the JDK proxy.
+ *
+ * @author dinstone
+ */
+public class StubProxyFactory implements ProxyFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StubProxyFactory.class);
+
+    /**
+     * the suffix of the stub class emitted by the annotation processor
+     */
+    public static final String STUB_SUFFIX = "FocusStub";
+
+    private static final String GENERATED_SUFFIX = "$$FocusStub";
+
+    private static final ClassValue<Constructor<?>> STUBS = new ClassValue<Constructor<?>>() {
+
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            return stubConstructor(type);
+        }
+    };
+
+    private final ProxyFactory fallbackFactory;
+
+    public StubProxyFactory() {
+        this(new JdkProxyFactory());
+    }
+
+    public StubProxyFactory(ProxyFactory fallbackFactory) {
+        this.fallbackFactory = fallbackFactory;
+    }
+
+    @Override
+    public <T> T create(Class<T> sic, ServiceConfig serviceConfig) {
+        if (!sic.isInterface()) {
+            throw new IllegalArgumentException(sic.getName() + " is not interface");
+        }
+
+        Constructor<?> constructor = STUBS.get(sic);
+        if (constructor != null) {
+            try {
+                return sic.cast(constructor.newInstance(serviceConfig));
+            } catch (InvocationTargetException e) {
+                LOG.warn("can't create stub for {}, use the fallback proxy", sic.getName(), e.getTargetException());
+            } catch (ReflectiveOperationException e) {
+                LOG.warn("can't create stub for {}, use the fallback proxy", sic.getName(), e);
+            }
+        }
+        return fallbackFactory.create(sic, serviceConfig);
+    }
+
+    /**
+     * the name of the stub class emitted by the annotation processor, it is in the package of the service and named
+     * after the binary name of the service, for example {@code Outer$Service} is stubbed by
+     * {@code Outer_ServiceFocusStub}.
+     */
+    public static String stubName(Class<?> sic) {
+        String name = sic.getName();
+        int index = name.lastIndexOf('.');
+        String packageName = index < 0 ? "" : name.substring(0, index + 1);
+        return packageName + name.substring(index + 1).replace('$', '_') + STUB_SUFFIX;
+    }
+
+    private static Constructor<?> stubConstructor(Class<?> sic) {
+        // the stub emitted at build time
+        try {
+            Class<?> stubClass = Class.forName(stubName(sic), false, sic.getClassLoader());
+            if (AbstractStub.class.isAssignableFrom(stubClass) && sic.isAssignableFrom(stubClass)) {
+                return stubClass.getConstructor(ServiceConfig.class);
+            }
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            // generate at runtime
+        }
+
+        List<Method> methods = stubMethods(sic);
+        if (methods == null) {
+            return null;
+        }
+        try {
+            String stubName = sic.getName() + GENERATED_SUFFIX;
+            byte[] classBytes = StubGenerator.generate(stubName, sic, methods);
+            Class<?> stubClass = new StubClassLoader(sic.getClassLoader()).define(stubName, classBytes);
+            return stubClass.getConstructor(ServiceConfig.class);
+        } catch (RuntimeException | NoSuchMethodException | LinkageError e) {
+            LOG.warn("can't generate stub for {}, use the fallback proxy", sic.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * the methods to implement, or null if the service can't be stubbed.
+     */
+    private static List<Method> stubMethods(Class<?> sic) {
+        if (!isVisible(sic)) {
+            return null;
+        }
+        List<Method> methods = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Method method : sic.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)) {
+                continue;
+            }
+            // the overload is unsupported, a method inherited twice is implemented once
+            if (!names.add(method.getName())) {
+                return null;
+            }
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (parameterTypes.length > 1 || !isVisible(method.getReturnType())) {
+                return null;
+            }
+            if (parameterTypes.length == 1 && !isVisible(parameterTypes[0])) {
+                return null;
+            }
+            methods.add(method);
+        }
+        return methods;
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * the stub is defined by its own class loader, the types it links must be public.
+     */
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    private static final class StubClassLoader extends ClassLoader {
+
+        StubClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            // the service class loader may not see the framework classes
+            return AbstractStub.class.getClassLoader().loadClass(name);
+        }
+
+        Class<?> define(String name, byte[] classBytes) {
+            return defineClass(name, classBytes, 0, classBytes.length);
+        }
+    }
+
+}
@@ -19,11 +19,16 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.dinstone.focus.client.config.ConsumerServiceConfig;
+import com.dinstone.focus.client.proxy.AbstractStub;
 import com.dinstone.focus.client.proxy.JdkProxyFactory;
+import com.dinstone.focus.client.proxy.StubProxyFactory;
 import com.dinstone.focus.invoke.Handler;
 import com.dinstone.focus.invoke.Invocation;
 
@@ -81,6 +86,95 @@ public class ProxyFactoryTest {
 
     }
 
+    @Test
+    public void test3() throws Exception {
+        ConsumerServiceConfig serviceConfig = new ConsumerServiceConfig();
+        serviceConfig.parseMethod(HelloService.class.getDeclaredMethods());
+        serviceConfig.setHandler(invocation -> CompletableFuture.<Object> completedFuture(invocation.getMethod()));
+        HelloService h = new StubProxyFactory().create(HelloService.class, serviceConfig);
+
+        Assert.assertTrue(h instanceof AbstractStub);
+        Assert.assertEquals("hi", h.hi("dinstone"));
+        Assert.assertEquals("say", h.say());
+        h.vfn();
+    }
+
+    @Test
+    public void test4() throws Exception {
+        ConsumerServiceConfig serviceConfig = new ConsumerServiceConfig();
+        serviceConfig.parseMethod(PrimitiveService.class.getDeclaredMethods());
+        serviceConfig.setHandler(invocation -> CompletableFuture.completedFuture(reply(invocation)));
+        PrimitiveService stub = new StubProxyFactory().create(PrimitiveService.class, serviceConfig);
+        PrimitiveService proxy = new JdkProxyFactory().create(PrimitiveService.class, serviceConfig);
+        Assert.assertTrue(stub instanceof AbstractStub);
+
+        for (PrimitiveService s : new PrimitiveService[] { stub, proxy }) {
+            // the two slots parameters
+            Assert.assertEquals(Long.MAX_VALUE - 1, s.dec(Long.MAX_VALUE));
+            Assert.assertEquals(-0.75d, s.half(-1.5d), 0);
+            Assert.assertEquals(6.5f, s.twice(3.25f), 0);
+            Assert.assertEquals(Integer.MIN_VALUE, s.inc(Integer.MAX_VALUE));
+            Assert.assertFalse(s.not(true));
+            Assert.assertEquals('F', s.upper('f'));
+            Assert.assertEquals((short) -2, s.negate((short) 2));
+            Assert.assertEquals((byte) 0x7f, s.mask((byte) -1));
+            Assert.assertEquals(42L, s.answer());
+            Assert.assertEquals("long 7", s.box(7L));
+        }
+    }
+
+    @Test
+    public void test5() throws Exception {
+        ConsumerServiceConfig serviceConfig = new ConsumerServiceConfig();
+        serviceConfig.parseMethod(AsyncService.class.getDeclaredMethods());
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        serviceConfig.setHandler(invocation -> {
+            if (invocation.getMethod().equals("later")) {
+                return pending;
+            }
+            return CompletableFuture.completedFuture("hi " + invocation.getParameter());
+        });
+        AsyncService stub = new StubProxyFactory().create(AsyncService.class, serviceConfig);
+        Assert.assertTrue(stub instanceof AbstractStub);
+
+        Assert.assertTrue(serviceConfig.lookup("hi").isAsyncInvoke());
+        Assert.assertEquals("hi dinstone", stub.hi("dinstone").get(1, TimeUnit.SECONDS));
+
+        // the stub returns the future of the handler without waiting
+        Future<String> later = stub.later(3);
+        Assert.assertFalse(later.isDone());
+        pending.complete("done");
+        Assert.assertEquals("done", later.get(1, TimeUnit.SECONDS));
+    }
+
+    private static Object reply(Invocation invocation) {
+        Object p = invocation.getParameter();
+        switch (invocation.getMethod()) {
+        case "dec":
+            return (Long) p - 1;
+        case "half":
+            return (Double) p / 2;
+        case "twice":
+            return (Float) p * 2;
+        case "inc":
+            return (Integer) p + 1;
+        case "not":
+            return !(Boolean) p;
+        case "upper":
+            return Character.toUpperCase((Character) p);
+        case "negate":
+            return (short) -(Short) p;
+        case "mask":
+            return (byte) ((Byte) p & 0x7f);
+        case "answer":
+            return 42L;
+        case "box":
+            return p.getClass().getSimpleName().toLowerCase() + " " + p;
+        default:
+            throw new IllegalArgumentException(invocation.getMethod());
+        }
+    }
+
     private HelloService proxyFactory() {
         ConsumerServiceConfig serviceConfig = new ConsumerServiceConfig();
         serviceConfig.parseMethod(HelloService.class.getDeclaredMethods());
@@ -120,6 +214,34 @@ public class ProxyFactoryTest {
         void vfn();
     }
 
+    public interface PrimitiveService {
+        long dec(long value);
+
+        double half(double value);
+
+        float twice(float value);
+
+        int inc(int value);
+
+        boolean not(boolean value);
+
+        char upper(char value);
+
+        short negate(short value);
+
+        byte mask(byte value);
+
+        long answer();
+
+        String box(long value);
+    }
+
+    public interface AsyncService {
+        CompletableFuture<String> hi(String name);
+
+        Future<String> later(int delay);
+    }
+
     public static class DefaultHelloService implements HelloService {
 
         @Override
@@ -15,7 +15,11 @@
  */
 package com.dinstone.focus.compress;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface Compressor {
 
@@ -39,4 +43,32 @@ public interface Compressor {
      */
     public abstract byte[] decode(byte[] data) throws IOException;
 
+    /**
+     * The Data compress from the input stream into the output stream, the transport passes streams over its pooled
+     * buffers. The default adapter delegates to {@link #encode(byte[])}.
+     *
+     */
+    public default void encode(InputStream input, OutputStream output) throws IOException {
+        output.write(encode(readBytes(input)));
+    }
+
+    /**
+     * The Data decompress, returns the decompressed stream of the input stream. The default adapter delegates to
+     * {@link #decode(byte[])}.
+     *
+     */
+    public default InputStream decode(InputStream input) throws IOException {
+        return new ByteArrayInputStream(decode(readBytes(input)));
+    }
+
+    static byte[] readBytes(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(32, input.available()));
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+        }
+        return output.toByteArray();
+    }
+
 }
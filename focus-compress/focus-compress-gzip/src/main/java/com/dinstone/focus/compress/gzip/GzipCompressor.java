@@ -18,6 +18,8 @@ package com.dinstone.focus.compress.gzip;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -56,4 +58,21 @@ public class GzipCompressor implements Compressor {
         return baos.toByteArray();
     }
 
+    @Override
+    public void encode(InputStream input, OutputStream output) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output);
+        byte[] buffer = new byte[2048];
+        int count = 0;
+        while ((count = input.read(buffer)) >= 0) {
+            gzip.write(buffer, 0, count);
+        }
+        // finish without closing the transport stream
+        gzip.finish();
+    }
+
+    @Override
+    public InputStream decode(InputStream input) throws IOException {
+        return new GZIPInputStream(input);
+    }
+
 }
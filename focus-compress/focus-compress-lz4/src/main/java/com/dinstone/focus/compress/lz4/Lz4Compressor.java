@@ -18,6 +18,8 @@ package com.dinstone.focus.compress.lz4;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import com.dinstone.focus.compress.Compressor;
 
@@ -71,4 +73,21 @@ public class Lz4Compressor implements Compressor {
         return baos.toByteArray();
     }
 
+    @Override
+    public void encode(InputStream input, OutputStream output) throws IOException {
+        LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(output, 2048, compressor);
+        int count = 0;
+        byte[] buffer = new byte[2048];
+        while ((count = input.read(buffer)) != -1) {
+            compressedOutput.write(buffer, 0, count);
+        }
+        // finish without closing the transport stream
+        compressedOutput.finish();
+    }
+
+    @Override
+    public InputStream decode(InputStream input) throws IOException {
+        return new LZ4BlockInputStream(input, decompressor);
+    }
+
 }
@@ -15,7 +15,11 @@
  */
 package com.dinstone.focus.compress.snappy;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.xerial.snappy.Snappy;
 
@@ -35,6 +39,42 @@ public class SnappyCompressor implements Compressor {
         return Snappy.uncompress(data);
     }
 
+    /**
+     * snappy raw format needs the whole block, the input is read once into an exactly sized array and compressed into
+     * a max sized array without the trailing copy of {@link Snappy#compress(byte[])}.
+     */
+    @Override
+    public void encode(InputStream input, OutputStream output) throws IOException {
+        byte[] data = readFully(input);
+        byte[] compressed = new byte[Snappy.maxCompressedLength(data.length)];
+        int length = Snappy.compress(data, 0, data.length, compressed, 0);
+        output.write(compressed, 0, length);
+    }
+
+    @Override
+    public InputStream decode(InputStream input) throws IOException {
+        return new ByteArrayInputStream(Snappy.uncompress(readFully(input)));
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        // transport buffer streams report the exact remaining size
+        byte[] data = new byte[Math.max(input.available(), 32)];
+        int offset = 0;
+        int count;
+        while ((count = input.read(data, offset, data.length - offset)) != -1) {
+            offset += count;
+            if (offset == data.length) {
+                int next = input.read();
+                if (next == -1) {
+                    break;
+                }
+                data = Arrays.copyOf(data, data.length << 1);
+                data[offset++] = (byte) next;
+            }
+        }
+        return offset == data.length ? data : Arrays.copyOf(data, offset);
+    }
+
     @Override
     public String type() {
         return COMPRESSOR_TYPE;
@@ -33,6 +33,8 @@ public abstract class AbstractMethodConfig implements MethodConfig {
 
     protected boolean asyncInvoke;
 
+    protected boolean inlineDispatch;
+
     protected int timeoutMillis;
 
     protected int timeoutRetry;
@@ -98,6 +100,15 @@ public abstract class AbstractMethodConfig implements MethodConfig {
         this.asyncInvoke = asyncInvoke;
     }
 
+    @Override
+    public boolean isInlineDispatch() {
+        return inlineDispatch;
+    }
+
+    public void setInlineDispatch(boolean inlineDispatch) {
+        this.inlineDispatch = inlineDispatch;
+    }
+
     @Override
     public int getTimeoutMillis() {
         return timeoutMillis;
@@ -119,8 +130,8 @@ public abstract class AbstractMethodConfig implements MethodConfig {
     @Override
     public String toString() {
         return "MethodConfig [methodName=" + methodName + ", paramType=" + paramType + ", returnType=" + returnType
-                + ", asyncInvoke=" + asyncInvoke + ", timeoutMillis=" + timeoutMillis + ", timeoutRetry=" + timeoutRetry
-                + "]";
+                + ", asyncInvoke=" + asyncInvoke + ", inlineDispatch=" + inlineDispatch + ", timeoutMillis="
+                + timeoutMillis + ", timeoutRetry=" + timeoutRetry + "]";
     }
 
 }
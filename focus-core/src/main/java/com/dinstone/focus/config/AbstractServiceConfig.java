@@ -17,6 +17,7 @@ package com.dinstone.focus.config;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
@@ -102,6 +103,11 @@ public abstract class AbstractServiceConfig implements ServiceConfig {
         return methodConfigs.get(methodName);
     }
 
+    @Override
+    public Collection<MethodConfig> getMethodConfigs() {
+        return methodConfigs.values();
+    }
+
     @Override
     public Serializer getSerializer() {
         return serializer;
@@ -27,6 +27,10 @@ public interface MethodConfig {
 
     boolean isAsyncInvoke();
 
+    default boolean isInlineDispatch() {
+        return false;
+    }
+
     Class<?> getReturnType();
 
     Class<?> getParamType();
@@ -15,6 +15,8 @@
  */
 package com.dinstone.focus.config;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import com.dinstone.focus.compress.Compressor;
@@ -30,6 +32,10 @@ public interface ServiceConfig {
 
     MethodConfig lookup(String methodName);
 
+    default Collection<MethodConfig> getMethodConfigs() {
+        return Collections.emptyList();
+    }
+
     int getCompressThreshold();
 
     Compressor getCompressor();
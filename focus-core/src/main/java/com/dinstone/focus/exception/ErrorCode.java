@@ -24,7 +24,7 @@ public enum ErrorCode implements StatusCode {
 
     // service error
     CODEC_ERROR(201), SERVICE_ERROR(202), METHOD_ERROR(203), PARAM_ERROR(204), ACCESS_ERROR(205), RATE_LIMIT_ERROR(206),
-    CIRCUIT_BREAK_ERROR(207),
+    CIRCUIT_BREAK_ERROR(207), OVERLOAD_ERROR(208),
 
     // business error
     DECLARED_ERROR(301), UNDECLARED_ERROR(302), RUNTIME_ERROR(303);
@@ -15,22 +15,156 @@
  */
 package com.dinstone.focus.invoke;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * invocation context, the values are kept in an array indexed by pre-registered typed keys, the values of the string
+ * keys that are not registered are kept in a small overflow map. The context is not thread safe, its writes must be
+ * sequential: an invocation writes it on the calling thread and then in the callbacks of its future chain, which may
+ * run on an IO thread, each write happens-before the next one through the future completion. A forked context shares
+ * the snapshot of its parent and copies it on the first write, so lookups never walk a parent chain.
+ * <p>
+ * The context is carried by a thread local by default, set the system property {@code focus.context.carrier} to
+ * {@code scoped} to carry it with a {@code ScopedValue} on JDKs that support it.
+ *
+ * @author dinstone
+ */
 public class Context implements AutoCloseable {
 
+    public static final String CARRIER_PROPERTY = "focus.context.carrier";
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private static final Carrier CARRIER = Carrier.select(System.getProperty(CARRIER_PROPERTY));
+
     private static final ThreadLocal<Context> CONTEXT_LOCAL = new ThreadLocal<Context>();
 
-    private final ConcurrentHashMap<String, Object> contentMap = new ConcurrentHashMap<>();
+    private Object[] values;
+
+    // the values of the string keys without a registered slot
+    private Map<String, Object> extras;
+
+    private boolean shared;
+
+    // the context bound before this one by create(), only used to restore the thread local on close
+    private Context previous;
+
+    private Context(Object[] values, Map<String, Object> extras, boolean shared) {
+        this.values = values;
+        this.extras = extras;
+        this.shared = shared;
+    }
+
+    /**
+     * typed context key, keys are registered once and own a slot in the context array. Declare the keys as constants,
+     * the string methods of the context keep the names without a key in the overflow map.
+     *
+     * @param <T>
+     *            value type
+     */
+    public static final class Key<T> {
+
+        private static final Map<String, Key<?>> KEYS = new ConcurrentHashMap<>();
+
+        private static volatile int count;
+
+        private final String name;
+
+        private final int index;
+
+        private Key(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        /**
+         * get the key registered with the name, register it if absent.
+         *
+         * @param name
+         *            key name
+         */
+        @SuppressWarnings("unchecked")
+        public static <T> Key<T> of(String name) {
+            Key<?> key = KEYS.get(name);
+            if (key == null) {
+                synchronized (KEYS) {
+                    key = KEYS.computeIfAbsent(name, n -> new Key<>(n, count++));
+                }
+            }
+            return (Key<T>) key;
+        }
+
+        /**
+         * get the key registered with the name, null if absent.
+         */
+        @SuppressWarnings("unchecked")
+        static <T> Key<T> find(String name) {
+            return (Key<T>) KEYS.get(name);
+        }
+
+        static int count() {
+            return count;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * get the value of the typed key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key) {
+        Object[] values = this.values;
+        Object value = key.index < values.length ? values[key.index] : null;
+        if (value == null && extras != null) {
+            // put by name before the key was registered
+            value = extras.get(key.name);
+        }
+        return (T) value;
+    }
 
-    private final Context parent;
+    /**
+     * put the value of the typed key, a null value removes the key
+     */
+    public <T> void put(Key<T> key, T value) {
+        if (extras != null && extras.containsKey(key.name)) {
+            writableExtras().remove(key.name);
+        }
+        if (value == null && key.index >= values.length) {
+            return;
+        }
+        Object[] values = writable(key.index);
+        values[key.index] = value;
+    }
 
-    private Context() {
-        this(null);
+    /**
+     * put the value of the typed key if absent
+     */
+    public <T> void putIfAbsent(Key<T> key, T value) {
+        if (get(key) == null) {
+            put(key, value);
+        }
     }
 
-    private Context(Context parent) {
-        this.parent = parent;
+    /**
+     * remove the typed key
+     */
+    public void remove(Key<?> key) {
+        put(key, null);
     }
 
     /**
@@ -42,7 +176,9 @@ public class Context implements AutoCloseable {
      *            value
      */
     public void putIfAbsent(String key, Object value) {
-        this.contentMap.putIfAbsent(key, value);
+        if (get(key) == null) {
+            put(key, value);
+        }
     }
 
     /**
@@ -54,7 +190,14 @@ public class Context implements AutoCloseable {
      *            value
      */
     public void put(String key, Object value) {
-        this.contentMap.put(key, value);
+        Key<Object> slot = Key.find(key);
+        if (slot != null) {
+            put(slot, value);
+        } else if (value != null) {
+            writableExtras().put(key, value);
+        } else if (extras != null && extras.containsKey(key)) {
+            writableExtras().remove(key);
+        }
     }
 
     /**
@@ -62,11 +205,11 @@ public class Context implements AutoCloseable {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
-        Object value = this.contentMap.get(key);
-        if (value == null && parent != null) {
-            value = parent.get(key);
+        Key<T> slot = Key.find(key);
+        if (slot != null) {
+            return get(slot);
         }
-        return (T) value;
+        return extras != null ? (T) extras.get(key) : null;
     }
 
     /**
@@ -81,35 +224,229 @@ public class Context implements AutoCloseable {
      * remove the key
      */
     public void remove(String key) {
-        this.contentMap.remove(key);
+        put(key, null);
+    }
+
+    /**
+     * run the action with this context as the current context.
+     *
+     * @param action
+     *            action
+     */
+    public <T> T call(Supplier<T> action) {
+        return CARRIER.call(this, action);
+    }
+
+    private Object[] writable(int index) {
+        unshare();
+        Object[] values = this.values;
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.max(index + 1, Key.count()));
+            this.values = values;
+        }
+        return values;
+    }
+
+    private Map<String, Object> writableExtras() {
+        unshare();
+        if (extras == null) {
+            extras = new HashMap<>();
+        }
+        return extras;
+    }
+
+    private void unshare() {
+        if (shared) {
+            values = Arrays.copyOf(values, Math.max(values.length, Key.count()));
+            if (extras != null) {
+                extras = new HashMap<>(extras);
+            }
+            shared = false;
+        }
     }
 
     @Override
     public void close() {
         Context current = CONTEXT_LOCAL.get();
         if (this == current) {
-            if (current.parent != null) {
-                CONTEXT_LOCAL.set(current.parent);
+            if (previous != null) {
+                CONTEXT_LOCAL.set(previous);
             } else {
                 CONTEXT_LOCAL.remove();
             }
         }
+        previous = null;
     }
 
-    public static Context create() {
-        Context context;
-        Context parent = CONTEXT_LOCAL.get();
-        if (parent != null) {
-            context = new Context(parent);
-        } else {
-            context = new Context();
+    /**
+     * fork a context from the current context, the new context is not bound, use {@link #call(Supplier)} to make it
+     * current.
+     */
+    public static Context fork() {
+        Context parent = current();
+        if (parent == null || (parent.values.length == 0 && parent.extras == null)) {
+            return empty();
         }
+        parent.shared = true;
+        return new Context(parent.values, parent.extras, true);
+    }
+
+    /**
+     * a new context which does not inherit any value from the current context, use {@link #call(Supplier)} to make
+     * it current.
+     */
+    public static Context empty() {
+        return new Context(EMPTY, null, true);
+    }
+
+    /**
+     * fork a context and bind it to the current thread until it is closed.
+     */
+    public static Context create() {
+        Context context = fork();
+        context.previous = CONTEXT_LOCAL.get();
         CONTEXT_LOCAL.set(context);
         return context;
     }
 
+    /**
+     * the context bound by {@link #create()} if any, otherwise the context of the enclosing {@link #call(Supplier)}.
+     */
     public static Context current() {
-        return CONTEXT_LOCAL.get();
+        Context context = CONTEXT_LOCAL.get();
+        return context != null ? context : CARRIER.current();
+    }
+
+    /**
+     * carries the current context.
+     */
+    private abstract static class Carrier {
+
+        abstract Context current();
+
+        abstract <T> T call(Context context, Supplier<T> action);
+
+        static Carrier select(String name) {
+            if ("scoped".equalsIgnoreCase(name)) {
+                Carrier carrier = ScopedCarrier.create();
+                if (carrier != null) {
+                    return carrier;
+                }
+            }
+            return new LocalCarrier();
+        }
+    }
+
+    private static final class LocalCarrier extends Carrier {
+
+        @Override
+        Context current() {
+            return CONTEXT_LOCAL.get();
+        }
+
+        @Override
+        <T> T call(Context context, Supplier<T> action) {
+            Context previous = CONTEXT_LOCAL.get();
+            CONTEXT_LOCAL.set(context);
+            try {
+                return action.get();
+            } finally {
+                if (previous != null) {
+                    CONTEXT_LOCAL.set(previous);
+                } else {
+                    CONTEXT_LOCAL.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * ScopedValue carrier, resolved by method handles so that the Java 8 baseline still builds and runs.
+     */
+    private static final class ScopedCarrier extends Carrier {
+
+        private final Object scopedValue;
+
+        private final MethodHandle where;
+
+        private final MethodHandle run;
+
+        private final MethodHandle isBound;
+
+        private final MethodHandle get;
+
+        private ScopedCarrier(Object scopedValue, MethodHandle where, MethodHandle run, MethodHandle isBound,
+                MethodHandle get) {
+            this.scopedValue = scopedValue;
+            this.where = where;
+            this.run = run;
+            this.isBound = isBound;
+            this.get = get;
+        }
+
+        static Carrier create() {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> valueClass = Class.forName("java.lang.ScopedValue");
+                Class<?> carrierClass = Class.forName("java.lang.ScopedValue$Carrier");
+                Object scopedValue = lookup.findStatic(valueClass, "newInstance", MethodType.methodType(valueClass))
+                        .invoke();
+                MethodHandle where = lookup.findStatic(valueClass, "where",
+                        MethodType.methodType(carrierClass, valueClass, Object.class));
+                MethodHandle run = lookup.findVirtual(carrierClass, "run",
+                        MethodType.methodType(void.class, Runnable.class));
+                MethodHandle isBound = lookup.findVirtual(valueClass, "isBound", MethodType.methodType(boolean.class));
+                MethodHandle get = lookup.findVirtual(valueClass, "get", MethodType.methodType(Object.class));
+                return new ScopedCarrier(scopedValue, where, run, isBound, get);
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        @Override
+        Context current() {
+            try {
+                if ((boolean) isBound.invoke(scopedValue)) {
+                    return (Context) get.invoke(scopedValue);
+                }
+                return null;
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        <T> T call(Context context, Supplier<T> action) {
+            // hide the context bound by create() in the scope, so that only the contexts created inside it win
+            Context bound = CONTEXT_LOCAL.get();
+            if (bound != null) {
+                CONTEXT_LOCAL.remove();
+            }
+            Object[] result = new Object[1];
+            try {
+                Object carrier = where.invoke(scopedValue, (Object) context);
+                run.invoke(carrier, (Runnable) () -> result[0] = action.get());
+            } catch (Throwable e) {
+                throw rethrow(e);
+            } finally {
+                if (bound != null) {
+                    CONTEXT_LOCAL.set(bound);
+                }
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) result[0];
+            return value;
+        }
+
+        private static RuntimeException rethrow(Throwable e) {
+            if (e instanceof RuntimeException) {
+                return (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return new IllegalStateException(e);
+        }
     }
 
 }
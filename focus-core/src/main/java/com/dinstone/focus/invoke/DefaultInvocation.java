@@ -15,6 +15,9 @@
  */
 package com.dinstone.focus.invoke;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,13 +31,14 @@ public class DefaultInvocation implements Invocation, Serializable {
 
     private static final String EMPTY_VALUE = "";
 
-    private final Map<String, String> attributes = new HashMap<>();
+    // may be a view of the transport headers, written as a plain map
+    private transient Map<String, String> attributes;
 
-    protected final String service;
+    protected String service;
 
-    protected final String method;
+    protected String method;
 
-    protected final Object parameter;
+    protected Object parameter;
 
     /**
      * source application identity
@@ -56,6 +60,9 @@ public class DefaultInvocation implements Invocation, Serializable {
 
     private MethodConfig methodConfig;
 
+    // the thread which acquired the invocation from the recycler
+    transient Thread owner;
+
     public DefaultInvocation(String service, String method, Object parameter) {
         this.service = service;
         this.method = method;
@@ -117,9 +124,19 @@ public class DefaultInvocation implements Invocation, Serializable {
 
     @Override
     public Map<String, String> attributes() {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
         return attributes;
     }
 
+    /**
+     * replace the attributes, the transport passes a view of its headers to avoid copying them.
+     */
+    public void attributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
     @Override
     public Context context() {
         return context;
@@ -146,4 +163,31 @@ public class DefaultInvocation implements Invocation, Serializable {
     public void setMethodConfig(MethodConfig methodConfig) {
         this.methodConfig = methodConfig;
     }
+
+    /**
+     * reset all fields, used by the {@link InvocationRecycler}.
+     */
+    void reset(String service, String method, Object parameter) {
+        this.service = service;
+        this.method = method;
+        this.parameter = parameter;
+        this.attributes = null;
+        this.consumer = null;
+        this.provider = null;
+        this.timeout = 0;
+        this.context = null;
+        this.serviceConfig = null;
+        this.methodConfig = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(attributes == null ? null : new HashMap<>(attributes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        attributes = (Map<String, String>) in.readObject();
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.invoke;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * invocation attributes backed by the transport headers, reads go to the headers directly and a private map is only
+ * materialized on the first write or iteration.
+ *
+ * @author dinstone
+ */
+public abstract class HeaderAttributes extends AbstractMap<String, String> {
+
+    private Map<String, String> map;
+
+    /**
+     * get the header value
+     *
+     * @param name
+     *            header name
+     *
+     * @return null if the header is absent
+     */
+    protected abstract String header(String name);
+
+    /**
+     * traverse the headers
+     */
+    protected abstract void forEachHeader(BiConsumer<String, String> action);
+
+    private Map<String, String> materialize() {
+        Map<String, String> map = this.map;
+        if (map == null) {
+            Map<String, String> copy = new HashMap<>();
+            forEachHeader(copy::put);
+            this.map = map = copy;
+        }
+        return map;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (map != null) {
+            return map.get(key);
+        }
+        return key instanceof String ? header((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (map != null) {
+            return map.containsKey(key);
+        }
+        return key instanceof String && header((String) key) != null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        if (map != null) {
+            map.forEach(action);
+        } else {
+            forEachHeader(action::accept);
+        }
+    }
+
+    @Override
+    public String put(String key, String value) {
+        return materialize().put(key, value);
+    }
+
+    @Override
+    public String remove(Object key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> m) {
+        materialize().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        map = new HashMap<>();
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return materialize().entrySet();
+    }
+
+}
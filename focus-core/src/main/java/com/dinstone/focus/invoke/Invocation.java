@@ -26,6 +26,7 @@ public interface Invocation {
     String SERVICE_KEY = "call.service";
     String METHOD_KEY = "call.method";
     String TIMEOUT_KEY = "call.timeout";
+    String METHOD_ID_KEY = "call.id";
 
     String getService();
 
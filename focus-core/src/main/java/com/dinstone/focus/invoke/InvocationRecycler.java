@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.invoke;
+
+import java.util.ArrayDeque;
+
+/**
+ * recycles server-side invocations on the transport threads. A recycled invocation is reset and reused by the next
+ * request decoded on the same thread, so interceptors and services must not keep it after the call completes. An
+ * invocation completed on another thread is dropped, the pools are per thread and would not be drained otherwise.
+ *
+ * @author dinstone
+ */
+public final class InvocationRecycler {
+
+    private static final int CAPACITY = 32;
+
+    private static final ThreadLocal<ArrayDeque<DefaultInvocation>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final boolean enabled;
+
+    public InvocationRecycler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * take an invocation from the pool of the current thread, or create a new one.
+     */
+    public DefaultInvocation acquire(String service, String method, Object parameter) {
+        if (!enabled) {
+            return new DefaultInvocation(service, method, parameter);
+        }
+        DefaultInvocation invocation = POOL.get().pollFirst();
+        if (invocation != null) {
+            invocation.reset(service, method, parameter);
+        } else {
+            invocation = new DefaultInvocation(service, method, parameter);
+        }
+        invocation.owner = Thread.currentThread();
+        return invocation;
+    }
+
+    /**
+     * return the invocation to the pool of the current thread, it is dropped when the pool is full or the current
+     * thread did not acquire it.
+     */
+    public void recycle(DefaultInvocation invocation) {
+        if (enabled && invocation != null && invocation.owner == Thread.currentThread()) {
+            invocation.owner = null;
+            ArrayDeque<DefaultInvocation> pool = POOL.get();
+            if (pool.size() < CAPACITY) {
+                invocation.reset(null, null, null);
+                pool.offerFirst(invocation);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+}
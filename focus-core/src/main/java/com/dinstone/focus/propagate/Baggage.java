@@ -19,6 +19,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
+import com.dinstone.focus.invoke.Context;
+
 public class Baggage {
 
     public static final String COMMA = ",";
@@ -26,6 +28,8 @@ public class Baggage {
 
     public static final String CONTEXT_KEY = "context.baggage";
 
+    public static final Context.Key<Baggage> KEY = Context.Key.of(CONTEXT_KEY);
+
     public static final String PROPAGATE_KEY = "propagate.baggage";
 
     private final Map<String, String> stores = new HashMap<>();
@@ -15,6 +15,11 @@
  */
 package com.dinstone.focus.utils;
 
+import java.util.List;
+
+import com.dinstone.focus.invoke.Context;
+import com.dinstone.focus.naming.ServiceInstance;
+
 public class ConstantUtil {
 
     public static final String RPC_SERVER = "rpc.server";
@@ -23,6 +28,31 @@ public class ConstantUtil {
 
     public static final String RPC_RETRY = "rpc.retry";
 
+    public static final String RPC_DOMAIN_SOCKET = "rpc.domain.socket";
+
+    public static final Context.Key<ServiceInstance> RPC_SERVER_KEY = Context.Key.of(RPC_SERVER);
+
+    public static final Context.Key<String> RPC_LINK_KEY = Context.Key.of(RPC_LINK);
+
+    public static final Context.Key<List<ServiceInstance>> RPC_RETRY_KEY = Context.Key.of(RPC_RETRY);
+
+    public static final Context.Key<String> RPC_DOMAIN_SOCKET_KEY = Context.Key.of(RPC_DOMAIN_SOCKET);
+
+    /**
+     * instance metadata : the unix domain socket path of the acceptor
+     */
+    public static final String DOMAIN_SOCKET_PATH = "transport.uds.path";
+
+    /**
+     * instance metadata : the host identity of the acceptor, the domain socket is only reachable on the same host
+     */
+    public static final String HOST_IDENTITY = "transport.host.id";
+
+    /**
+     * instance metadata : the JVM identity of the acceptor, the same process clients invoke it in memory
+     */
+    public static final String PROCESS_IDENTITY = "transport.process.id";
+
     public static final String SWIMLANE_LABEL = "swimlane";
 
     public static final String SWIMLANE_STABLE = "stable";
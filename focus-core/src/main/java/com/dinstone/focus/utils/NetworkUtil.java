@@ -15,6 +15,7 @@
  */
 package com.dinstone.focus.utils;
 
+import java.io.File;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -22,12 +23,19 @@ import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 public class NetworkUtil {
 
+    private static final String BOOT_ID_FILE = "/proc/sys/kernel/random/boot_id";
+
+    private static volatile String hostIdentity;
+
     public static List<InetAddress> getPrivateAddresses() throws SocketException {
         List<InetAddress> inetAddresses = new LinkedList<>();
         for (Enumeration<NetworkInterface> e = NetworkInterface.getNetworkInterfaces(); e.hasMoreElements();) {
@@ -68,10 +76,46 @@ public class NetworkUtil {
         return inetAddresses;
     }
 
-    public static String link(SocketAddress localAddress, SocketAddress remoteAddress) {
-        InetSocketAddress local = (InetSocketAddress) localAddress;
-        InetSocketAddress remote = (InetSocketAddress) remoteAddress;
+    /**
+     * the identity of the host. The kernel boot id is shared by the containers of the same node, so the pods on the
+     * same node are on the same host, it falls back to the host name.
+     */
+    public static String getHostIdentity() {
+        String identity = hostIdentity;
+        if (identity == null) {
+            try {
+                File bootId = new File(BOOT_ID_FILE);
+                if (bootId.canRead()) {
+                    identity = new String(Files.readAllBytes(bootId.toPath()), StandardCharsets.US_ASCII).trim();
+                }
+                if (identity == null || identity.isEmpty()) {
+                    identity = InetAddress.getLocalHost().getHostName();
+                }
+            } catch (Exception e) {
+                identity = "localhost";
+            }
+            hostIdentity = identity;
+        }
+        return identity;
+    }
+
+    /**
+     * the unix domain socket path of the instance metadata if the instance is on the same host.
+     *
+     * @return null if the instance is not reachable by the domain socket
+     */
+    public static String domainSocketPath(Map<String, String> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        String path = metadata.get(ConstantUtil.DOMAIN_SOCKET_PATH);
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return getHostIdentity().equals(metadata.get(ConstantUtil.HOST_IDENTITY)) ? path : null;
+    }
 
+    public static String link(SocketAddress local, SocketAddress remote) {
         StringBuilder labelBuilder = new StringBuilder();
         if (local == null) {
             labelBuilder.append("local");
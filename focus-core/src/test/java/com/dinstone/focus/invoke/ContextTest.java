@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.invoke;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContextTest {
+
+    private static final Context.Key<String> USER = Context.Key.of("context.test.user");
+
+    @Test
+    public void forkIsolation() {
+        Context parent = Context.empty();
+        parent.put(USER, "parent");
+        parent.put("context.test.extra", "parent");
+
+        Context child = parent.call(Context::fork);
+        Assert.assertEquals("parent", child.get(USER));
+        Assert.assertEquals("parent", child.get("context.test.extra"));
+
+        // parent write after fork
+        parent.put(USER, "parent-2");
+        parent.put("context.test.extra", "parent-2");
+        Assert.assertEquals("parent", child.get(USER));
+        Assert.assertEquals("parent", child.get("context.test.extra"));
+
+        // child write after fork
+        child.put(USER, "child");
+        child.put("context.test.extra", "child");
+        Assert.assertEquals("parent-2", parent.get(USER));
+        Assert.assertEquals("parent-2", parent.get("context.test.extra"));
+        Assert.assertEquals("child", child.get(USER));
+        Assert.assertEquals("child", child.get("context.test.extra"));
+    }
+
+    @Test
+    public void keyRegisteredAfterPut() {
+        Context context = Context.empty();
+        context.put("context.test.late", "value");
+
+        Context.Key<String> key = Context.Key.of("context.test.late");
+        Assert.assertEquals("value", context.get(key));
+        Assert.assertEquals("value", context.get("context.test.late"));
+
+        context.put(key, "typed");
+        Assert.assertEquals("typed", context.get(key));
+        Assert.assertEquals("typed", context.get("context.test.late"));
+    }
+
+    @Test
+    public void putNullRemoves() {
+        Context context = Context.empty();
+        context.put(USER, "user");
+        context.put(USER, null);
+        Assert.assertNull(context.get(USER));
+
+        context.put("context.test.removed", "value");
+        context.put("context.test.removed", null);
+        Assert.assertNull(context.get("context.test.removed"));
+
+        Context.Key<String> unset = Context.Key.of("context.test.unset");
+        context.put(unset, null);
+        Assert.assertNull(context.get(unset));
+    }
+
+    @Test
+    public void nestedCreateClose() {
+        Assert.assertNull(Context.current());
+        try (Context outer = Context.create()) {
+            Assert.assertSame(outer, Context.current());
+            try (Context inner = Context.create()) {
+                Assert.assertSame(inner, Context.current());
+            }
+            Assert.assertSame(outer, Context.current());
+        }
+        Assert.assertNull(Context.current());
+    }
+
+    @Test
+    public void callRestoresOuter() {
+        Context outer = Context.empty();
+        Context inner = Context.empty();
+        outer.call(() -> {
+            Assert.assertSame(outer, Context.current());
+            inner.call(() -> {
+                Assert.assertSame(inner, Context.current());
+                return null;
+            });
+            Assert.assertSame(outer, Context.current());
+            return null;
+        });
+        Assert.assertNull(Context.current());
+
+        try {
+            outer.call(() -> {
+                throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertNull(Context.current());
+        }
+    }
+}
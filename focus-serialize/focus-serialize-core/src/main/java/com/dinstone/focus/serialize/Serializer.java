@@ -15,7 +15,10 @@
  */
 package com.dinstone.focus.serialize;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface Serializer {
 
@@ -31,4 +34,30 @@ public interface Serializer {
 
     public Object decode(byte[] contentBytes, Class<?> contentType) throws IOException;
 
+    /**
+     * encode the content into the output stream, the transport passes a stream over its pooled buffer so that the
+     * serializer can write without intermediate byte arrays. The default adapter delegates to
+     * {@link #encode(Object, Class)}.
+     */
+    public default void encode(Object content, Class<?> contentType, OutputStream output) throws IOException {
+        byte[] contentBytes = encode(content, contentType);
+        if (contentBytes != null) {
+            output.write(contentBytes);
+        }
+    }
+
+    /**
+     * decode the content from the input stream, the transport passes a stream over its received buffer. The default
+     * adapter reads the stream and delegates to {@link #decode(byte[], Class)}.
+     */
+    public default Object decode(InputStream input, Class<?> contentType) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(32, input.available()));
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+        }
+        return decode(output.toByteArray(), contentType);
+    }
+
 }
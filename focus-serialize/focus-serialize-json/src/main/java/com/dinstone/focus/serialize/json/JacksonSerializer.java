@@ -16,9 +16,12 @@
 package com.dinstone.focus.serialize.json;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import com.dinstone.focus.serialize.Serializer;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser.Feature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -46,6 +49,10 @@ public class JacksonSerializer implements Serializer {
 
         // JSON configuration for compatibility
         objectMapper.enable(Feature.ALLOW_UNQUOTED_FIELD_NAMES);
+
+        // JSON configuration not to close the transport buffer streams
+        objectMapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        objectMapper.disable(Feature.AUTO_CLOSE_SOURCE);
     }
 
     @Override
@@ -69,4 +76,20 @@ public class JacksonSerializer implements Serializer {
         return objectMapper.readValue(contentBytes, contentType);
     }
 
+    @Override
+    public void encode(Object content, Class<?> contentType, OutputStream output) throws IOException {
+        if (content == null) {
+            return;
+        }
+        objectMapper.writeValue(output, content);
+    }
+
+    @Override
+    public Object decode(InputStream input, Class<?> contentType) throws IOException {
+        if (input == null || contentType == null) {
+            return null;
+        }
+        return objectMapper.readValue(input, contentType);
+    }
+
 }
@@ -16,6 +16,8 @@
 package com.dinstone.focus.serialize.protobuf;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
 
 import com.dinstone.focus.serialize.Serializer;
@@ -53,4 +55,26 @@ public class ProtobufSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void encode(Object content, Class<?> contentType, OutputStream output) throws IOException {
+        if (content instanceof MessageLite) {
+            ((MessageLite) content).writeTo(output);
+            return;
+        }
+        throw new IOException("unsported parameter type");
+    }
+
+    @Override
+    public Object decode(InputStream input, Class<?> contentType) throws IOException {
+        if (input == null) {
+            return null;
+        }
+        try {
+            Method m = contentType.getMethod(PARSE_FROM_METHOD, InputStream.class);
+            return m.invoke(null, input);
+        } catch (Exception e) {
+            throw new IOException("read parameter error", e);
+        }
+    }
+
 }
@@ -16,6 +16,8 @@
 package com.dinstone.focus.serialize.protostuff;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import com.dinstone.focus.serialize.Serializer;
 
@@ -66,6 +68,33 @@ public class ProtostuffSerializer implements Serializer {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void encode(Object content, Class<?> contentType, OutputStream output) throws IOException {
+        Schema<Object> schema = (Schema<Object>) getSchema(contentType);
+        LinkedBuffer buffer = LinkedBuffer.allocate();
+        try {
+            ProtostuffIOUtil.writeTo(output, content, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object decode(InputStream input, Class<?> contentType) throws IOException {
+        try {
+            Schema<Object> schema = (Schema<Object>) getSchema(contentType);
+            Object instance = contentType.newInstance();
+            ProtostuffIOUtil.mergeFrom(input, instance, schema);
+            return instance;
+        } catch (RuntimeException | IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
     private Schema<?> getSchema(Class<?> cls) {
         return RuntimeSchema.getSchema(cls, STRATEGY);
     }
@@ -15,6 +15,9 @@
  */
 package com.dinstone.focus.server;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * service level options
  * 
@@ -31,6 +34,10 @@ public class ExportOptions {
 
     private int compressThreshold;
 
+    private boolean inlineDispatch;
+
+    private final Set<String> inlineMethods = new HashSet<>();
+
     public ExportOptions(String service) {
         this.service = service;
     }
@@ -66,4 +73,28 @@ public class ExportOptions {
         return this;
     }
 
+    public boolean isInlineDispatch() {
+        return inlineDispatch;
+    }
+
+    /**
+     * invoke all methods of the service on the event loop, see {@link com.dinstone.focus.annotation.InlineDispatch}.
+     */
+    public ExportOptions setInlineDispatch(boolean inlineDispatch) {
+        this.inlineDispatch = inlineDispatch;
+        return this;
+    }
+
+    public Set<String> getInlineMethods() {
+        return inlineMethods;
+    }
+
+    /**
+     * invoke the method on the event loop, see {@link com.dinstone.focus.annotation.InlineDispatch}.
+     */
+    public ExportOptions addInlineMethod(String methodName) {
+        this.inlineMethods.add(methodName);
+        return this;
+    }
+
 }
@@ -15,6 +15,7 @@
  */
 package com.dinstone.focus.server;
 
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,8 +23,10 @@ import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.dinstone.focus.annotation.InlineDispatch;
 import com.dinstone.focus.compress.Compressor;
 import com.dinstone.focus.compress.CompressorFactory;
+import com.dinstone.focus.config.MethodConfig;
 import com.dinstone.focus.config.ServiceConfig;
 import com.dinstone.focus.exception.FocusException;
 import com.dinstone.focus.invoke.Handler;
@@ -31,6 +34,7 @@ import com.dinstone.focus.naming.DefaultInstance;
 import com.dinstone.focus.naming.ServiceInstance;
 import com.dinstone.focus.serialize.Serializer;
 import com.dinstone.focus.serialize.SerializerFactory;
+import com.dinstone.focus.server.config.ProviderMethodConfig;
 import com.dinstone.focus.server.config.ProviderServiceConfig;
 import com.dinstone.focus.server.invoke.LocalInvokeHandler;
 import com.dinstone.focus.server.invoke.ProviderChainHandler;
@@ -38,6 +42,10 @@ import com.dinstone.focus.server.resolver.DefaultServiceResolver;
 import com.dinstone.focus.transport.AcceptOptions;
 import com.dinstone.focus.transport.Acceptor;
 import com.dinstone.focus.transport.AcceptorFactory;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.transport.local.LocalServices;
+import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.focus.utils.NetworkUtil;
 import com.dinstone.loghub.Logger;
 import com.dinstone.loghub.LoggerFactory;
 
@@ -47,6 +55,8 @@ public class FocusServer implements ServiceExporter, AutoCloseable {
 
     private final Map<String, ServiceConfig> serviceConfigMap = new ConcurrentHashMap<>();
 
+    private final MethodDictionary methodDictionary = new MethodDictionary();
+
     private AcceptorFactory acceptorFactory;
 
     private ServiceResolver serviceResolver;
@@ -108,7 +118,7 @@ public class FocusServer implements ServiceExporter, AutoCloseable {
             }
 
             // startup acceptor
-            this.acceptor.bind(listenAddress, this::lookupService);
+            this.acceptor.bind(listenAddress, methodDictionary);
 
             // register application
             this.serviceResolver.publish(createServiceInstance(serverOptions));
@@ -132,6 +142,9 @@ public class FocusServer implements ServiceExporter, AutoCloseable {
             acceptor.destroy();
             acceptor = null;
         }
+        for (ServiceConfig serviceConfig : serviceConfigMap.values()) {
+            LocalServices.unregister(serviceConfig);
+        }
 
         LOG.info("focus server destroy for [{}]", serverOptions.getApplication());
     }
@@ -172,6 +185,7 @@ public class FocusServer implements ServiceExporter, AutoCloseable {
 
             // create and set method configure
             serviceConfig.parseMethod(clazz.getDeclaredMethods());
+            inlineDispatch(serviceConfig, clazz, instance, exportOptions);
 
             // create invoke handler chain
             serviceConfig.setHandler(createInvokeHandler(serviceConfig));
@@ -204,6 +218,14 @@ public class FocusServer implements ServiceExporter, AutoCloseable {
         instance.setProtocolType(acceptOptions.getProtocol());
         instance.setEnableSsl(acceptOptions.isEnableSsl());
         instance.setMetadata(serverOptions.getMetadata());
+        instance.addMetadata(ConstantUtil.PROCESS_IDENTITY, LocalServices.getProcessIdentity());
+        instance.setMetadata(acceptOptions.getMetadata());
+        // advertise the domain socket to the same host clients
+        String domainSocketPath = acceptOptions.getDomainSocketPath();
+        if (domainSocketPath != null && !domainSocketPath.isEmpty()) {
+            instance.addMetadata(ConstantUtil.DOMAIN_SOCKET_PATH, domainSocketPath);
+            instance.addMetadata(ConstantUtil.HOST_IDENTITY, NetworkUtil.getHostIdentity());
+        }
         return instance;
     }
 
@@ -212,11 +234,35 @@ public class FocusServer implements ServiceExporter, AutoCloseable {
         if (serviceConfigMap.containsKey(serviceName)) {
             throw new RuntimeException("multiple object register with the service name : " + serviceName);
         }
+        // assign method ids before the service is visible
+        methodDictionary.register(serviceConfig);
         serviceConfigMap.putIfAbsent(serviceName, serviceConfig);
+        LocalServices.register(serviceConfig);
     }
 
-    private ServiceConfig lookupService(String serviceName) {
-        return serviceConfigMap.get(serviceName);
+    private void inlineDispatch(ProviderServiceConfig serviceConfig, Class<?> clazz, Object instance,
+            ExportOptions exportOptions) {
+        boolean serviceInline = exportOptions.isInlineDispatch() || clazz.isAnnotationPresent(InlineDispatch.class)
+                || instance.getClass().isAnnotationPresent(InlineDispatch.class);
+        for (MethodConfig methodConfig : serviceConfig.getMethodConfigs()) {
+            Method method = methodConfig.getMethod();
+            boolean inline = serviceInline || exportOptions.getInlineMethods().contains(method.getName())
+                    || method.isAnnotationPresent(InlineDispatch.class);
+            if (!inline) {
+                try {
+                    Method im = instance.getClass().getMethod(method.getName(), method.getParameterTypes());
+                    inline = im.isAnnotationPresent(InlineDispatch.class);
+                } catch (NoSuchMethodException e) {
+                    // ignore
+                }
+            }
+            if (inline) {
+                if (!methodConfig.isAsyncInvoke()) {
+                    LOG.warn("inline dispatch method {} is synchronous, it must not block the event loop", method);
+                }
+                ((ProviderMethodConfig) methodConfig).setInlineDispatch(true);
+            }
+        }
     }
 
     private void protocolCodec(ProviderServiceConfig serviceConfig, ServerOptions serverOptions,
@@ -15,14 +15,57 @@
  */
 package com.dinstone.focus.server.config;
 
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
 import com.dinstone.focus.config.AbstractMethodConfig;
+import com.dinstone.focus.server.invoke.MethodInvoker;
 
 public class ProviderMethodConfig extends AbstractMethodConfig {
 
+    private MethodInvoker invoker;
+
+    private Class<?> boxedParamType;
+
     public ProviderMethodConfig(Method method, Class<?> paramType) {
         super(method, paramType);
+        this.boxedParamType = box(paramType);
+    }
+
+    @Override
+    public void setParamType(Class<?> paramType) {
+        super.setParamType(paramType);
+        this.boxedParamType = box(paramType);
+    }
+
+    /**
+     * the direct invoker of the method
+     *
+     * @return null if the method is inaccessible
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
+    public void setInvoker(MethodInvoker invoker) {
+        this.invoker = invoker;
+    }
+
+    /**
+     * check the parameter is assignable to the parameter type, as the reflective invocation does.
+     */
+    public boolean isAssignable(Object parameter) {
+        if (paramType == null) {
+            return true;
+        }
+        if (parameter == null) {
+            return !paramType.isPrimitive();
+        }
+        return boxedParamType.isInstance(parameter);
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return type == null ? null : MethodType.methodType(type).wrap().returnType();
     }
 
 }
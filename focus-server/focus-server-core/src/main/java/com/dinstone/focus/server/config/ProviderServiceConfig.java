@@ -18,7 +18,7 @@ package com.dinstone.focus.server.config;
 import java.lang.reflect.Method;
 
 import com.dinstone.focus.config.AbstractServiceConfig;
-import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.server.invoke.MethodInvokerFactory;
 
 public class ProviderServiceConfig extends AbstractServiceConfig {
 
@@ -34,8 +34,10 @@ public class ProviderServiceConfig extends AbstractServiceConfig {
 
     public void parseMethod(Method... methods) {
         for (Method method : methods) {
-            MethodConfig methodConfig = parse(method, ProviderMethodConfig::new);
+            ProviderMethodConfig methodConfig = parse(method, ProviderMethodConfig::new);
             if (methodConfig != null) {
+                // bind the direct invoker at export time
+                methodConfig.setInvoker(MethodInvokerFactory.create(method));
                 addMethodConfig(methodConfig);
             }
         }
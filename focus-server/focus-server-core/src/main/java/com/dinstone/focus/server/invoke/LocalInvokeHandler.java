@@ -18,12 +18,15 @@ package com.dinstone.focus.server.invoke;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-import com.dinstone.focus.config.MethodConfig;
 import com.dinstone.focus.config.ServiceConfig;
 import com.dinstone.focus.exception.BusinessException;
 import com.dinstone.focus.exception.ErrorCode;
@@ -31,10 +34,15 @@ import com.dinstone.focus.exception.InvokeException;
 import com.dinstone.focus.exception.ServiceException;
 import com.dinstone.focus.invoke.Handler;
 import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.server.config.ProviderMethodConfig;
 import com.dinstone.focus.server.config.ProviderServiceConfig;
+import com.dinstone.focus.transport.executor.NamedThreadFactory;
 
 public class LocalInvokeHandler implements Handler {
 
+    // shared deadline timer of the async invocations, the cancelled timeouts are removed at once
+    private static final ScheduledThreadPoolExecutor DEADLINE_TIMER = deadlineTimer();
+
     private final ProviderServiceConfig serviceConfig;
 
     public LocalInvokeHandler(ServiceConfig serviceConfig) {
@@ -47,12 +55,18 @@ public class LocalInvokeHandler implements Handler {
         try {
             Object target = serviceConfig.getTarget();
             Object parameter = invocation.getParameter();
-            MethodConfig methodConfig = invocation.getMethodConfig();
-            Object result = methodConfig.getMethod().invoke(target, parameter);
+            ProviderMethodConfig methodConfig = (ProviderMethodConfig) invocation.getMethodConfig();
+            Object result = invoke(methodConfig, target, parameter);
+            if (result instanceof CompletionStage
+                    && (methodConfig.isInlineDispatch() || methodConfig.isAsyncInvoke())) {
+                // never block the thread, complete with the stage or the deadline
+                return chain((CompletionStage<?>) result, invocation.getTimeout());
+            }
             if (methodConfig.isAsyncInvoke() && result instanceof Future) {
+                // a plain future can't be chained, wait for it
                 Future<?> future = (Future<?>) result;
                 int invokeTimeout = invocation.getTimeout();
-                result = future.get(invokeTimeout, TimeUnit.MILLISECONDS);
+                result = invokeTimeout > 0 ? future.get(invokeTimeout, TimeUnit.MILLISECONDS) : future.get();
             }
             return CompletableFuture.completedFuture(result);
         } catch (InvocationTargetException e) {
@@ -84,4 +98,48 @@ public class LocalInvokeHandler implements Handler {
         return cf;
     }
 
+    private Object invoke(ProviderMethodConfig methodConfig, Object target, Object parameter)
+            throws InvocationTargetException, IllegalAccessException {
+        MethodInvoker invoker = methodConfig.getInvoker();
+        if (invoker == null) {
+            throw new IllegalAccessException("method is inaccessible: " + methodConfig.getMethod());
+        }
+        if (!methodConfig.isAssignable(parameter)) {
+            throw new IllegalArgumentException("argument type mismatch: " + methodConfig.getMethod());
+        }
+        try {
+            return invoker.invoke(target, parameter);
+        } catch (Throwable e) {
+            // same as the reflective invocation, the mapping of the error code is unchanged
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private CompletableFuture<Object> chain(CompletionStage<?> stage, int timeoutMillis) {
+        CompletableFuture<Object> cf = new CompletableFuture<Object>();
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> deadline = DEADLINE_TIMER.schedule(() -> cf.completeExceptionally(
+                    new InvokeException(ErrorCode.TIMEOUT_ERROR, "async invoke timeout " + timeoutMillis + "ms")),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            cf.whenComplete((value, error) -> deadline.cancel(false));
+        }
+        stage.whenComplete((value, error) -> {
+            if (error == null) {
+                cf.complete(value);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                        : error;
+                cf.completeExceptionally(new BusinessException(ErrorCode.RUNTIME_ERROR, cause));
+            }
+        });
+        return cf;
+    }
+
+    private static ScheduledThreadPoolExecutor deadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                new NamedThreadFactory("Focus-Deadline", true));
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
 }
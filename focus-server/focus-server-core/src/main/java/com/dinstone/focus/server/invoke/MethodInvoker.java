@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.server.invoke;
+
+/**
+ * direct invoker of the service method, generated at export time.
+ *
+ * @author dinstone
+ */
+@FunctionalInterface
+public interface MethodInvoker {
+
+    /**
+     * invoke the method on the target, the exception thrown by the method is thrown as is.
+     *
+     * @param target
+     *            service instance
+     * @param parameter
+     *            method parameter, ignored by the method without parameter
+     */
+    Object invoke(Object target, Object parameter) throws Throwable;
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.server.invoke;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * generates the {@link MethodInvoker} of the service method. The method is bound by {@code LambdaMetafactory} when
+ * its types are visible to this class loader, so the JIT can inline it like a direct call. Otherwise it falls back to
+ * a method handle.
+ *
+ * @author dinstone
+ */
+public final class MethodInvokerFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodInvokerFactory.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private MethodInvokerFactory() {
+    }
+
+    /**
+     * create the invoker of the method.
+     *
+     * @return null if the method is inaccessible
+     */
+    public static MethodInvoker create(Method method) {
+        if (isLinkable(method)) {
+            try {
+                return lambda(method);
+            } catch (Throwable e) {
+                LOG.debug("can't bind method by lambda metafactory: {}", method, e);
+            }
+        }
+        try {
+            return handle(method);
+        } catch (Throwable e) {
+            LOG.warn("can't bind method by method handle: {}", method, e);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MethodInvoker lambda(Method method) throws Throwable {
+        MethodHandle impl = LOOKUP.unreflect(method);
+        Class<?> targetType = method.getDeclaringClass();
+        Class<?> returnType = method.getReturnType();
+        boolean noResult = returnType == void.class;
+        Class<?> resultType = noResult ? void.class : wrap(returnType);
+
+        if (method.getParameterCount() == 0) {
+            if (noResult) {
+                Consumer<Object> consumer = (Consumer<Object>) spin(impl, Consumer.class, "accept",
+                        MethodType.methodType(void.class, Object.class), MethodType.methodType(void.class, targetType));
+                return (target, parameter) -> {
+                    consumer.accept(target);
+                    return null;
+                };
+            }
+            Function<Object, Object> function = (Function<Object, Object>) spin(impl, Function.class, "apply",
+                    MethodType.methodType(Object.class, Object.class), MethodType.methodType(resultType, targetType));
+            return (target, parameter) -> function.apply(target);
+        }
+
+        Class<?> paramType = wrap(method.getParameterTypes()[0]);
+        if (noResult) {
+            BiConsumer<Object, Object> consumer = (BiConsumer<Object, Object>) spin(impl, BiConsumer.class, "accept",
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    MethodType.methodType(void.class, targetType, paramType));
+            return (target, parameter) -> {
+                consumer.accept(target, parameter);
+                return null;
+            };
+        }
+        BiFunction<Object, Object, Object> function = (BiFunction<Object, Object, Object>) spin(impl,
+                BiFunction.class, "apply", MethodType.methodType(Object.class, Object.class, Object.class),
+                MethodType.methodType(resultType, targetType, paramType));
+        return function::apply;
+    }
+
+    private static Object spin(MethodHandle impl, Class<?> type, String name, MethodType samType,
+            MethodType instantiatedType) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, name, MethodType.methodType(type), samType, impl,
+                instantiatedType);
+        return site.getTarget().invoke();
+    }
+
+    private static MethodInvoker handle(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflect(method);
+        if (method.getParameterCount() == 0) {
+            handle = handle.asType(MethodType.methodType(Object.class, Object.class));
+            handle = MethodHandles.dropArguments(handle, 1, Object.class);
+        } else {
+            handle = handle.asType(MethodType.methodType(Object.class, Object.class, Object.class));
+        }
+        MethodHandle invoker = handle;
+        return (target, parameter) -> invoker.invokeExact(target, parameter);
+    }
+
+    /**
+     * the generated class resolves the method types by this class loader, they must be public and visible to it.
+     */
+    private static boolean isLinkable(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) {
+            return false;
+        }
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isVisible(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, MethodInvokerFactory.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+}
@@ -43,18 +43,17 @@ public class ProviderChainHandler extends ChainHandler {
     }
 
     public CompletableFuture<Object> handle(Invocation invocation) {
-        try (Context context = Context.create()) {
-            ((DefaultInvocation) invocation).context(context);
-
-            // extract propagate baggage from invocation
-            if (invocation.attributes().containsKey(Baggage.PROPAGATE_KEY)) {
-                Baggage baggage = new Baggage();
-                propagator.extract(invocation, baggage);
-                context.put(Baggage.CONTEXT_KEY, baggage);
-            }
-
-            return invokeHandler.handle(invocation);
+        Context context = Context.fork();
+        ((DefaultInvocation) invocation).context(context);
+
+        // extract propagate baggage from invocation
+        if (invocation.attributes().containsKey(Baggage.PROPAGATE_KEY)) {
+            Baggage baggage = new Baggage();
+            propagator.extract(invocation, baggage);
+            context.put(Baggage.KEY, baggage);
         }
+
+        return context.call(() -> invokeHandler.handle(invocation));
     }
 
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.server.invoke;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.dinstone.focus.exception.BusinessException;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.invoke.DefaultInvocation;
+import com.dinstone.focus.server.config.ProviderMethodConfig;
+import com.dinstone.focus.server.config.ProviderServiceConfig;
+
+public class MethodInvokerFactoryTest {
+
+    public interface Calculator {
+
+        int square(int value);
+
+        long count();
+
+        void reset();
+
+        String check(String value) throws IOException;
+
+        String fail(String value);
+    }
+
+    public static class CalculatorImpl implements Calculator {
+
+        private long count;
+
+        @Override
+        public int square(int value) {
+            count++;
+            return value * value;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void reset() {
+            count = 0;
+        }
+
+        @Override
+        public String check(String value) throws IOException {
+            throw new IOException(value);
+        }
+
+        @Override
+        public String fail(String value) {
+            throw new IllegalStateException(value);
+        }
+    }
+
+    interface Hidden {
+
+        String echo(String value);
+    }
+
+    static class HiddenImpl implements Hidden {
+
+        @Override
+        public String echo(String value) {
+            return value;
+        }
+    }
+
+    @Test
+    public void primitiveTest() throws Throwable {
+        CalculatorImpl target = new CalculatorImpl();
+        MethodInvoker square = MethodInvokerFactory.create(Calculator.class.getMethod("square", int.class));
+        MethodInvoker count = MethodInvokerFactory.create(Calculator.class.getMethod("count"));
+        MethodInvoker reset = MethodInvokerFactory.create(Calculator.class.getMethod("reset"));
+
+        Assert.assertEquals(9, square.invoke(target, 3));
+        Assert.assertEquals(1L, count.invoke(target, null));
+        Assert.assertNull(reset.invoke(target, null));
+        Assert.assertEquals(0L, count.invoke(target, null));
+    }
+
+    @Test
+    public void nonPublicTest() throws Throwable {
+        // the hidden type is not visible to the generated class, the method handle is used
+        Method method = Hidden.class.getMethod("echo", String.class);
+        MethodInvoker invoker = MethodInvokerFactory.create(method);
+        Assert.assertNotNull(invoker);
+        Assert.assertEquals("hi", invoker.invoke(new HiddenImpl(), "hi"));
+    }
+
+    @Test
+    public void assignableTest() throws Exception {
+        ProviderMethodConfig square = new ProviderMethodConfig(Calculator.class.getMethod("square", int.class),
+                int.class);
+        Assert.assertTrue(square.isAssignable(3));
+        Assert.assertFalse(square.isAssignable(3L));
+        Assert.assertFalse(square.isAssignable("3"));
+        Assert.assertFalse(square.isAssignable(null));
+
+        ProviderMethodConfig check = new ProviderMethodConfig(Calculator.class.getMethod("check", String.class),
+                String.class);
+        Assert.assertTrue(check.isAssignable(null));
+        Assert.assertFalse(check.isAssignable(3));
+
+        ProviderMethodConfig count = new ProviderMethodConfig(Calculator.class.getMethod("count"), null);
+        Assert.assertTrue(count.isAssignable(null));
+    }
+
+    @Test
+    public void paramErrorTest() throws Exception {
+        ProviderServiceConfig serviceConfig = serviceConfig();
+        LocalInvokeHandler handler = new LocalInvokeHandler(serviceConfig);
+        Assert.assertEquals(25, handler.handle(invocation(serviceConfig, "square", 5)).get());
+        Assert.assertEquals(ErrorCode.PARAM_ERROR, error(handler, invocation(serviceConfig, "square", "5")).getCode());
+        Assert.assertEquals(ErrorCode.PARAM_ERROR, error(handler, invocation(serviceConfig, "square", null)).getCode());
+    }
+
+    @Test
+    public void providerErrorTest() throws Exception {
+        ProviderServiceConfig serviceConfig = serviceConfig();
+        LocalInvokeHandler handler = new LocalInvokeHandler(serviceConfig);
+
+        InvokeException runtime = error(handler, invocation(serviceConfig, "fail", "runtime"));
+        Assert.assertTrue(runtime instanceof BusinessException);
+        Assert.assertEquals(ErrorCode.RUNTIME_ERROR, runtime.getCode());
+        Assert.assertEquals(IllegalStateException.class, runtime.getCause().getClass());
+
+        InvokeException declared = error(handler, invocation(serviceConfig, "check", "declared"));
+        Assert.assertTrue(declared instanceof BusinessException);
+        Assert.assertEquals(ErrorCode.DECLARED_ERROR, declared.getCode());
+        Assert.assertEquals(IOException.class, declared.getCause().getClass());
+    }
+
+    private static ProviderServiceConfig serviceConfig() {
+        ProviderServiceConfig serviceConfig = new ProviderServiceConfig();
+        serviceConfig.setTarget(new CalculatorImpl());
+        serviceConfig.parseMethod(Calculator.class.getDeclaredMethods());
+        return serviceConfig;
+    }
+
+    private static DefaultInvocation invocation(ProviderServiceConfig serviceConfig, String method,
+            Object parameter) {
+        DefaultInvocation invocation = new DefaultInvocation(Calculator.class.getName(), method, parameter);
+        invocation.setMethodConfig(serviceConfig.lookup(method));
+        return invocation;
+    }
+
+    private static InvokeException error(LocalInvokeHandler handler, DefaultInvocation invocation)
+            throws InterruptedException {
+        try {
+            handler.handle(invocation).get();
+        } catch (ExecutionException e) {
+            return (InvokeException) e.getCause();
+        }
+        Assert.fail("no error: " + invocation.getMethod());
+        return null;
+    }
+}
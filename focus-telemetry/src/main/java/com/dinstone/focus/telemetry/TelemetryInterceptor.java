@@ -118,10 +118,10 @@ public class TelemetryInterceptor implements Interceptor {
             span.recordException(error);
         }
         if (context != null) {
-            String link = context.get(ConstantUtil.RPC_LINK);
+            String link = context.get(ConstantUtil.RPC_LINK_KEY);
             span.setAttribute(ConstantUtil.RPC_LINK, link);
 
-            List<ServiceInstance> retryList = context.get(ConstantUtil.RPC_RETRY);
+            List<ServiceInstance> retryList = context.get(ConstantUtil.RPC_RETRY_KEY);
             if (retryList != null) {
                 StringBuilder builder = new StringBuilder();
                 retryList.forEach(instance -> {
@@ -15,6 +15,9 @@
  */
 package com.dinstone.focus.transport;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface AcceptOptions {
     /**
      * default accept options : photon accept options
@@ -42,4 +45,20 @@ public interface AcceptOptions {
     String getProtocol();
 
     public boolean isEnableSsl();
+
+    /**
+     * the unix domain socket path the acceptor also listens on, the same host clients connect to it.
+     *
+     * @return null if the acceptor does not listen on the domain socket
+     */
+    default String getDomainSocketPath() {
+        return null;
+    }
+
+    /**
+     * the transport metadata advertised by the service instance, the connector finds the acceptor by it.
+     */
+    default Map<String, String> getMetadata() {
+        return Collections.emptyMap();
+    }
 }
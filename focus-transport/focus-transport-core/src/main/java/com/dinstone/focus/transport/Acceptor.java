@@ -24,6 +24,13 @@ public interface Acceptor {
 
     void bind(InetSocketAddress serviceAddress, Function<String, ServiceConfig> serviceFinder) throws Exception;
 
+    /**
+     * bind with the method dictionary, the acceptor which knows the method id protocol overrides it.
+     */
+    default void bind(InetSocketAddress serviceAddress, MethodDictionary methodDictionary) throws Exception {
+        bind(serviceAddress, methodDictionary::lookupService);
+    }
+
     void destroy();
 
 }
@@ -16,11 +16,29 @@
 package com.dinstone.focus.transport;
 
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 public interface ExecutorSelector {
 
     Executor select(String s, String m);
 
+    /**
+     * select the executor with the request attributes, the transports call this one so that the selector can route
+     * by an attribute. The default ignores the attributes.
+     *
+     * @param s
+     *            service name
+     * @param m
+     *            method name
+     * @param attributes
+     *            request attribute getter, returns null if absent
+     *
+     * @return the executor, or null for the transport's default
+     */
+    default Executor select(String s, String m, Function<String, String> attributes) {
+        return select(s, m);
+    }
+
     void destroy();
 
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.ServiceException;
+
+/**
+ * server side dictionary of the exported methods. Every method gets a compact id when its service is registered, the
+ * id is handed to the client on the first response of a connection, and the later requests carry only the id, which
+ * resolves to the service and method config by an array index.
+ * <p>
+ * The dictionary is append-only, an id never changes during the life of the server. The services found by the
+ * fallback finder have no id, their requests always carry the names.
+ *
+ * @author dinstone
+ */
+public class MethodDictionary {
+
+    private final Map<String, ServiceConfig> serviceConfigs = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> methodEntries = new ConcurrentHashMap<>();
+
+    private volatile Entry[] entries = new Entry[0];
+
+    private final Function<String, ServiceConfig> serviceFinder;
+
+    public MethodDictionary() {
+        this(null);
+    }
+
+    public MethodDictionary(Function<String, ServiceConfig> serviceFinder) {
+        this.serviceFinder = serviceFinder;
+    }
+
+    /**
+     * register the methods of the service and assign their ids.
+     *
+     * @param serviceConfig
+     */
+    public synchronized void register(ServiceConfig serviceConfig) {
+        String service = serviceConfig.getService();
+        if (serviceConfigs.putIfAbsent(service, serviceConfig) != null) {
+            throw new IllegalStateException("multiple object register with the service name : " + service);
+        }
+
+        List<MethodConfig> methodConfigs = new ArrayList<>(serviceConfig.getMethodConfigs());
+        methodConfigs.sort(Comparator.comparing(MethodConfig::getMethodName));
+
+        Entry[] current = entries;
+        Entry[] appended = Arrays.copyOf(current, current.length + methodConfigs.size());
+        int id = current.length;
+        for (MethodConfig methodConfig : methodConfigs) {
+            Entry entry = new Entry(id, serviceConfig, methodConfig);
+            appended[id++] = entry;
+            methodEntries.put(key(service, methodConfig.getMethodName()), entry);
+        }
+        entries = appended;
+    }
+
+    public ServiceConfig lookupService(String service) {
+        ServiceConfig serviceConfig = serviceConfigs.get(service);
+        if (serviceConfig == null && serviceFinder != null) {
+            serviceConfig = serviceFinder.apply(service);
+        }
+        return serviceConfig;
+    }
+
+    public Entry lookup(int id) {
+        Entry[] current = entries;
+        if (id < 0 || id >= current.length) {
+            return null;
+        }
+        return current[id];
+    }
+
+    public Entry lookup(String service, String method) {
+        return methodEntries.get(key(service, method));
+    }
+
+    /**
+     * resolve the entry of the request, by the method id if the client has learned it, otherwise by the service and
+     * method name.
+     *
+     * @param methodId
+     *            method id header, null if absent
+     * @param service
+     *            service header
+     * @param method
+     *            method header
+     *
+     * @return the resolved entry
+     *
+     * @throws ServiceException
+     *             if the service or method is unknown
+     */
+    public Entry resolve(String methodId, String service, String method) {
+        if (methodId != null) {
+            Entry entry = null;
+            try {
+                entry = lookup(Integer.parseInt(methodId));
+            } catch (NumberFormatException e) {
+                // unknown method id
+            }
+            if (entry == null) {
+                throw new ServiceException(ErrorCode.METHOD_ERROR, "unknown method id: " + methodId);
+            }
+            return entry;
+        }
+
+        Entry entry = lookup(service, method);
+        if (entry != null) {
+            return entry;
+        }
+
+        ServiceConfig serviceConfig = lookupService(service);
+        if (serviceConfig == null) {
+            throw new ServiceException(ErrorCode.SERVICE_ERROR, "unknown service: " + service);
+        }
+        MethodConfig methodConfig = serviceConfig.lookup(method);
+        if (methodConfig == null) {
+            throw new ServiceException(ErrorCode.METHOD_ERROR, "unknown method: " + service + "/" + method);
+        }
+        return new Entry(-1, serviceConfig, methodConfig);
+    }
+
+    private static String key(String service, String method) {
+        return service + "/" + method;
+    }
+
+    public static final class Entry {
+
+        private final int id;
+
+        private final ServiceConfig serviceConfig;
+
+        private final MethodConfig methodConfig;
+
+        private final String idText;
+
+        Entry(int id, ServiceConfig serviceConfig, MethodConfig methodConfig) {
+            this.id = id;
+            this.idText = Integer.toString(id);
+            this.serviceConfig = serviceConfig;
+            this.methodConfig = methodConfig;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return true if the entry is registered with an id
+         */
+        public boolean hasId() {
+            return id >= 0;
+        }
+
+        public String getIdText() {
+            return idText;
+        }
+
+        public ServiceConfig getServiceConfig() {
+            return serviceConfig;
+        }
+
+        public MethodConfig getMethodConfig() {
+            return methodConfig;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry [id=" + id + ", service=" + serviceConfig.getService() + ", method="
+                    + methodConfig.getMethodName() + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.executor;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.dinstone.focus.transport.ExecutorSelector;
+
+/**
+ * executor selector with isolated bounded pools per service or per method, so that a slow method can't starve the
+ * others. The method bulkhead is preferred to the service bulkhead, the request without a bulkhead runs on the
+ * transport's default executor. A full bulkhead rejects the request, the transport replies the overload error.
+ *
+ * <pre>
+ * BulkheadExecutorSelector selector = new BulkheadExecutorSelector();
+ * selector.bulkhead("com.example.ReportService", 4, 16);
+ * selector.bulkhead("com.example.LookupService", "find", 16, 256);
+ * acceptOptions.setExecutorSelector(selector);
+ * </pre>
+ *
+ * @author dinstone
+ */
+public class BulkheadExecutorSelector implements ExecutorSelector {
+
+    private static final String SERVICE_LEVEL = "";
+
+    private final Map<String, Map<String, ThreadPoolExecutor>> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * add a service level bulkhead.
+     *
+     * @param service
+     *            service name
+     * @param threads
+     *            the pool size
+     * @param queueSize
+     *            the queue capacity, a value less than 1 means no queue
+     */
+    public BulkheadExecutorSelector bulkhead(String service, int threads, int queueSize) {
+        return addBulkhead(service, SERVICE_LEVEL, service, threads, queueSize);
+    }
+
+    /**
+     * add a method level bulkhead.
+     *
+     * @param service
+     *            service name
+     * @param method
+     *            method name
+     * @param threads
+     *            the pool size
+     * @param queueSize
+     *            the queue capacity, a value less than 1 means no queue
+     */
+    public BulkheadExecutorSelector bulkhead(String service, String method, int threads, int queueSize) {
+        if (method == null || method.isEmpty()) {
+            throw new IllegalArgumentException("method is empty");
+        }
+        return addBulkhead(service, method, service + "/" + method, threads, queueSize);
+    }
+
+    private BulkheadExecutorSelector addBulkhead(String service, String method, String name, int threads,
+            int queueSize) {
+        if (service == null || service.isEmpty()) {
+            throw new IllegalArgumentException("service is empty");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize)
+                : new SynchronousQueue<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue,
+                new NamedThreadFactory("Bulkhead-" + name));
+        executor.allowCoreThreadTimeOut(true);
+
+        ThreadPoolExecutor previous = bulkheads.computeIfAbsent(service, k -> new ConcurrentHashMap<>())
+                .putIfAbsent(method, executor);
+        if (previous != null) {
+            executor.shutdown();
+            throw new IllegalStateException("bulkhead is exist: " + name);
+        }
+        return this;
+    }
+
+    @Override
+    public Executor select(String s, String m) {
+        Map<String, ThreadPoolExecutor> methods = bulkheads.get(s);
+        if (methods == null) {
+            return null;
+        }
+        ThreadPoolExecutor executor = methods.get(m);
+        if (executor == null) {
+            executor = methods.get(SERVICE_LEVEL);
+        }
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        for (Map<String, ThreadPoolExecutor> methods : bulkheads.values()) {
+            for (ThreadPoolExecutor executor : methods.values()) {
+                executor.shutdown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.executor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * executor selector that runs the requests sharing a routing attribute serially, in arrival order. The key is hashed
+ * to one of the striped serial lanes, the lanes share a worker pool and never hold a lock. The request without the
+ * attribute runs on the transport's default executor.
+ *
+ * <pre>
+ * // the orders of the same account are processed one by one
+ * acceptOptions.setExecutorSelector(new KeyedExecutorSelector("account.id", 64, 8));
+ * </pre>
+ *
+ * @author dinstone
+ */
+public class KeyedExecutorSelector implements ExecutorSelector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedExecutorSelector.class);
+
+    /**
+     * The default max pending tasks of a lane.
+     */
+    public static final int DEFAULT_LANE_PENDING = 1024;
+
+    private final String keyAttribute;
+
+    private final ExecutorService workers;
+
+    private final SerialExecutor[] lanes;
+
+    /**
+     * @param keyAttribute
+     *            the routing attribute name
+     * @param stripes
+     *            the count of the serial lanes
+     * @param threads
+     *            the worker pool size
+     */
+    public KeyedExecutorSelector(String keyAttribute, int stripes, int threads) {
+        this(keyAttribute, stripes, threads, DEFAULT_LANE_PENDING);
+    }
+
+    /**
+     * @param keyAttribute
+     *            the routing attribute name
+     * @param stripes
+     *            the count of the serial lanes
+     * @param threads
+     *            the worker pool size
+     * @param lanePending
+     *            the max pending tasks of a lane, a value less than 1 means no limit
+     */
+    public KeyedExecutorSelector(String keyAttribute, int stripes, int threads, int lanePending) {
+        if (keyAttribute == null || keyAttribute.isEmpty()) {
+            throw new IllegalArgumentException("keyAttribute is empty");
+        }
+        if (stripes < 1 || threads < 1) {
+            throw new IllegalArgumentException("stripes and threads must be greater than 0");
+        }
+        this.keyAttribute = keyAttribute;
+
+        // at most one drain task per lane is queued, the queue is bounded by the stripes
+        this.workers = Executors.newFixedThreadPool(threads, new NamedThreadFactory("Keyed-Worker"));
+        this.lanes = new SerialExecutor[stripes];
+        for (int i = 0; i < stripes; i++) {
+            lanes[i] = new SerialExecutor(workers, lanePending);
+        }
+    }
+
+    @Override
+    public Executor select(String s, String m) {
+        // without attributes there is no key
+        return null;
+    }
+
+    @Override
+    public Executor select(String s, String m, Function<String, String> attributes) {
+        String key = attributes.apply(keyAttribute);
+        if (key == null) {
+            return null;
+        }
+        return lanes[spread(key.hashCode()) % lanes.length];
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdown();
+    }
+
+    /**
+     * runs the tasks one by one on the worker pool. The task is queued before the pending count is increased, so the
+     * drainer always finds a task while the count is positive.
+     */
+    static final class SerialExecutor implements Executor {
+
+        private static final int DRAIN_BATCH = 32;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final Executor executor;
+
+        private final int maxPending;
+
+        SerialExecutor(Executor executor, int maxPending) {
+            this.executor = executor;
+            this.maxPending = maxPending;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (maxPending > 0 && pending.get() >= maxPending) {
+                throw new RejectedExecutionException("lane pending tasks exceed the limit " + maxPending);
+            }
+
+            tasks.offer(command);
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // no drainer is scheduled, take the task back so the caller handles the rejection
+                    tasks.remove(command);
+                    pending.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    Runnable task = tasks.poll();
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        LOG.warn("serial lane task error", e);
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        return;
+                    }
+                }
+                try {
+                    // yield the worker to the other lanes
+                    executor.execute(this::drain);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // the pool is shutting down, finish the lane on this worker
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.executor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * watchdog of the inline dispatch, reports the invocation that holds an event loop longer than the threshold. The
+ * running invocation is reported with the stack of its thread while it still stalls, the finished one with its
+ * duration.
+ *
+ * @author dinstone
+ */
+public class StallWatchdog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StallWatchdog.class);
+
+    private final ThreadLocal<Slot> slots = ThreadLocal.withInitial(this::register);
+
+    private final Queue<Slot> registry = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder stallCount = new LongAdder();
+
+    private final long thresholdNanos;
+
+    private final ScheduledExecutorService checker;
+
+    /**
+     * @param name
+     *            the watchdog name
+     * @param thresholdMillis
+     *            the stall threshold
+     */
+    public StallWatchdog(String name, long thresholdMillis) {
+        if (thresholdMillis <= 0) {
+            throw new IllegalArgumentException("thresholdMillis must be greater than 0");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+
+        long period = Math.max(1, thresholdMillis / 2);
+        this.checker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name, true));
+        this.checker.scheduleAtFixedRate(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private Slot register() {
+        Slot slot = new Slot(Thread.currentThread());
+        registry.add(slot);
+        return slot;
+    }
+
+    /**
+     * mark the current thread running an inline invocation.
+     *
+     * @param name
+     *            the invocation name, its toString is only called on stall
+     */
+    public void enter(Object name) {
+        Slot slot = slots.get();
+        slot.name = name;
+        slot.reported = false;
+        slot.startNanos = System.nanoTime() | 1L;
+    }
+
+    /**
+     * mark the inline invocation of the current thread finished.
+     */
+    public void exit() {
+        Slot slot = slots.get();
+        long startNanos = slot.startNanos;
+        slot.startNanos = 0;
+        if (startNanos == 0) {
+            return;
+        }
+
+        long duration = System.nanoTime() - startNanos;
+        if (duration > thresholdNanos) {
+            if (!slot.reported) {
+                stallCount.increment();
+            }
+            LOG.warn("event loop {} stalled {}ms by inline invocation {}", slot.thread.getName(),
+                    TimeUnit.NANOSECONDS.toMillis(duration), slot.name);
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Slot slot : registry) {
+            if (!slot.thread.isAlive()) {
+                registry.remove(slot);
+                continue;
+            }
+
+            long startNanos = slot.startNanos;
+            if (startNanos != 0 && !slot.reported && now - startNanos > thresholdNanos) {
+                slot.reported = true;
+                stallCount.increment();
+
+                StringBuilder stack = new StringBuilder();
+                for (StackTraceElement element : slot.thread.getStackTrace()) {
+                    stack.append("\n\tat ").append(element);
+                }
+                LOG.warn("event loop {} is stalling {}ms by inline invocation {}{}", slot.thread.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(now - startNanos), slot.name, stack);
+            }
+        }
+    }
+
+    /**
+     * @return the count of the stalled invocations
+     */
+    public long getStallCount() {
+        return stallCount.sum();
+    }
+
+    public void destroy() {
+        checker.shutdownNow();
+    }
+
+    private static final class Slot {
+
+        private final Thread thread;
+
+        private volatile Object name;
+
+        private volatile long startNanos;
+
+        private volatile boolean reported;
+
+        Slot(Thread thread) {
+            this.thread = thread;
+        }
+
+    }
+
+}
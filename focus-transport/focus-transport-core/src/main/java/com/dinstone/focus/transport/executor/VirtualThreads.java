@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.executor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * virtual thread support, resolved by reflection so that the Java 8 baseline still builds and runs.
+ *
+ * @author dinstone
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * create a virtual thread factory, the threads are named with the prefix and a sequence.
+     *
+     * @param prefix
+     *            thread name prefix
+     *
+     * @throws UnsupportedOperationException
+     *             if the running JVM doesn't support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        if (OF_VIRTUAL == null) {
+            throw new UnsupportedOperationException("virtual thread is unsupported, java 21+ is required");
+        }
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("can't create virtual thread factory", e);
+        }
+    }
+
+    /**
+     * create an executor that starts a new virtual thread for each task.
+     *
+     * @param prefix
+     *            thread name prefix
+     *
+     * @throws UnsupportedOperationException
+     *             if the running JVM doesn't support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory threadFactory = newThreadFactory(prefix);
+        Method method = method(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+        if (method == null) {
+            throw new UnsupportedOperationException("virtual thread is unsupported, java 21+ is required");
+        }
+        try {
+            return (ExecutorService) method.invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("can't create virtual thread executor", e);
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+}
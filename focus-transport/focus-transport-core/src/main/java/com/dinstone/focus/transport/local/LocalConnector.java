@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.local;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.invoke.Context;
+import com.dinstone.focus.invoke.DefaultInvocation;
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.naming.ServiceInstance;
+import com.dinstone.focus.serialize.Serializer;
+import com.dinstone.focus.transport.Connector;
+import com.dinstone.focus.utils.ConstantUtil;
+
+/**
+ * in-JVM connector, hands the invocation to the handler of the provider service exported in this JVM. There is no
+ * serialization, compression or socket on the way.
+ * <p>
+ * The parameter and the reply are shared between the consumer and the provider, the deep copy mode copies them by the
+ * serializer of the provider. They are always copied when the consumer and the provider types are different, such as
+ * the generic service or the other class loader.
+ *
+ * @author dinstone
+ */
+public class LocalConnector implements Connector {
+
+    private static final String LOCAL_LINK = "local->local";
+
+    private final boolean deepCopy;
+
+    public LocalConnector(boolean deepCopy) {
+        this.deepCopy = deepCopy;
+    }
+
+    /**
+     * whether the instance is a server of this JVM exporting the invoked service.
+     */
+    public boolean applicable(Invocation invocation, ServiceInstance instance) {
+        return LocalServices.isLocal(instance)
+                && LocalServices.lookup(instance.getServiceName(), invocation.getService()) != null;
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Invocation invocation, ServiceInstance instance) throws Exception {
+        ServiceConfig serviceConfig = LocalServices.lookup(instance.getServiceName(), invocation.getService());
+        if (serviceConfig == null) {
+            // the server is closed, try the next instance
+            throw new ConnectException("local service is not exported: " + invocation.getService());
+        }
+        MethodConfig methodConfig = serviceConfig.lookup(invocation.getMethod());
+        if (methodConfig == null) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(new ServiceException(ErrorCode.METHOD_ERROR,
+                    "unknown method: " + invocation.getService() + "/" + invocation.getMethod()));
+            return future;
+        }
+
+        Serializer serializer = serviceConfig.getSerializer();
+        MethodConfig consumerMethod = invocation.getMethodConfig();
+        Object parameter = copy(serializer, invocation.getParameter(), consumerMethod.getParamType(),
+                methodConfig.getParamType());
+
+        DefaultInvocation localInvocation = new DefaultInvocation(serviceConfig.getService(),
+                methodConfig.getMethodName(), parameter);
+        localInvocation.setConsumer(invocation.getConsumer());
+        localInvocation.setProvider(serviceConfig.getProvider());
+        localInvocation.setTimeout(invocation.getTimeout());
+        localInvocation.setServiceConfig(serviceConfig);
+        localInvocation.setMethodConfig(methodConfig);
+        localInvocation.attributes().putAll(invocation.attributes());
+
+        invocation.context().put(ConstantUtil.RPC_LINK_KEY, LOCAL_LINK);
+
+        // the provider must not see the consumer context, invoke it in a fresh one like the processors do
+        Context context = Context.empty();
+        context.put(ConstantUtil.RPC_LINK_KEY, LOCAL_LINK);
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            context.call(() -> serviceConfig.getHandler().handle(localInvocation)).whenComplete((reply, error) -> {
+                if (error != null) {
+                    future.completeExceptionally(errorHandle(error));
+                } else {
+                    try {
+                        future.complete(
+                                copy(serializer, reply, methodConfig.getReturnType(), consumerMethod.getReturnType()));
+                    } catch (Throwable e) {
+                        future.completeExceptionally(errorHandle(e));
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            future.completeExceptionally(errorHandle(e));
+        }
+        return future;
+    }
+
+    /**
+     * map the provider error like the remote processors do, so it never looks like a connect failure to the caller.
+     */
+    private InvokeException errorHandle(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof InvokeException) {
+            return (InvokeException) error;
+        }
+        return new InvokeException(ErrorCode.INVOKE_ERROR, error);
+    }
+
+    private Object copy(Serializer serializer, Object value, Class<?> sourceType, Class<?> targetType) {
+        if (value == null || targetType == null) {
+            return value;
+        }
+        if (!deepCopy && (targetType.isPrimitive() || targetType.isInstance(value))) {
+            return value;
+        }
+        try {
+            Class<?> contentType = sourceType != null ? sourceType : value.getClass();
+            return serializer.decode(serializer.encode(value, contentType), targetType);
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.CODEC_ERROR, "serialize copy error: " + targetType.getName(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
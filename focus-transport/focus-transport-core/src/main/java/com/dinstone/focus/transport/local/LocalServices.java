@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.local;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.naming.ServiceInstance;
+import com.dinstone.focus.utils.ConstantUtil;
+
+/**
+ * the services exported in this JVM. The servers advertise the process identity in the instance metadata, the
+ * clients of the same process find the provider service here and invoke it without the network.
+ *
+ * @author dinstone
+ */
+public final class LocalServices {
+
+    private static final String PROCESS_IDENTITY = UUID.randomUUID().toString();
+
+    private static final ConcurrentMap<String, ServiceConfig> SERVICES = new ConcurrentHashMap<>();
+
+    private LocalServices() {
+    }
+
+    public static String getProcessIdentity() {
+        return PROCESS_IDENTITY;
+    }
+
+    public static void register(ServiceConfig serviceConfig) {
+        SERVICES.put(key(serviceConfig.getProvider(), serviceConfig.getService()), serviceConfig);
+    }
+
+    public static void unregister(ServiceConfig serviceConfig) {
+        SERVICES.remove(key(serviceConfig.getProvider(), serviceConfig.getService()), serviceConfig);
+    }
+
+    /**
+     * @param provider
+     *            the provider application
+     * @param service
+     *            the service name
+     *
+     * @return null if the service is not exported in this JVM
+     */
+    public static ServiceConfig lookup(String provider, String service) {
+        return SERVICES.get(key(provider, service));
+    }
+
+    /**
+     * whether the instance is a server of this JVM.
+     */
+    public static boolean isLocal(ServiceInstance instance) {
+        Map<String, String> metadata = instance.getMetadata();
+        return metadata != null && PROCESS_IDENTITY.equals(metadata.get(ConstantUtil.PROCESS_IDENTITY));
+    }
+
+    private static String key(String provider, String service) {
+        return provider + "/" + service;
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * lock-free connection pool of one address, shared by the transports. It selects the live connection with the least
+ * load and reconnects the dead slots in the background. The pool grows up to the max size when the selected
+ * connection is busy, and shrinks back to the min size after the idle cooldown. A shrunk connection is closed after
+ * its in-flight requests drained.
+ *
+ * @param <C>
+ *            connection type
+ *
+ * @author dinstone
+ */
+public abstract class ConnectionPool<C> {
+
+    private static final long DRAIN_CHECK_MILLIS = 1000;
+
+    private final AtomicReferenceArray<C> connections;
+
+    private final AtomicReferenceArray<CompletableFuture<C>> connectings;
+
+    private final AtomicInteger poolSize;
+
+    private final Set<C> drainings = ConcurrentHashMap.newKeySet();
+
+    private final int minSize;
+
+    private final long idleCooldown;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long lastBusyTime;
+
+    private ScheduledFuture<?> shrinkFuture;
+
+    /**
+     * @param minSize
+     *            the connections kept after the idle cooldown
+     * @param maxSize
+     *            the max connections
+     * @param idleCooldown
+     *            the idle millis before the pool shrinks, 0 never shrinks
+     * @param scheduler
+     *            runs the shrink and drain checks
+     */
+    protected ConnectionPool(int minSize, int maxSize, long idleCooldown, ScheduledExecutorService scheduler) {
+        this.minSize = Math.max(1, minSize);
+        int size = Math.max(this.minSize, maxSize);
+        this.connections = new AtomicReferenceArray<>(size);
+        this.connectings = new AtomicReferenceArray<>(size);
+        this.poolSize = new AtomicInteger(this.minSize);
+        this.idleCooldown = idleCooldown;
+        this.scheduler = scheduler;
+        if (size > this.minSize && idleCooldown > 0) {
+            this.shrinkFuture = scheduler.scheduleWithFixedDelay(this::shrink, idleCooldown, idleCooldown,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * open a new connection, nothing may block the caller.
+     */
+    protected abstract CompletableFuture<C> connect();
+
+    protected abstract boolean isActive(C connection);
+
+    /**
+     * the load of the connection, the least loaded one is selected.
+     */
+    protected abstract int load(C connection);
+
+    /**
+     * the connection is busy, the pool should grow.
+     */
+    protected abstract boolean isBusy(C connection);
+
+    /**
+     * the connection has no in-flight request, it can be closed.
+     */
+    protected abstract boolean isDrained(C connection);
+
+    protected abstract void close(C connection);
+
+    /**
+     * get the least loaded live connection, the returned future completes with the first connected slot when there
+     * is no live one. The concurrent callers share the connecting futures.
+     */
+    public CompletableFuture<C> acquire() {
+        int length = poolSize.get();
+        // random start, spread the ties between the same loaded connections
+        int start = length == 1 ? 0 : ThreadLocalRandom.current().nextInt(length);
+
+        C selected = null;
+        int selectedLoad = 0;
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            C connection = connections.get(index);
+            if (connection != null && isActive(connection)) {
+                int load = load(connection);
+                if (selected == null || load < selectedLoad) {
+                    selected = connection;
+                    selectedLoad = load;
+                }
+            } else {
+                reconnect(index);
+            }
+        }
+        if (selected != null) {
+            // keep the busy time fresh on a full pool, the shrink checks it
+            if (isBusy(selected)) {
+                lastBusyTime = System.currentTimeMillis();
+                if (length < connections.length()) {
+                    grow(length);
+                }
+            }
+            return CompletableFuture.completedFuture(selected);
+        }
+
+        // no live connection, wait for the connecting slots
+        return awaitConnection(length);
+    }
+
+    /**
+     * the current pool size.
+     */
+    public int size() {
+        return poolSize.get();
+    }
+
+    private CompletableFuture<C> awaitConnection(int size) {
+        List<CompletableFuture<C>> futures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            C connection = connections.get(i);
+            if (connection != null && isActive(connection)) {
+                return CompletableFuture.completedFuture(connection);
+            }
+            futures.add(reconnect(i));
+        }
+        if (futures.size() == 1) {
+            return futures.get(0);
+        }
+
+        // the first connected slot wins, fail with the last error when all failed
+        CompletableFuture<C> first = new CompletableFuture<>();
+        AtomicInteger remains = new AtomicInteger(futures.size());
+        for (CompletableFuture<C> future : futures) {
+            future.whenComplete((connection, error) -> {
+                if (error == null) {
+                    first.complete(connection);
+                } else if (remains.decrementAndGet() == 0) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        return first;
+    }
+
+    private void grow(int size) {
+        if (poolSize.compareAndSet(size, size + 1)) {
+            reconnect(size);
+        }
+    }
+
+    private void shrink() {
+        int size = poolSize.get();
+        if (size <= minSize || System.currentTimeMillis() - lastBusyTime < idleCooldown) {
+            return;
+        }
+        if (poolSize.compareAndSet(size, size - 1)) {
+            // the slot is out of selection, close it after the in-flight requests drained
+            C connection = connections.getAndSet(size - 1, null);
+            if (connection != null) {
+                drain(connection);
+            }
+        }
+    }
+
+    private void drain(C connection) {
+        if (isDrained(connection) || scheduler.isShutdown()) {
+            drainings.remove(connection);
+            close(connection);
+            return;
+        }
+        drainings.add(connection);
+        try {
+            scheduler.schedule(() -> drain(connection), DRAIN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            drainings.remove(connection);
+            close(connection);
+        }
+    }
+
+    private CompletableFuture<C> reconnect(int index) {
+        CompletableFuture<C> future = connectings.get(index);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<C> connecting = new CompletableFuture<>();
+        if (!connectings.compareAndSet(index, null, connecting)) {
+            future = connectings.get(index);
+            return future != null ? future : reconnect(index);
+        }
+
+        CompletableFuture<C> connected;
+        try {
+            connected = connect();
+        } catch (Throwable e) {
+            connected = new CompletableFuture<>();
+            connected.completeExceptionally(e);
+        }
+        connected.whenComplete((connection, error) -> {
+            if (error == null) {
+                C stale = connections.getAndSet(index, connection);
+                if (stale != null) {
+                    close(stale);
+                }
+                if (index >= poolSize.get()) {
+                    // the slot was shrunk while connecting
+                    connections.compareAndSet(index, connection, null);
+                    drain(connection);
+                }
+                connectings.compareAndSet(index, connecting, null);
+                connecting.complete(connection);
+            } else {
+                connectings.compareAndSet(index, connecting, null);
+                connecting.completeExceptionally(error);
+            }
+        });
+        return connecting;
+    }
+
+    /**
+     * close all connections, including the draining ones.
+     */
+    public void destroy() {
+        if (shrinkFuture != null) {
+            shrinkFuture.cancel(false);
+        }
+        for (int i = 0; i < connections.length(); i++) {
+            C connection = connections.getAndSet(i, null);
+            if (connection != null) {
+                close(connection);
+            }
+        }
+        for (C connection : drainings) {
+            drainings.remove(connection);
+            close(connection);
+        }
+    }
+
+}
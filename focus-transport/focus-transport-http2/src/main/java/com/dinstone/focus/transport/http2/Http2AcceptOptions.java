@@ -40,6 +40,36 @@ public class Http2AcceptOptions implements AcceptOptions {
      */
     private static final int DEFAULT_IDLE_TIMEOUT = 30;
 
+    /**
+     * The default limit of the running invocations in the virtual thread mode.
+     */
+    public static final int DEFAULT_VIRTUAL_THREAD_LIMIT = 10000;
+
+    /**
+     * The default stall threshold of the inline dispatch = 100ms.
+     */
+    public static final int DEFAULT_INLINE_STALL_THRESHOLD = 100;
+
+    /**
+     * The default max body size = 64MB.
+     */
+    public static final long DEFAULT_MAX_BODY_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The default initial stream and connection window = 1MB.
+     */
+    public static final int DEFAULT_INITIAL_WINDOW_SIZE = 1024 * 1024;
+
+    /**
+     * The default max window of the auto tuning = 16MB.
+     */
+    public static final int DEFAULT_MAX_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The default max frame size = 16KB.
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024;
+
     private int acceptSize;
     private int workerSize;
     private int acceptBacklog;
@@ -49,12 +79,43 @@ public class Http2AcceptOptions implements AcceptOptions {
 
     private ExecutorSelector executorSelector;
 
+    private boolean virtualThread;
+    private int virtualThreadLimit;
+    private int inlineStallThreshold;
+    private boolean recycleInvocation;
+
+    private long maxBodySize;
+    private int streamThreshold;
+
+    private Http2Transport.Type transportType;
+    private boolean tcpNoDelay;
+    private int busyPoll;
+    private boolean tcpQuickAck;
+    private int tcpFastOpen;
+    private int reusePortListeners;
+
+    private int initialWindowSize;
+    private int maxFrameSize;
+    private int maxConcurrentStreams;
+    private boolean windowAutoTuning;
+    private int maxWindowSize;
+
+    private String domainSocketPath;
+
     public Http2AcceptOptions() {
         acceptSize = DEFAULT_ACCEPT_SIZE;
         workerSize = DEFAULT_WORKER_SIZE;
 
         acceptBacklog = DEFAULT_ACCEPT_BACKLOG;
         idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        virtualThreadLimit = DEFAULT_VIRTUAL_THREAD_LIMIT;
+        inlineStallThreshold = DEFAULT_INLINE_STALL_THRESHOLD;
+        maxBodySize = DEFAULT_MAX_BODY_SIZE;
+        transportType = Http2Transport.Type.AUTO;
+        tcpNoDelay = true;
+        initialWindowSize = DEFAULT_INITIAL_WINDOW_SIZE;
+        maxWindowSize = DEFAULT_MAX_WINDOW_SIZE;
+        maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
     }
 
     public int getAcceptSize() {
@@ -106,6 +167,204 @@ public class Http2AcceptOptions implements AcceptOptions {
         this.executorSelector = executorSelector;
     }
 
+    public boolean isVirtualThread() {
+        return virtualThread;
+    }
+
+    /**
+     * run each invocation on its own virtual thread instead of the event loop, java 21+ is required.
+     */
+    public void setVirtualThread(boolean virtualThread) {
+        this.virtualThread = virtualThread;
+    }
+
+    public int getVirtualThreadLimit() {
+        return virtualThreadLimit;
+    }
+
+    /**
+     * the limit of the running invocations in the virtual thread mode, the request over it is rejected with the
+     * overload error. A value less than 1 means no limit.
+     */
+    public void setVirtualThreadLimit(int virtualThreadLimit) {
+        this.virtualThreadLimit = virtualThreadLimit;
+    }
+
+    public int getInlineStallThreshold() {
+        return inlineStallThreshold;
+    }
+
+    /**
+     * the event loop stall threshold in milliseconds, the inline dispatch invocation running longer is reported. A
+     * value less than 1 disables the watchdog.
+     */
+    public void setInlineStallThreshold(int inlineStallThreshold) {
+        this.inlineStallThreshold = inlineStallThreshold;
+    }
+
+    public boolean isRecycleInvocation() {
+        return recycleInvocation;
+    }
+
+    /**
+     * reuse the server-side invocations on the business threads, the interceptors and services must not keep the
+     * invocation after the call completes.
+     */
+    public void setRecycleInvocation(boolean recycleInvocation) {
+        this.recycleInvocation = recycleInvocation;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * the max body bytes of a stream, the larger body is rejected. A value less than 1 means no limit.
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public int getStreamThreshold() {
+        return streamThreshold;
+    }
+
+    /**
+     * the body declared larger than it is decoded incrementally while the DATA frames arrive, and at most this many
+     * unread bytes are buffered. A value less than 1 always aggregates the whole body.
+     */
+    public void setStreamThreshold(int streamThreshold) {
+        this.streamThreshold = streamThreshold;
+    }
+
+    public Http2Transport.Type getTransportType() {
+        return transportType;
+    }
+
+    /**
+     * the netty transport, AUTO picks the native epoll or io_uring when available and falls back to NIO.
+     */
+    public void setTransportType(Http2Transport.Type transportType) {
+        this.transportType = transportType;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getBusyPoll() {
+        return busyPoll;
+    }
+
+    /**
+     * the SO_BUSY_POLL microseconds of the native transport, 0 is disabled.
+     */
+    public void setBusyPoll(int busyPoll) {
+        this.busyPoll = busyPoll;
+    }
+
+    public boolean isTcpQuickAck() {
+        return tcpQuickAck;
+    }
+
+    /**
+     * enable TCP_QUICKACK of the native transport.
+     */
+    public void setTcpQuickAck(boolean tcpQuickAck) {
+        this.tcpQuickAck = tcpQuickAck;
+    }
+
+    public int getTcpFastOpen() {
+        return tcpFastOpen;
+    }
+
+    /**
+     * the TCP_FASTOPEN pending queue length of the native transport, 0 is disabled.
+     */
+    public void setTcpFastOpen(int tcpFastOpen) {
+        this.tcpFastOpen = tcpFastOpen;
+    }
+
+    public int getReusePortListeners() {
+        return reusePortListeners;
+    }
+
+    /**
+     * bind this many listening sockets with SO_REUSEPORT, each owned by its own accept event loop, the kernel spreads
+     * the new connections across them. A value less than 2 binds one socket.
+     */
+    public void setReusePortListeners(int reusePortListeners) {
+        this.reusePortListeners = reusePortListeners;
+    }
+
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+    /**
+     * the initial flow control window of the streams and the connection.
+     */
+    public void setInitialWindowSize(int initialWindowSize) {
+        this.initialWindowSize = initialWindowSize;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * the SETTINGS_MAX_CONCURRENT_STREAMS advertised to the peer, 0 is no limit.
+     */
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    public boolean isWindowAutoTuning() {
+        return windowAutoTuning;
+    }
+
+    /**
+     * grow the window by the bandwidth-delay product sampled with PING round trips.
+     */
+    public void setWindowAutoTuning(boolean windowAutoTuning) {
+        this.windowAutoTuning = windowAutoTuning;
+    }
+
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * the max window of the auto tuning.
+     */
+    public void setMaxWindowSize(int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    @Override
+    public String getDomainSocketPath() {
+        return domainSocketPath;
+    }
+
+    /**
+     * also listen on the unix domain socket of the path, it needs the epoll transport.
+     */
+    public void setDomainSocketPath(String domainSocketPath) {
+        this.domainSocketPath = domainSocketPath;
+    }
+
     @Override
     public String getProtocol() {
         return "http2";
@@ -15,13 +15,29 @@
  */
 package com.dinstone.focus.transport.http2;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.net.ssl.SSLException;
 
 import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.invoke.InvocationRecycler;
 import com.dinstone.focus.transport.Acceptor;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.transport.executor.LimitedExecutorService;
+import com.dinstone.focus.transport.executor.StallWatchdog;
+import com.dinstone.focus.transport.executor.VirtualThreads;
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
@@ -29,14 +45,14 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
 import io.netty.handler.codec.http2.Http2DataFrame;
 import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
 import io.netty.handler.codec.http2.Http2HeadersFrame;
 import io.netty.handler.codec.http2.Http2MultiplexHandler;
 import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
 import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
@@ -51,14 +67,25 @@ import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 public class Http2Acceptor implements Acceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(Http2Acceptor.class);
     private static final AttributeKey<Http2HeadersFrame> HEADER_KEY = AttributeKey.newInstance("header.key");
+    private static final AttributeKey<Http2BodyCollector> BODY_KEY = AttributeKey.newInstance("body.key");
     private final Http2AcceptOptions acceptOptions;
-    private final NioEventLoopGroup bossGroup;
-    private final NioEventLoopGroup workGroup;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workGroup;
     private final ServerBootstrap bootstrap;
+    private final ExecutorService businessExecutor;
+    private final ExecutorService streamExecutor;
+    private final int stallThreshold;
+    private volatile StallWatchdog stallWatchdog;
+    private final int listeners;
+    private final Http2Transport transport;
+    private EventLoopGroup domainGroup;
+    private Channel domainChannel;
     private Http2Processor messageProcessor;
 
     public Http2Acceptor(Http2AcceptOptions acceptOptions) {
@@ -83,54 +110,208 @@ public class Http2Acceptor implements Acceptor {
             sslContext = null;
         }
 
-        bossGroup = new NioEventLoopGroup(acceptOptions.getAcceptSize(), new DefaultThreadFactory("PAT-Boss"));
-        workGroup = new NioEventLoopGroup(acceptOptions.getWorkerSize(), new DefaultThreadFactory("PAT-Work"));
+        if (acceptOptions.isVirtualThread()) {
+            // one virtual thread per invocation, bounded by the running limit
+            ExecutorService virtualExecutor = VirtualThreads.newThreadPerTaskExecutor("H2A-Virtual");
+            businessExecutor = new LimitedExecutorService(virtualExecutor, acceptOptions.getVirtualThreadLimit());
+        } else {
+            businessExecutor = null;
+        }
+
+        if (acceptOptions.getStreamThreshold() > 0) {
+            // decode the streamed bodies off the event loop when no business executor is selected
+            int size = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DefaultThreadFactory("H2A-Stream"));
+            executor.allowCoreThreadTimeOut(true);
+            streamExecutor = executor;
+        } else {
+            streamExecutor = null;
+        }
+
+        stallThreshold = acceptOptions.getInlineStallThreshold();
+
+        transport = Http2Transport.select(acceptOptions.getTransportType());
+        ChannelOption<Boolean> reusePort = transport.reusePortOption();
+        if (reusePort != null && acceptOptions.getReusePortListeners() > 1) {
+            listeners = acceptOptions.getReusePortListeners();
+        } else {
+            listeners = 1;
+        }
+
+        // one accept event loop per listening socket at least
+        int acceptSize = Math.max(acceptOptions.getAcceptSize(), listeners);
+        bossGroup = transport.newEventLoopGroup(acceptSize, new DefaultThreadFactory("H2A-Boss"));
+        workGroup = transport.newEventLoopGroup(acceptOptions.getWorkerSize(), new DefaultThreadFactory("H2A-Work"));
         bootstrap = new ServerBootstrap().group(bossGroup, workGroup);
-        bootstrap.channel(NioServerSocketChannel.class).childHandler(new ChannelInitializer<SocketChannel>() {
+        bootstrap.channel(transport.getServerChannelClass());
+        socketOptions(transport);
+        if (listeners > 1) {
+            bootstrap.option(reusePort, true);
+        }
+        bootstrap.childHandler(new Http2ChannelInitializer(sslContext));
+    }
 
-            @Override
-            public void initChannel(SocketChannel ch) throws Exception {
-                if (sslContext != null) {
-                    ch.pipeline().addFirst(sslContext.newHandler(ch.alloc()));
-                }
+    private void socketOptions(Http2Transport transport) {
+        if (acceptOptions.getAcceptBacklog() > 0) {
+            bootstrap.option(ChannelOption.SO_BACKLOG, acceptOptions.getAcceptBacklog());
+        }
+        bootstrap.childOption(ChannelOption.TCP_NODELAY, acceptOptions.isTcpNoDelay());
 
-                ch.pipeline().addLast(Http2FrameCodecBuilder.forServer().build());
-                ch.pipeline().addLast(new Http2MultiplexHandler(new Http2StreamHandler()));
-
-                ch.pipeline().addLast(new IdleStateHandler(2 * acceptOptions.getIdleTimeout(), 0, 0));
-                ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
-                    @Override
-                    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
-                        if (evt instanceof IdleStateEvent) {
-                            IdleStateEvent event = (IdleStateEvent) evt;
-                            if (event.state() == IdleState.READER_IDLE) {
-                                ctx.close();
-                            }
-                        } else {
-                            super.userEventTriggered(ctx, evt);
-                        }
-                    }
-                });
-            }
-        });
+        // the native options are ignored by NIO
+        ChannelOption<Integer> busyPoll = transport.nativeOption("SO_BUSY_POLL");
+        if (busyPoll != null && acceptOptions.getBusyPoll() > 0) {
+            bootstrap.childOption(busyPoll, acceptOptions.getBusyPoll());
+        }
+        ChannelOption<Boolean> quickAck = transport.nativeOption("TCP_QUICKACK");
+        if (quickAck != null && acceptOptions.isTcpQuickAck()) {
+            bootstrap.childOption(quickAck, true);
+        }
+        ChannelOption<Integer> fastOpen = transport.nativeOption("TCP_FASTOPEN");
+        if (fastOpen != null && acceptOptions.getTcpFastOpen() > 0) {
+            bootstrap.option(fastOpen, acceptOptions.getTcpFastOpen());
+        }
     }
 
     @Override
     public void bind(InetSocketAddress serviceAddress, Function<String, ServiceConfig> serviceFinder) throws Exception {
-        messageProcessor = new Http2Processor(serviceFinder, acceptOptions.getExecutorSelector());
-        bootstrap.bind(serviceAddress).sync().channel();
+        bind(serviceAddress, new MethodDictionary(serviceFinder));
+    }
+
+    @Override
+    public void bind(InetSocketAddress serviceAddress, MethodDictionary methodDictionary) throws Exception {
+        messageProcessor = new Http2Processor(methodDictionary, acceptOptions.getExecutorSelector(),
+                businessExecutor, this::stallWatchdog, streamExecutor,
+                new InvocationRecycler(acceptOptions.isRecycleInvocation() && !acceptOptions.isVirtualThread()));
+        // the listening sockets are registered to the accept event loops in turn
+        for (int i = 0; i < listeners; i++) {
+            bootstrap.bind(serviceAddress).sync();
+        }
+
+        String domainSocketPath = acceptOptions.getDomainSocketPath();
+        if (domainSocketPath != null && !domainSocketPath.isEmpty()) {
+            bindDomainSocket(domainSocketPath);
+        }
+    }
+
+    /**
+     * listen on the unix domain socket for the same host clients, they skip the loopback TCP stack. The domain
+     * socket is in plain text, the peer is on the same host.
+     */
+    private void bindDomainSocket(String path) throws Exception {
+        Http2Transport domainTransport = Http2Transport.domainSocket();
+        if (domainTransport == null) {
+            LOG.warn("epoll is not available, can't listen on the domain socket {}", path);
+            return;
+        }
+
+        // the socket file of the last run refuses the bind
+        File socketFile = new File(path);
+        if (socketFile.exists() && !socketFile.delete()) {
+            throw new IOException("can't delete the stale domain socket file " + path);
+        }
+
+        ServerBootstrap domainBootstrap = new ServerBootstrap();
+        if (transport.getType() == Http2Transport.Type.EPOLL) {
+            domainBootstrap.group(bossGroup, workGroup);
+        } else {
+            domainGroup = domainTransport.newEventLoopGroup(acceptOptions.getWorkerSize(),
+                    new DefaultThreadFactory("H2A-Domain"));
+            domainBootstrap.group(domainGroup);
+        }
+        domainBootstrap.channel(domainTransport.getServerChannelClass());
+        domainBootstrap.childHandler(new Http2ChannelInitializer(null));
+        domainChannel = domainBootstrap.bind(Http2Transport.domainSocketAddress(path)).sync().channel();
     }
 
     @Override
     public void destroy() {
+        if (domainChannel != null) {
+            domainChannel.close().awaitUninterruptibly();
+            new File(acceptOptions.getDomainSocketPath()).delete();
+        }
+        if (domainGroup != null) {
+            domainGroup.shutdownGracefully();
+        }
         if (bossGroup != null) {
             bossGroup.shutdownGracefully();
         }
         if (workGroup != null) {
             workGroup.shutdownGracefully();
         }
+        if (businessExecutor != null) {
+            businessExecutor.shutdown();
+        }
+        if (streamExecutor != null) {
+            streamExecutor.shutdown();
+        }
+        synchronized (this) {
+            if (stallWatchdog != null) {
+                stallWatchdog.destroy();
+            }
+        }
+    }
+
+    /**
+     * the watchdog is created at the first inline dispatch invocation, null if it is disabled.
+     */
+    private StallWatchdog stallWatchdog() {
+        StallWatchdog watchdog = stallWatchdog;
+        if (watchdog == null && stallThreshold > 0) {
+            synchronized (this) {
+                if (stallWatchdog == null) {
+                    stallWatchdog = new StallWatchdog("H2A-Watchdog", stallThreshold);
+                }
+                watchdog = stallWatchdog;
+            }
+        }
+        return watchdog;
     }
 
+    /**
+     * the pipeline of the accepted TCP and domain socket connections.
+     */
+    private class Http2ChannelInitializer extends ChannelInitializer<Channel> {
+
+        private final SslContext sslContext;
+
+        Http2ChannelInitializer(SslContext sslContext) {
+            this.sslContext = sslContext;
+        }
+
+        @Override
+        public void initChannel(Channel ch) throws Exception {
+            if (sslContext != null) {
+                ch.pipeline().addFirst(sslContext.newHandler(ch.alloc()));
+            }
+
+            Http2Settings settings = Http2WindowTuner.initialSettings(acceptOptions.getInitialWindowSize(),
+                    acceptOptions.getMaxFrameSize(), acceptOptions.getMaxConcurrentStreams());
+            ch.pipeline().addLast(Http2FrameCodecBuilder.forServer().initialSettings(settings).build());
+            ch.pipeline().addLast(new Http2WindowTuner(acceptOptions.getInitialWindowSize(),
+                    acceptOptions.getMaxWindowSize(), acceptOptions.isWindowAutoTuning()));
+            ch.pipeline().addLast(new Http2MultiplexHandler(new Http2StreamHandler()));
+
+            ch.pipeline().addLast(new IdleStateHandler(2 * acceptOptions.getIdleTimeout(), 0, 0));
+            ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+                    if (evt instanceof IdleStateEvent) {
+                        IdleStateEvent event = (IdleStateEvent) evt;
+                        if (event.state() == IdleState.READER_IDLE) {
+                            ctx.close();
+                        }
+                    } else {
+                        super.userEventTriggered(ctx, evt);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * the child channel handler of the streams, assembles the request body of the DATA frames.
+     */
     @Sharable
     public class Http2StreamHandler extends ChannelInboundHandlerAdapter {
 
@@ -139,25 +320,62 @@ public class Http2Acceptor implements Acceptor {
             if (msg instanceof Http2HeadersFrame) {
                 Http2HeadersFrame headersFrame = (Http2HeadersFrame) msg;
                 if (headersFrame.isEndStream()) {
-                    handle(ctx.channel(), headersFrame, null);
+                    messageProcessor.process(ctx.channel(), headersFrame, null);
                 } else {
-                    ctx.channel().attr(HEADER_KEY).set(headersFrame);
+                    begin(ctx.channel(), headersFrame);
                 }
             } else if (msg instanceof Http2DataFrame) {
                 Http2HeadersFrame headersFrame = ctx.channel().attr(HEADER_KEY).get();
-                Http2DataFrame dataFrame = (Http2DataFrame) msg;
+                Http2BodyCollector collector = ctx.channel().attr(BODY_KEY).get();
+                if (collector == null) {
+                    ReferenceCountUtil.release(msg);
+                    return;
+                }
+
+                InputStream body;
                 try {
-                    handle(ctx.channel(), headersFrame, dataFrame);
-                } finally {
-                    dataFrame.release();
+                    // the collector owns the data frame
+                    body = collector.append((Http2DataFrame) msg);
+                } catch (Throwable e) {
+                    messageProcessor.reject(ctx.channel(), e);
+                    return;
+                }
+                if (body != null) {
+                    // the processor closes the body after decoding
+                    messageProcessor.process(ctx.channel(), headersFrame, body);
                 }
             } else {
                 ctx.fireChannelRead(msg);
             }
         }
 
-        private void handle(Channel channel, Http2HeadersFrame headersFrame, Http2DataFrame dataFrame) {
-            messageProcessor.process(channel, headersFrame, dataFrame);
+        private void begin(Channel channel, Http2HeadersFrame headersFrame) {
+            Http2BodyCollector collector = new Http2BodyCollector(channel, acceptOptions.getMaxBodySize(),
+                    acceptOptions.getStreamThreshold());
+            channel.attr(HEADER_KEY).set(headersFrame);
+            channel.attr(BODY_KEY).set(collector);
+
+            InputStream body;
+            try {
+                long timeout = headersFrame.headers().getInt(Invocation.TIMEOUT_KEY, 0);
+                body = collector.begin(headersFrame.headers(), timeout);
+            } catch (Throwable e) {
+                messageProcessor.reject(channel, e);
+                return;
+            }
+            if (body != null) {
+                // large body, decode it while the frames arrive
+                messageProcessor.process(channel, headersFrame, body);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            Http2BodyCollector collector = ctx.channel().attr(BODY_KEY).getAndSet(null);
+            if (collector != null) {
+                collector.abort(new ClosedChannelException());
+            }
+            super.channelInactive(ctx);
         }
 
         @Override
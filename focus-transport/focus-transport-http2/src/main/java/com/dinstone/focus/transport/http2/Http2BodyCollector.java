@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http2;
+
+import java.io.InputStream;
+
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.ServiceException;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Headers;
+
+/**
+ * assembles the DATA frames of one stream. The body is aggregated into a composite buffer until END_STREAM, or is
+ * streamed to the decoder when the declared content length is greater than the stream threshold.
+ *
+ * @author dinstone
+ */
+public class Http2BodyCollector {
+
+    private final Channel channel;
+
+    private final long maxBodySize;
+
+    private final int streamThreshold;
+
+    private CompositeByteBuf composite;
+
+    private Http2BodyStream bodyStream;
+
+    private long bodySize;
+
+    private boolean done;
+
+    /**
+     * @param channel
+     *            the stream channel
+     * @param maxBodySize
+     *            the max body bytes, 0 is no limit
+     * @param streamThreshold
+     *            stream the body greater than it, 0 is always aggregate
+     */
+    public Http2BodyCollector(Channel channel, long maxBodySize, int streamThreshold) {
+        this.channel = channel;
+        this.maxBodySize = maxBodySize;
+        this.streamThreshold = streamThreshold;
+    }
+
+    /**
+     * check the declared content length, and open the body stream if the body is large.
+     *
+     * @return the body stream to decode now, or null if the body is aggregated
+     */
+    public InputStream begin(Http2Headers headers, long readTimeout) {
+        long length = headers.getLong(HttpHeaderNames.CONTENT_LENGTH, -1L);
+        if (maxBodySize > 0 && length > maxBodySize) {
+            done = true;
+            throw tooLarge(length);
+        }
+        if (streamThreshold > 0 && length > streamThreshold) {
+            // keep at most one threshold of unread bytes in memory
+            bodyStream = new Http2BodyStream(channel, streamThreshold, readTimeout);
+            return bodyStream;
+        }
+        return null;
+    }
+
+    /**
+     * append the frame, the collector owns the frame content.
+     *
+     * @return the aggregated body at the end of the stream, or null
+     */
+    public InputStream append(Http2DataFrame dataFrame) {
+        if (done) {
+            dataFrame.release();
+            return null;
+        }
+
+        bodySize += dataFrame.content().readableBytes();
+        if (maxBodySize > 0 && bodySize > maxBodySize) {
+            dataFrame.release();
+            ServiceException error = tooLarge(bodySize);
+            abort(error);
+            throw error;
+        }
+
+        if (bodyStream != null) {
+            done = dataFrame.isEndStream();
+            bodyStream.offer(dataFrame.content(), done);
+            return null;
+        }
+
+        if (composite == null) {
+            composite = channel.alloc().compositeBuffer(Integer.MAX_VALUE);
+        }
+        composite.addComponent(true, dataFrame.content());
+        if (!dataFrame.isEndStream()) {
+            return null;
+        }
+
+        done = true;
+        CompositeByteBuf body = composite;
+        composite = null;
+        // the buffer is released when the decoder closes the stream
+        return new ByteBufInputStream(body, true);
+    }
+
+    /**
+     * the stream ends abnormally, release the aggregated frames or break the body stream.
+     */
+    public void abort(Throwable cause) {
+        done = true;
+        if (composite != null) {
+            composite.release();
+            composite = null;
+        }
+        if (bodyStream != null) {
+            bodyStream.fail(cause);
+        }
+    }
+
+    private ServiceException tooLarge(long size) {
+        return new ServiceException(ErrorCode.CODEC_ERROR,
+                "body size " + size + " exceeds the max body size " + maxBodySize);
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+/**
+ * the body of a stream fed by the DATA frames on the event loop and read by a decoder thread. When the unread bytes
+ * reach the pending limit, the stream stops reading, so the flow control window is not returned and the peer stops
+ * sending until the decoder catches up.
+ *
+ * @author dinstone
+ */
+public class Http2BodyStream extends InputStream {
+
+    private final ArrayDeque<ByteBuf> buffers = new ArrayDeque<>();
+
+    // the decoder may run on a virtual thread, a monitor wait would pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition readable = lock.newCondition();
+
+    private final Channel channel;
+
+    private final long maxPending;
+
+    private final long readTimeout;
+
+    private long pendingBytes;
+
+    private boolean ended;
+
+    private boolean paused;
+
+    private boolean closed;
+
+    private Throwable failure;
+
+    /**
+     * @param channel
+     *            the stream channel
+     * @param maxPending
+     *            the max unread bytes before the stream stops reading
+     * @param readTimeout
+     *            the max milliseconds to wait for the next frame, 0 is no limit
+     */
+    public Http2BodyStream(Channel channel, long maxPending, long readTimeout) {
+        this.channel = channel;
+        this.maxPending = Math.max(1, maxPending);
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * append the frame content, called on the event loop. The stream owns the buffer.
+     */
+    public void offer(ByteBuf content, boolean endStream) {
+        lock.lock();
+        try {
+            if (closed || failure != null) {
+                content.release();
+                return;
+            }
+
+            if (content.isReadable()) {
+                buffers.add(content);
+                pendingBytes += content.readableBytes();
+            } else {
+                content.release();
+            }
+            ended = endStream;
+            if (!ended && !paused && pendingBytes >= maxPending) {
+                paused = true;
+                channel.config().setAutoRead(false);
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * the stream is reset or closed before the end of the body.
+     */
+    public void fail(Throwable cause) {
+        lock.lock();
+        try {
+            if (!ended && failure == null) {
+                failure = cause;
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        boolean resume;
+        int n;
+        lock.lock();
+        try {
+            ByteBuf buffer = await();
+            if (buffer == null) {
+                return -1;
+            }
+            n = Math.min(len, buffer.readableBytes());
+            buffer.readBytes(b, off, n);
+            if (!buffer.isReadable()) {
+                buffers.poll().release();
+            }
+            pendingBytes -= n;
+            // resume reading at half of the limit
+            resume = paused && pendingBytes < maxPending / 2;
+            if (resume) {
+                paused = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeRead();
+        }
+        return n;
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, pendingBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuf await() throws IOException {
+        long remain = TimeUnit.MILLISECONDS.toNanos(readTimeout);
+        while (true) {
+            if (closed) {
+                throw new IOException("body stream is closed");
+            }
+            ByteBuf buffer = buffers.peek();
+            if (buffer != null) {
+                return buffer;
+            }
+            if (ended) {
+                return null;
+            }
+            if (failure != null) {
+                throw new IOException("body stream is broken", failure);
+            }
+
+            try {
+                if (readTimeout <= 0) {
+                    readable.await();
+                } else {
+                    if (remain <= 0) {
+                        throw new IOException("body stream read timeout " + readTimeout + "ms");
+                    }
+                    remain = readable.awaitNanos(remain);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("body stream read interrupted");
+            }
+        }
+    }
+
+    private void resumeRead() {
+        channel.eventLoop().execute(() -> {
+            channel.config().setAutoRead(true);
+        });
+    }
+
+    /**
+     * release the unread buffers, the frames still arriving are discarded.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ByteBuf buffer;
+            while ((buffer = buffers.poll()) != null) {
+                buffer.release();
+            }
+            pendingBytes = 0;
+            paused = false;
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        resumeRead();
+    }
+
+}
@@ -16,53 +16,96 @@
 package com.dinstone.focus.transport.http2;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.dinstone.focus.compress.Compressor;
 import com.dinstone.focus.config.MethodConfig;
 import com.dinstone.focus.config.ServiceConfig;
 import com.dinstone.focus.exception.ErrorCode;
 import com.dinstone.focus.exception.ExceptionUtil;
-import com.dinstone.focus.exception.InvokeException;
 import com.dinstone.focus.exception.ServiceException;
 import com.dinstone.focus.invoke.Invocation;
 import com.dinstone.focus.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
 import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.Http2Connection;
 import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2FrameCodec;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.Http2HeadersFrame;
 import io.netty.handler.codec.http2.Http2StreamChannel;
 import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
 import io.netty.handler.codec.http2.Http2StreamFrame;
-import io.netty.util.AttributeKey;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
 
 public class Http2Channel {
 
-    private static final AttributeKey<Http2HeadersFrame> HEADER_KEY = AttributeKey.newInstance("header.key");
+    private final Channel channel;
 
-    private static final String PATH = "/focus";
+    // method ids learned from the server, only valid on this connection
+    private final Map<MethodConfig, String> methodIds = new ConcurrentHashMap<>();
 
-    private final Channel channel;
+    private final Map<MethodConfig, Http2HeaderCache.Template> templates = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    private final Http2Connection connection;
+
+    private final Http2ConnectOptions connectOptions;
 
-    public Http2Channel(Channel channel) {
+    private final Executor streamExecutor;
+
+    public Http2Channel(Channel channel, Http2ConnectOptions connectOptions, Executor streamExecutor) {
         this.channel = channel;
+        this.connectOptions = connectOptions;
+        this.streamExecutor = streamExecutor;
+
+        Http2FrameCodec frameCodec = channel.pipeline().get(Http2FrameCodec.class);
+        this.connection = frameCodec == null ? null : frameCodec.connection();
     }
 
     public boolean isActive() {
         return channel.isActive();
     }
 
+    public boolean isWritable() {
+        return channel.isWritable();
+    }
+
+    /**
+     * the streams opened and not yet closed on this connection.
+     */
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    /**
+     * the max concurrent streams advertised by the peer's SETTINGS frame.
+     */
+    public int getMaxStreams() {
+        return connection == null ? Integer.MAX_VALUE : connection.local().maxActiveStreams();
+    }
+
     public void destroy() {
         channel.close();
     }
@@ -72,145 +115,251 @@ public class Http2Channel {
         ServiceConfig serviceConfig = invocation.getServiceConfig();
         MethodConfig methodConfig = invocation.getMethodConfig();
 
-        Http2StreamChannelBootstrap streamChannelBootstrap = new Http2StreamChannelBootstrap(channel);
-        Http2StreamChannel streamChannel = streamChannelBootstrap.open().syncUninterruptibly().getNow();
-        streamChannel.pipeline().addLast(new StreamChannelHandler(future, serviceConfig, methodConfig));
-
-        DefaultHttp2Headers headers = new DefaultHttp2Headers();
-        headers.add(Invocation.CONSUMER_KEY, invocation.getConsumer());
-        headers.add(Invocation.PROVIDER_KEY, invocation.getProvider());
-        headers.add(Invocation.SERVICE_KEY, invocation.getService());
-        headers.add(Invocation.METHOD_KEY, invocation.getMethod());
-        headers.addInt(Invocation.TIMEOUT_KEY, invocation.getTimeout());
-        invocation.attributes().forEach((k, v) -> {
+        // encode first, the codec types are carried by the invocation attributes
+        ByteBuf content = encodeContent(invocation, serviceConfig, methodConfig, channel.alloc());
+
+        Http2HeaderCache.Template template = templates.get(methodConfig);
+        if (template == null) {
+            template = templates.computeIfAbsent(methodConfig, k -> new Http2HeaderCache.Template(invocation));
+        }
+        Map<String, String> attributes = invocation.attributes();
+        DefaultHttp2Headers headers = template.newRequestHeaders(invocation.getConsumer(),
+                methodIds.get(methodConfig), attributes.size());
+        headers.addInt(Http2HeaderCache.TIMEOUT_KEY, invocation.getTimeout());
+        attributes.forEach((k, v) -> {
             if (k != null && v != null) {
                 headers.add(k, v);
             }
         });
 
-        headers.path(PATH).method(HttpMethod.POST.toString());
-
-        byte[] content = encodeContent(invocation, serviceConfig, methodConfig);
-        if (content != null) {
-            streamChannel.write(new DefaultHttp2HeadersFrame(headers));
+        // open the stream without blocking, the frames are written on the event loop
+        activeStreams.incrementAndGet();
+        new Http2StreamChannelBootstrap(channel).open().addListener((Future<Http2StreamChannel> openFuture) -> {
+            if (!openFuture.isSuccess()) {
+                activeStreams.decrementAndGet();
+                ReferenceCountUtil.release(content);
+                // nothing is sent, the request can be retried on another instance
+                ConnectException error = new ConnectException("stream open error: " + openFuture.cause());
+                error.initCause(openFuture.cause());
+                future.completeExceptionally(error);
+                return;
+            }
 
-            ByteBufAllocator alloc = streamChannel.alloc();
-            ByteBuf byteBuf = alloc.ioBuffer(content.length).writeBytes(content);
-            streamChannel.writeAndFlush(new DefaultHttp2DataFrame(byteBuf, true));
-        } else {
-            streamChannel.writeAndFlush(new DefaultHttp2HeadersFrame(headers, true));
-        }
+            Http2StreamChannel streamChannel = openFuture.getNow();
+            streamChannel.closeFuture().addListener(f -> activeStreams.decrementAndGet());
+            streamChannel.pipeline()
+                    .addLast(new StreamChannelHandler(future, invocation, methodIds, connectOptions, streamExecutor));
+            if (content != null) {
+                headers.setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+                streamChannel.write(new DefaultHttp2HeadersFrame(headers));
+                streamChannel.writeAndFlush(new DefaultHttp2DataFrame(content, true));
+            } else {
+                streamChannel.writeAndFlush(new DefaultHttp2HeadersFrame(headers, true));
+            }
+        });
 
         return future;
     }
 
-    private byte[] encodeContent(Invocation invocation, ServiceConfig serviceConfig, MethodConfig methodConfig) {
-        byte[] content = null;
-        if (invocation.getParameter() != null) {
+    private ByteBuf encodeContent(Invocation invocation, ServiceConfig serviceConfig, MethodConfig methodConfig,
+            ByteBufAllocator alloc) {
+        if (invocation.getParameter() == null) {
+            return null;
+        }
+
+        // serialize directly into the pooled buffer
+        ByteBuf content = alloc.ioBuffer();
+        try {
+            Serializer serializer = serviceConfig.getSerializer();
+            serializer.encode(invocation.getParameter(), methodConfig.getParamType(), new ByteBufOutputStream(content));
+            invocation.attributes().put(Serializer.TYPE_KEY, serializer.type());
+        } catch (IOException e) {
+            content.release();
+            throw new ServiceException(ErrorCode.CODEC_ERROR,
+                    "serialize encode error: " + methodConfig.getMethodName(), e);
+        } catch (RuntimeException e) {
+            content.release();
+            throw e;
+        }
+
+        Compressor compressor = serviceConfig.getCompressor();
+        if (compressor != null && content.readableBytes() > serviceConfig.getCompressThreshold()) {
+            ByteBuf compressed = alloc.ioBuffer();
             try {
-                Serializer serializer = serviceConfig.getSerializer();
-                content = serializer.encode(invocation.getParameter(), methodConfig.getParamType());
-                invocation.attributes().put(Serializer.TYPE_KEY, serializer.type());
+                compressor.encode(new ByteBufInputStream(content), new ByteBufOutputStream(compressed));
+                invocation.attributes().put(Compressor.TYPE_KEY, compressor.type());
             } catch (IOException e) {
+                compressed.release();
                 throw new ServiceException(ErrorCode.CODEC_ERROR,
-                        "serialize encode error: " + methodConfig.getMethodName(), e);
-            }
-
-            Compressor compressor = serviceConfig.getCompressor();
-            if (compressor != null && content.length > serviceConfig.getCompressThreshold()) {
-                try {
-                    content = compressor.encode(content);
-                    invocation.attributes().put(Compressor.TYPE_KEY, compressor.type());
-                } catch (IOException e) {
-                    throw new ServiceException(ErrorCode.CODEC_ERROR,
-                            "compress encode error: " + methodConfig.getMethodName(), e);
-                }
+                        "compress encode error: " + methodConfig.getMethodName(), e);
+            } catch (RuntimeException e) {
+                compressed.release();
+                throw e;
+            } finally {
+                content.release();
             }
+            content = compressed;
         }
         return content;
     }
 
-    public InetSocketAddress getRemoteAddress() {
-        return (InetSocketAddress) channel.remoteAddress();
+    public SocketAddress getRemoteAddress() {
+        return channel.remoteAddress();
     }
 
-    public InetSocketAddress getLocalAddress() {
-        return (InetSocketAddress) channel.localAddress();
+    public SocketAddress getLocalAddress() {
+        return channel.localAddress();
     }
 
+    /**
+     * the handler of one stream, assembles the response body and completes the invocation future.
+     */
     public static class StreamChannelHandler extends SimpleChannelInboundHandler<Http2StreamFrame> {
 
         private final CompletableFuture<Object> future;
         private final ServiceConfig serviceConfig;
         private final MethodConfig methodConfig;
+        private final Map<MethodConfig, String> methodIds;
+        private final Http2ConnectOptions connectOptions;
+        private final Executor streamExecutor;
+        private final int timeout;
 
-        public StreamChannelHandler(CompletableFuture<Object> future, ServiceConfig serviceConfig,
-                MethodConfig methodConfig) {
+        private Http2HeadersFrame headersFrame;
+        private Http2BodyCollector collector;
+
+        public StreamChannelHandler(CompletableFuture<Object> future, Invocation invocation,
+                Map<MethodConfig, String> methodIds, Http2ConnectOptions connectOptions, Executor streamExecutor) {
             this.future = future;
-            this.serviceConfig = serviceConfig;
-            this.methodConfig = methodConfig;
+            this.serviceConfig = invocation.getServiceConfig();
+            this.methodConfig = invocation.getMethodConfig();
+            this.timeout = invocation.getTimeout();
+            this.methodIds = methodIds;
+            this.connectOptions = connectOptions;
+            this.streamExecutor = streamExecutor;
         }
 
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, Http2StreamFrame msg) {
-            if (msg instanceof Http2HeadersFrame) {
-                Http2HeadersFrame headersFrame = (Http2HeadersFrame) msg;
-                if (headersFrame.isEndStream()) {
-                    handle(headersFrame, null);
+            try {
+                if (msg instanceof Http2HeadersFrame) {
+                    headersFrame = (Http2HeadersFrame) msg;
+                    if (headersFrame.isEndStream()) {
+                        handle(headersFrame, null);
+                    } else {
+                        begin(ctx.channel());
+                    }
+                } else if (msg instanceof Http2DataFrame) {
+                    if (collector == null) {
+                        return;
+                    }
+                    // the collector owns the retained frame
+                    InputStream body = collector.append(((Http2DataFrame) msg).retain());
+                    if (body != null) {
+                        handle(headersFrame, body);
+                    }
                 } else {
-                    ctx.channel().attr(HEADER_KEY).set(headersFrame);
+                    ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
                 }
-            } else if (msg instanceof Http2DataFrame) {
-                Http2HeadersFrame headersFrame = ctx.channel().attr(HEADER_KEY).get();
-                Http2DataFrame dataFrame = (Http2DataFrame) msg;
-                handle(headersFrame, dataFrame);
-            } else {
-                ctx.fireChannelRead(msg);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
             }
         }
 
-        private void handle(Http2HeadersFrame headersFrame, Http2DataFrame dataFrame) {
-            Http2Headers headers = headersFrame.headers();
-            if (headers.status().equals(HttpResponseStatus.OK.codeAsText())) {
-                Object value = null;
-                if (dataFrame != null) {
-                    ByteBuf buf = dataFrame.content();
-                    byte[] content = new byte[buf.readableBytes()];
-                    buf.readBytes(content);
-
-                    CharSequence compressorType = headers.get(Compressor.TYPE_KEY);
-                    Compressor compressor = serviceConfig.getCompressor();
-                    if (compressor != null && compressorType != null) {
+        private void begin(Channel channel) {
+            int streamThreshold = streamExecutor == null ? 0 : connectOptions.getStreamThreshold();
+            collector = new Http2BodyCollector(channel, connectOptions.getMaxBodySize(), streamThreshold);
+            InputStream body = collector.begin(headersFrame.headers(), timeout);
+            if (body != null) {
+                // large body, decode it while the frames arrive
+                Http2HeadersFrame frame = headersFrame;
+                try {
+                    streamExecutor.execute(() -> {
                         try {
-                            content = compressor.decode(content);
-                        } catch (IOException e) {
-                            throw new ServiceException(ErrorCode.CODEC_ERROR,
-                                    "compress decode error: " + methodConfig.getMethodName(), e);
+                            handle(frame, body);
+                        } catch (Throwable e) {
+                            future.completeExceptionally(e);
                         }
+                    });
+                } catch (RuntimeException e) {
+                    close(body);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (collector != null) {
+                collector.abort(new ClosedChannelException());
+            }
+            if (!future.isDone()) {
+                future.completeExceptionally(new ServiceException(ErrorCode.INVOKE_ERROR,
+                        "stream is closed before the response: " + methodConfig.getMethodName()));
+            }
+            super.channelInactive(ctx);
+        }
+
+        private void handle(Http2HeadersFrame headersFrame, InputStream body) {
+            try {
+                Http2Headers headers = headersFrame.headers();
+                if (HttpResponseStatus.OK.codeAsText().contentEquals(headers.status())) {
+                    // learn the method id for the later requests
+                    CharSequence methodId = headers.get(Http2HeaderCache.METHOD_ID_KEY);
+                    if (methodId != null) {
+                        methodIds.put(methodConfig, methodId.toString());
                     }
 
-                    try {
-                        Serializer serializer = serviceConfig.getSerializer();
-                        Class<?> contentType = methodConfig.getReturnType();
-                        value = serializer.decode(content, contentType);
-                    } catch (IOException e) {
-                        throw new ServiceException(ErrorCode.CODEC_ERROR,
-                                "serialize decode error: " + methodConfig.getMethodName(), e);
+                    future.complete(body == null ? null : decode(headers, body));
+                } else {
+                    // error handle
+                    String message = null;
+                    if (body != null) {
+                        byte[] content = Compressor.readBytes(body);
+                        if (content.length > 0) {
+                            message = new String(content, CharsetUtil.UTF_8);
+                        }
                     }
+
+                    int errorCode = headers.getInt(Http2HeaderCache.ERROR_CODE_KEY, 0);
+                    future.complete(ExceptionUtil.invokeException(errorCode, message));
                 }
-                future.complete(value);
-            } else {
-                // error handle
-                String message = null;
-                if (dataFrame != null && dataFrame.content().readableBytes() > 0) {
-                    ByteBuf buf = dataFrame.content();
-                    byte[] content = new byte[buf.readableBytes()];
-                    buf.readBytes(content);
-                    message = new String(content, CharsetUtil.UTF_8);
+            } catch (IOException e) {
+                throw new ServiceException(ErrorCode.CODEC_ERROR, "read error: " + methodConfig.getMethodName(), e);
+            } finally {
+                close(body);
+            }
+        }
+
+        private Object decode(Http2Headers headers, InputStream body) {
+            InputStream input = body;
+            CharSequence compressorType = headers.get(Http2HeaderCache.COMPRESSOR_KEY);
+            Compressor compressor = serviceConfig.getCompressor();
+            if (compressor != null && compressorType != null) {
+                try {
+                    input = compressor.decode(input);
+                } catch (IOException e) {
+                    throw new ServiceException(ErrorCode.CODEC_ERROR,
+                            "compress decode error: " + methodConfig.getMethodName(), e);
                 }
+            }
+
+            try {
+                Serializer serializer = serviceConfig.getSerializer();
+                Class<?> contentType = methodConfig.getReturnType();
+                return serializer.decode(input, contentType);
+            } catch (IOException e) {
+                throw new ServiceException(ErrorCode.CODEC_ERROR,
+                        "serialize decode error: " + methodConfig.getMethodName(), e);
+            }
+        }
 
-                int errorCode = headers.getInt(InvokeException.CODE_KEY, 0);
-                future.complete(ExceptionUtil.invokeException(errorCode, message));
+        private static void close(InputStream body) {
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    // ignore
+                }
             }
         }
 
@@ -16,22 +16,27 @@
 package com.dinstone.focus.transport.http2;
 
 import java.net.ConnectException;
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLException;
 
+import com.dinstone.focus.transport.pool.ConnectionPool;
+
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http2.DefaultHttp2PingFrame;
 import io.netty.handler.codec.http2.Http2FrameCodec;
 import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
@@ -51,28 +56,49 @@ import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 public class Http2ChannelFactory {
 
     private static final DefaultHttp2PingFrame HEARTBEAT = new DefaultHttp2PingFrame(0);
 
-    private final ConcurrentMap<InetSocketAddress, Http2Channel> channelMap;
+    private final ConcurrentMap<SocketAddress, ChannelPool> channelPoolMap;
+
+    private final Http2ConnectOptions connectOptions;
+
+    private final ExecutorService streamExecutor;
 
     private EventLoopGroup workGroup;
 
     private Bootstrap bootstrap;
 
     public Http2ChannelFactory(Http2ConnectOptions connectOptions) {
-        this.channelMap = new ConcurrentHashMap<>();
+        this(connectOptions, Http2Transport.select(connectOptions.getTransportType()));
+    }
+
+    public Http2ChannelFactory(Http2ConnectOptions connectOptions, Http2Transport transport) {
+        this.connectOptions = connectOptions;
+        this.channelPoolMap = new ConcurrentHashMap<>();
+
+        if (connectOptions.getStreamThreshold() > 0) {
+            // decode the streamed response bodies off the event loop
+            int size = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DefaultThreadFactory("H2C-Stream", true));
+            executor.allowCoreThreadTimeOut(true);
+            this.streamExecutor = executor;
+        } else {
+            this.streamExecutor = null;
+        }
 
         try {
-            init(connectOptions);
+            init(connectOptions, transport);
         } catch (SSLException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private void init(Http2ConnectOptions connectOptions) throws SSLException {
+    private void init(Http2ConnectOptions connectOptions, Http2Transport transport) throws SSLException {
         final SslContext sslContext;
         if (connectOptions.isEnableSsl()) {
             SslProvider provider = SslProvider.isAlpnSupported(SslProvider.OPENSSL) ? SslProvider.OPENSSL
@@ -88,22 +114,28 @@ public class Http2ChannelFactory {
             sslContext = null;
         }
 
-        workGroup = new NioEventLoopGroup();
+        workGroup = transport.newEventLoopGroup(0, new DefaultThreadFactory("H2C-Work"));
         bootstrap = new Bootstrap();
         bootstrap.group(workGroup);
-        bootstrap.channel(NioSocketChannel.class);
-        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-        bootstrap.handler(new ChannelInitializer<SocketChannel>() {
+        bootstrap.channel(transport.getChannelClass());
+        bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectOptions.getConnectTimeout());
+        if (!transport.isDomainSocket()) {
+            tcpOptions(connectOptions, transport);
+        }
+        bootstrap.handler(new ChannelInitializer<Channel>() {
 
             @Override
-            public void initChannel(SocketChannel ch) throws Exception {
+            public void initChannel(Channel ch) throws Exception {
                 if (sslContext != null) {
                     ch.pipeline().addFirst(sslContext.newHandler(ch.alloc()));
                 }
 
-                Http2FrameCodec http2FrameCodec = Http2FrameCodecBuilder.forClient()
-                        .initialSettings(Http2Settings.defaultSettings()).build();
+                Http2Settings settings = Http2WindowTuner.initialSettings(connectOptions.getInitialWindowSize(),
+                        connectOptions.getMaxFrameSize(), connectOptions.getMaxConcurrentStreams());
+                Http2FrameCodec http2FrameCodec = Http2FrameCodecBuilder.forClient().initialSettings(settings).build();
                 ch.pipeline().addLast(http2FrameCodec);
+                ch.pipeline().addLast(new Http2WindowTuner(connectOptions.getInitialWindowSize(),
+                        connectOptions.getMaxWindowSize(), connectOptions.isWindowAutoTuning()));
                 ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
 
                 int idleTimeout = connectOptions.getIdleTimeout();
@@ -130,47 +162,113 @@ public class Http2ChannelFactory {
         });
     }
 
-    public Http2Channel create(InetSocketAddress socketAddress) {
-        Http2Channel http2Channel = channelMap.get(socketAddress);
-        if (http2Channel == null || !http2Channel.isActive()) {
-            if (http2Channel != null) {
-                http2Channel.destroy();
-            }
-            http2Channel = channelMap.computeIfAbsent(socketAddress, sa -> {
-                try {
-                    return createChannel(sa);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            });
+    private void tcpOptions(Http2ConnectOptions connectOptions, Http2Transport transport) {
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.option(ChannelOption.TCP_NODELAY, connectOptions.isTcpNoDelay());
+
+        // the native options are ignored by NIO
+        ChannelOption<Integer> busyPoll = transport.nativeOption("SO_BUSY_POLL");
+        if (busyPoll != null && connectOptions.getBusyPoll() > 0) {
+            bootstrap.option(busyPoll, connectOptions.getBusyPoll());
+        }
+        ChannelOption<Boolean> quickAck = transport.nativeOption("TCP_QUICKACK");
+        if (quickAck != null && connectOptions.isTcpQuickAck()) {
+            bootstrap.option(quickAck, true);
+        }
+        ChannelOption<Boolean> fastOpen = transport.nativeOption("TCP_FASTOPEN_CONNECT");
+        if (fastOpen != null && connectOptions.isTcpFastOpen()) {
+            bootstrap.option(fastOpen, true);
         }
-        return http2Channel;
     }
 
-    private Http2Channel createChannel(InetSocketAddress sa) throws Exception {
-        ChannelFuture channelFuture = bootstrap.connect(sa).awaitUninterruptibly();
-        if (!channelFuture.isDone()) {
-            throw new ConnectException("Connect Timeout Exception : " + sa);
+    /**
+     * get the least loaded channel of the address, connect if there is no live one. Nothing blocks, the concurrent
+     * callers share the same connecting future.
+     */
+    public CompletableFuture<Http2Channel> create(SocketAddress socketAddress) {
+        ChannelPool channelPool = channelPoolMap.get(socketAddress);
+        if (channelPool == null) {
+            channelPool = channelPoolMap.computeIfAbsent(socketAddress, ChannelPool::new);
+        }
+        return channelPool.acquire();
+    }
+
+    public void destroy() {
+        for (ChannelPool channelPool : channelPoolMap.values()) {
+            channelPool.destroy();
+        }
+        channelPoolMap.clear();
+        workGroup.shutdownGracefully();
+        if (streamExecutor != null) {
+            streamExecutor.shutdown();
         }
+    }
 
+    private static ConnectException connectError(SocketAddress sa, ChannelFuture channelFuture) {
         if (channelFuture.isCancelled()) {
-            throw new ConnectException("Connect Cancelled Exception : " + sa);
+            return new ConnectException("Connect Cancelled Exception : " + sa);
+        } else if (channelFuture.cause() instanceof ConnectException) {
+            return (ConnectException) channelFuture.cause();
+        } else {
+            return new ConnectException("Connect Exception : " + sa + " " + channelFuture.cause());
         }
+    }
 
-        if (!channelFuture.isSuccess()) {
-            if (channelFuture.cause() instanceof ConnectException) {
-                throw (ConnectException) channelFuture.cause();
-            } else {
-                throw new ConnectException("Connect Exception : " + sa + " " + channelFuture.cause());
-            }
+    /**
+     * http2 connection pool of one address. Streams go to the live connection with the least active streams, the pool
+     * grows when the least loaded one nears the peer's max concurrent streams or is not writable.
+     */
+    class ChannelPool extends ConnectionPool<Http2Channel> {
+
+        private final SocketAddress socketAddress;
+
+        private final double streamLoadFactor;
+
+        public ChannelPool(SocketAddress socketAddress) {
+            super(1, connectOptions.getMaxConnections(), connectOptions.getIdleCooldown(), workGroup);
+            this.socketAddress = socketAddress;
+            this.streamLoadFactor = connectOptions.getStreamLoadFactor();
         }
 
-        return new Http2Channel(channelFuture.channel());
-    }
+        @Override
+        protected CompletableFuture<Http2Channel> connect() {
+            CompletableFuture<Http2Channel> connecting = new CompletableFuture<>();
+            bootstrap.connect(socketAddress).addListener((ChannelFuture channelFuture) -> {
+                if (channelFuture.isSuccess()) {
+                    connecting.complete(new Http2Channel(channelFuture.channel(), connectOptions, streamExecutor));
+                } else {
+                    connecting.completeExceptionally(connectError(socketAddress, channelFuture));
+                }
+            });
+            return connecting;
+        }
+
+        @Override
+        protected boolean isActive(Http2Channel channel) {
+            return channel.isActive();
+        }
+
+        @Override
+        protected int load(Http2Channel channel) {
+            // a connection under write backpressure is only chosen when all are
+            return channel.isWritable() ? channel.getActiveStreams() : Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected boolean isBusy(Http2Channel channel) {
+            return !channel.isWritable() || channel.getActiveStreams() >= channel.getMaxStreams() * streamLoadFactor;
+        }
+
+        @Override
+        protected boolean isDrained(Http2Channel channel) {
+            return channel.getActiveStreams() <= 0;
+        }
+
+        @Override
+        protected void close(Http2Channel channel) {
+            channel.destroy();
+        }
 
-    public void destroy() {
-        channelMap.forEach((k, v) -> v.destroy());
-        workGroup.shutdownGracefully();
     }
 
 }
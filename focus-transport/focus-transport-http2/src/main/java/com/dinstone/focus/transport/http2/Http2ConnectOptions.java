@@ -24,17 +24,115 @@ public class Http2ConnectOptions implements ConnectOptions {
      */
     private static final int DEFAULT_IDLE_TIMEOUT = 30;
 
+    /**
+     * The default connect timeout 3000ms
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+
+    /**
+     * The default max connections per address
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    /**
+     * The default ratio of the peer max concurrent streams to grow the pool
+     */
+    public static final double DEFAULT_STREAM_LOAD_FACTOR = 0.75;
+
+    /**
+     * The default idle cooldown to shrink the pool, 60s
+     */
+    public static final long DEFAULT_IDLE_COOLDOWN = 60 * 1000;
+
+    /**
+     * The default max body size = 64MB
+     */
+    public static final long DEFAULT_MAX_BODY_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The default initial stream and connection window = 1MB
+     */
+    public static final int DEFAULT_INITIAL_WINDOW_SIZE = 1024 * 1024;
+
+    /**
+     * The default max window of the auto tuning = 16MB
+     */
+    public static final int DEFAULT_MAX_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The default max frame size = 16KB
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024;
+
     private boolean enableSsl;
 
     private int idleTimeout;
 
+    private int connectTimeout;
+
+    private int maxConnections;
+
+    private double streamLoadFactor;
+
+    private long idleCooldown;
+
+    private long maxBodySize;
+
+    private int streamThreshold;
+
+    private Http2Transport.Type transportType;
+
+    private boolean tcpNoDelay;
+
+    private int busyPoll;
+
+    private boolean tcpQuickAck;
+
+    private boolean tcpFastOpen;
+
+    private int initialWindowSize;
+
+    private int maxFrameSize;
+
+    private int maxConcurrentStreams;
+
+    private boolean windowAutoTuning;
+
+    private int maxWindowSize;
+
     public Http2ConnectOptions() {
         idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        maxConnections = DEFAULT_MAX_CONNECTIONS;
+        streamLoadFactor = DEFAULT_STREAM_LOAD_FACTOR;
+        idleCooldown = DEFAULT_IDLE_COOLDOWN;
+        maxBodySize = DEFAULT_MAX_BODY_SIZE;
+        transportType = Http2Transport.Type.AUTO;
+        tcpNoDelay = true;
+        initialWindowSize = DEFAULT_INITIAL_WINDOW_SIZE;
+        maxWindowSize = DEFAULT_MAX_WINDOW_SIZE;
+        maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
     }
 
     public Http2ConnectOptions(Http2ConnectOptions other) {
         idleTimeout = other.idleTimeout;
         enableSsl = other.enableSsl;
+        connectTimeout = other.connectTimeout;
+        maxConnections = other.maxConnections;
+        streamLoadFactor = other.streamLoadFactor;
+        idleCooldown = other.idleCooldown;
+        maxBodySize = other.maxBodySize;
+        streamThreshold = other.streamThreshold;
+        transportType = other.transportType;
+        tcpNoDelay = other.tcpNoDelay;
+        busyPoll = other.busyPoll;
+        tcpQuickAck = other.tcpQuickAck;
+        tcpFastOpen = other.tcpFastOpen;
+        initialWindowSize = other.initialWindowSize;
+        maxFrameSize = other.maxFrameSize;
+        maxConcurrentStreams = other.maxConcurrentStreams;
+        windowAutoTuning = other.windowAutoTuning;
+        maxWindowSize = other.maxWindowSize;
     }
 
     public boolean isEnableSsl() {
@@ -53,4 +151,176 @@ public class Http2ConnectOptions implements ConnectOptions {
         this.idleTimeout = idleTimeout;
     }
 
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * the connect timeout in milliseconds.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * the max connections per address, the pool starts with one connection and grows on demand.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public double getStreamLoadFactor() {
+        return streamLoadFactor;
+    }
+
+    /**
+     * grow the pool when the active streams of the least loaded connection reach this ratio of the peer's
+     * SETTINGS_MAX_CONCURRENT_STREAMS.
+     */
+    public void setStreamLoadFactor(double streamLoadFactor) {
+        this.streamLoadFactor = streamLoadFactor;
+    }
+
+    public long getIdleCooldown() {
+        return idleCooldown;
+    }
+
+    /**
+     * shrink the pool one connection per cooldown in milliseconds after the last busy time.
+     */
+    public void setIdleCooldown(long idleCooldown) {
+        this.idleCooldown = idleCooldown;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * the max body bytes of a stream, the larger body is rejected. A value less than 1 means no limit.
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public int getStreamThreshold() {
+        return streamThreshold;
+    }
+
+    /**
+     * the body declared larger than it is decoded incrementally while the DATA frames arrive, and at most this many
+     * unread bytes are buffered. A value less than 1 always aggregates the whole body.
+     */
+    public void setStreamThreshold(int streamThreshold) {
+        this.streamThreshold = streamThreshold;
+    }
+
+    public Http2Transport.Type getTransportType() {
+        return transportType;
+    }
+
+    /**
+     * the netty transport, AUTO picks the native epoll or io_uring when available and falls back to NIO.
+     */
+    public void setTransportType(Http2Transport.Type transportType) {
+        this.transportType = transportType;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getBusyPoll() {
+        return busyPoll;
+    }
+
+    /**
+     * the SO_BUSY_POLL microseconds of the native transport, 0 is disabled.
+     */
+    public void setBusyPoll(int busyPoll) {
+        this.busyPoll = busyPoll;
+    }
+
+    public boolean isTcpQuickAck() {
+        return tcpQuickAck;
+    }
+
+    /**
+     * enable TCP_QUICKACK of the native transport.
+     */
+    public void setTcpQuickAck(boolean tcpQuickAck) {
+        this.tcpQuickAck = tcpQuickAck;
+    }
+
+    public boolean isTcpFastOpen() {
+        return tcpFastOpen;
+    }
+
+    /**
+     * enable TCP_FASTOPEN_CONNECT of the native transport.
+     */
+    public void setTcpFastOpen(boolean tcpFastOpen) {
+        this.tcpFastOpen = tcpFastOpen;
+    }
+
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+    /**
+     * the initial flow control window of the streams and the connection.
+     */
+    public void setInitialWindowSize(int initialWindowSize) {
+        this.initialWindowSize = initialWindowSize;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * the SETTINGS_MAX_CONCURRENT_STREAMS advertised to the peer, 0 is no limit.
+     */
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    public boolean isWindowAutoTuning() {
+        return windowAutoTuning;
+    }
+
+    /**
+     * grow the window by the bandwidth-delay product sampled with PING round trips.
+     */
+    public void setWindowAutoTuning(boolean windowAutoTuning) {
+        this.windowAutoTuning = windowAutoTuning;
+    }
+
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * the max window of the auto tuning.
+     */
+    public void setMaxWindowSize(int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+    }
+
 }
@@ -15,7 +15,10 @@
  */
 package com.dinstone.focus.transport.http2;
 
+import java.net.SocketAddress;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.dinstone.focus.invoke.Invocation;
 import com.dinstone.focus.naming.ServiceInstance;
@@ -25,9 +28,22 @@ import com.dinstone.focus.utils.NetworkUtil;
 
 public class Http2Connector implements Connector {
 
+    // the domain socket path failed to connect is not tried again in the time
+    private static final long DOMAIN_RETRY_MILLIS = 5000;
+
     private final Http2ChannelFactory commonChannelFactory;
     private final Http2ChannelFactory secureChannelFactory;
 
+    private final Http2ConnectOptions domainOptions;
+
+    private final ConcurrentMap<String, SocketAddress> domainAddresses = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> domainRetryTimes = new ConcurrentHashMap<>();
+
+    private volatile Http2ChannelFactory domainChannelFactory;
+
+    private volatile boolean domainUnavailable;
+
     public Http2Connector(Http2ConnectOptions connectOptions) {
         Http2ConnectOptions commonOptions = new Http2ConnectOptions(connectOptions);
         commonOptions.setEnableSsl(false);
@@ -36,21 +52,83 @@ public class Http2Connector implements Connector {
         Http2ConnectOptions secureOptions = new Http2ConnectOptions(connectOptions);
         secureOptions.setEnableSsl(true);
         secureChannelFactory = new Http2ChannelFactory(secureOptions);
+
+        // the same host peer is trusted, the domain socket is in plain text
+        domainOptions = new Http2ConnectOptions(connectOptions);
+        domainOptions.setEnableSsl(false);
     }
 
     @Override
     public CompletableFuture<Object> send(Invocation invocation, ServiceInstance instance) {
         // create connection
-        if (instance.isEnableSsl()) {
-            Http2Channel http2Channel = secureChannelFactory.create(instance.getInstanceAddress());
-            String link = NetworkUtil.link(http2Channel.getLocalAddress(), http2Channel.getRemoteAddress());
-            invocation.context().put(ConstantUtil.RPC_LINK, link);
-            return http2Channel.send(invocation);
-        } else {
-            Http2Channel http2Channel = commonChannelFactory.create(instance.getInstanceAddress());
+        Http2ChannelFactory channelFactory = instance.isEnableSsl() ? secureChannelFactory : commonChannelFactory;
+
+        String domainSocketPath = invocation.context().get(ConstantUtil.RPC_DOMAIN_SOCKET_KEY);
+        Http2ChannelFactory domainFactory = null;
+        if (domainSocketPath != null && isDomainRetryable(domainSocketPath)) {
+            domainFactory = domainChannelFactory();
+        }
+        if (domainFactory == null) {
+            return send(channelFactory.create(instance.getInstanceAddress()), invocation);
+        }
+
+        SocketAddress domainAddress = domainAddresses.computeIfAbsent(domainSocketPath,
+                Http2Transport::domainSocketAddress);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        domainFactory.create(domainAddress).whenComplete((http2Channel, error) -> {
+            CompletableFuture<Http2Channel> channelFuture;
+            if (error == null) {
+                domainRetryTimes.remove(domainSocketPath);
+                channelFuture = CompletableFuture.completedFuture(http2Channel);
+            } else {
+                // the domain socket is not listened, fall back to the TCP connection
+                domainRetryTimes.put(domainSocketPath, System.currentTimeMillis() + DOMAIN_RETRY_MILLIS);
+                channelFuture = channelFactory.create(instance.getInstanceAddress());
+            }
+            send(channelFuture, invocation).whenComplete((result, cause) -> {
+                if (cause != null) {
+                    future.completeExceptionally(cause);
+                } else {
+                    future.complete(result);
+                }
+            });
+        });
+        return future;
+    }
+
+    private CompletableFuture<Object> send(CompletableFuture<Http2Channel> channelFuture, Invocation invocation) {
+        return channelFuture.thenCompose(http2Channel -> {
             String link = NetworkUtil.link(http2Channel.getLocalAddress(), http2Channel.getRemoteAddress());
-            invocation.context().put(ConstantUtil.RPC_LINK, link);
+            invocation.context().put(ConstantUtil.RPC_LINK_KEY, link);
             return http2Channel.send(invocation);
+        });
+    }
+
+    private boolean isDomainRetryable(String domainSocketPath) {
+        Long retryTime = domainRetryTimes.get(domainSocketPath);
+        return retryTime == null || System.currentTimeMillis() >= retryTime;
+    }
+
+    /**
+     * the domain socket channel factory is created at the first same host invocation.
+     *
+     * @return null if epoll is not available
+     */
+    private Http2ChannelFactory domainChannelFactory() {
+        Http2ChannelFactory channelFactory = domainChannelFactory;
+        if (channelFactory != null || domainUnavailable) {
+            return channelFactory;
+        }
+        synchronized (this) {
+            if (domainChannelFactory == null && !domainUnavailable) {
+                Http2Transport transport = Http2Transport.domainSocket();
+                if (transport != null) {
+                    domainChannelFactory = new Http2ChannelFactory(domainOptions, transport);
+                } else {
+                    domainUnavailable = true;
+                }
+            }
+            return domainChannelFactory;
         }
     }
 
@@ -58,6 +136,11 @@ public class Http2Connector implements Connector {
     public void destroy() {
         commonChannelFactory.destroy();
         secureChannelFactory.destroy();
+        synchronized (this) {
+            if (domainChannelFactory != null) {
+                domainChannelFactory.destroy();
+            }
+        }
     }
 
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.serialize.Serializer;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.util.AsciiString;
+
+/**
+ * the cached {@link AsciiString} header names and values of the http2 transport. The hash codes of the cached strings
+ * are computed once, which makes the header building, lookup and HPACK encoding allocation free for the repeated
+ * names and values.
+ *
+ * @author dinstone
+ */
+public final class Http2HeaderCache {
+
+    public static final AsciiString CONSUMER_KEY = AsciiString.cached(Invocation.CONSUMER_KEY);
+
+    public static final AsciiString PROVIDER_KEY = AsciiString.cached(Invocation.PROVIDER_KEY);
+
+    public static final AsciiString SERVICE_KEY = AsciiString.cached(Invocation.SERVICE_KEY);
+
+    public static final AsciiString METHOD_KEY = AsciiString.cached(Invocation.METHOD_KEY);
+
+    public static final AsciiString METHOD_ID_KEY = AsciiString.cached(Invocation.METHOD_ID_KEY);
+
+    public static final AsciiString TIMEOUT_KEY = AsciiString.cached(Invocation.TIMEOUT_KEY);
+
+    public static final AsciiString SERIALIZER_KEY = AsciiString.cached(Serializer.TYPE_KEY);
+
+    public static final AsciiString COMPRESSOR_KEY = AsciiString.cached(Compressor.TYPE_KEY);
+
+    public static final AsciiString ERROR_CODE_KEY = AsciiString.cached(InvokeException.CODE_KEY);
+
+    public static final AsciiString PATH = AsciiString.cached("/focus");
+
+    public static final AsciiString POST = HttpMethod.POST.asciiName();
+
+    /**
+     * the consumer names, method ids and codec types are a small set, stop caching when a caller floods it
+     */
+    private static final int MAX_CACHED = 1024;
+
+    private static final Map<String, AsciiString> STRINGS = new ConcurrentHashMap<>();
+
+    private Http2HeaderCache() {
+    }
+
+    /**
+     * the cached string of a repeated header value, the header names are the constants above. The attribute names are
+     * not cached, they are not trusted.
+     */
+    public static AsciiString of(String text) {
+        AsciiString cached = STRINGS.get(text);
+        if (cached == null) {
+            cached = AsciiString.cached(text);
+            if (STRINGS.size() < MAX_CACHED) {
+                STRINGS.putIfAbsent(text, cached);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * new headers without name validation, only for the trusted constant names.
+     */
+    public static DefaultHttp2Headers newHeaders(int sizeHint) {
+        return new DefaultHttp2Headers(false, sizeHint);
+    }
+
+    /**
+     * the precomputed request headers of a method.
+     */
+    public static final class Template {
+
+        private final AsciiString provider;
+
+        private final AsciiString service;
+
+        private final AsciiString method;
+
+        public Template(Invocation invocation) {
+            this.provider = AsciiString.cached(invocation.getProvider());
+            this.service = AsciiString.cached(invocation.getService());
+            this.method = AsciiString.cached(invocation.getMethod());
+        }
+
+        /**
+         * new request headers of the template, the method id replaces the provider, service and method names. The
+         * names are validated, the invocation attributes are added to them.
+         */
+        public DefaultHttp2Headers newRequestHeaders(String consumer, String methodId, int attributes) {
+            DefaultHttp2Headers headers = new DefaultHttp2Headers(true, attributes + 8);
+            headers.method(POST).path(PATH);
+            headers.add(CONSUMER_KEY, of(consumer));
+            if (methodId != null) {
+                headers.add(METHOD_ID_KEY, of(methodId));
+            } else {
+                headers.add(PROVIDER_KEY, provider);
+                headers.add(SERVICE_KEY, service);
+                headers.add(METHOD_KEY, method);
+            }
+            return headers;
+        }
+
+    }
+
+}
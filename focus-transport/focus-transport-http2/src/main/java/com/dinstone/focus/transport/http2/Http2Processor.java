@@ -16,8 +16,11 @@
 package com.dinstone.focus.transport.http2;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.Executor;
-import java.util.function.Function;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import com.dinstone.focus.compress.Compressor;
 import com.dinstone.focus.config.MethodConfig;
@@ -27,108 +30,159 @@ import com.dinstone.focus.exception.InvokeException;
 import com.dinstone.focus.exception.ServiceException;
 import com.dinstone.focus.invoke.Context;
 import com.dinstone.focus.invoke.DefaultInvocation;
-import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.invoke.HeaderAttributes;
+import com.dinstone.focus.invoke.InvocationRecycler;
 import com.dinstone.focus.serialize.Serializer;
 import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.transport.executor.StallWatchdog;
 import com.dinstone.focus.utils.ConstantUtil;
 import com.dinstone.focus.utils.NetworkUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
 import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
-import io.netty.handler.codec.http2.Http2DataFrame;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.Http2HeadersFrame;
 import io.netty.util.CharsetUtil;
 
 public final class Http2Processor {
 
-    private final Function<String, ServiceConfig> serviceFinder;
+    private final MethodDictionary methodDictionary;
     private final ExecutorSelector executorSelector;
+    private final Executor businessExecutor;
+    // created at the first inline dispatch invocation
+    private final Supplier<StallWatchdog> stallWatchdog;
+    private final Executor streamExecutor;
+    private final InvocationRecycler invocationRecycler;
 
-    public Http2Processor(Function<String, ServiceConfig> serviceFinder, ExecutorSelector executorSelector) {
-        this.serviceFinder = serviceFinder;
+    public Http2Processor(MethodDictionary methodDictionary, ExecutorSelector executorSelector,
+            Executor businessExecutor, Supplier<StallWatchdog> stallWatchdog, Executor streamExecutor,
+            InvocationRecycler invocationRecycler) {
+        this.methodDictionary = methodDictionary;
         this.executorSelector = executorSelector;
+        this.businessExecutor = businessExecutor;
+        this.stallWatchdog = stallWatchdog;
+        this.streamExecutor = streamExecutor;
+        this.invocationRecycler = invocationRecycler;
     }
 
-    private void invoke(Channel channel, Http2HeadersFrame headersFrame, Http2DataFrame dataFrame) {
+    private void invoke(Channel channel, Http2HeadersFrame headersFrame, InputStream body,
+            MethodDictionary.Entry entry) {
         InvokeException exception;
         try {
             Http2Headers headers = headersFrame.headers();
-            // check service
-            String service = headers.get(Invocation.SERVICE_KEY).toString();
-            ServiceConfig serviceConfig = serviceFinder.apply(service);
-            if (serviceConfig == null) {
-                throw new ServiceException(ErrorCode.SERVICE_ERROR, "unknown service: " + service);
-            }
-
-            // check method
-            String methodName = headers.get(Invocation.METHOD_KEY).toString();
-            MethodConfig methodConfig = serviceConfig.lookup(methodName);
-            if (methodConfig == null) {
-                throw new ServiceException(ErrorCode.METHOD_ERROR, "unknown method: " + service + "/" + methodName);
-            }
+            ServiceConfig serviceConfig = entry.getServiceConfig();
+            MethodConfig methodConfig = entry.getMethodConfig();
+            // teach the client the method id if it has not learned yet
+            boolean learn = entry.hasId() && !headers.contains(Http2HeaderCache.METHOD_ID_KEY);
+            MethodDictionary.Entry learnEntry = learn ? entry : null;
 
             // decode invocation from request
-            ByteBuf dataBuf = dataFrame == null ? null : dataFrame.content();
-            Invocation invocation = decode(headers, dataBuf, serviceConfig, methodConfig);
-
-            try (Context context = Context.create()) {
-                // set link
-                String link = NetworkUtil.link(channel.remoteAddress(), channel.localAddress());
-                context.put(ConstantUtil.RPC_LINK, link);
-
-                // invoke invocation
-                serviceConfig.getHandler().handle(invocation).whenComplete((reply, error) -> {
-                    if (error != null) {
-                        errorHandle(channel, error);
-                    } else {
-                        byte[] content = null;
-                        if (reply != null) {
-                            try {
-                                Serializer serializer = serviceConfig.getSerializer();
-                                content = serializer.encode(reply, methodConfig.getReturnType());
-                            } catch (IOException e) {
-                                throw new ServiceException(ErrorCode.CODEC_ERROR,
-                                        "serialize encode error: " + methodConfig.getMethodName(), e);
-                            }
-
-                            Compressor compressor = serviceConfig.getCompressor();
-                            if (compressor != null && content.length > serviceConfig.getCompressThreshold()) {
-                                try {
-                                    content = compressor.encode(content);
-                                } catch (IOException e) {
-                                    throw new ServiceException(ErrorCode.CODEC_ERROR,
-                                            "compress encode error: " + methodConfig.getMethodName(), e);
-                                }
-                            }
-                        }
-
-                        DefaultHttp2Headers h = new DefaultHttp2Headers();
-                        h.status(HttpResponseStatus.OK.codeAsText());
-                        if (content == null) {
-                            channel.writeAndFlush(new DefaultHttp2HeadersFrame(h, true));
-                        } else {
-                            channel.write(new DefaultHttp2HeadersFrame(h, false));
-                            ByteBuf bb = channel.alloc().ioBuffer(content.length).writeBytes(content);
-                            channel.writeAndFlush(new DefaultHttp2DataFrame(bb, true));
-                        }
-                    }
-                });
-            }
+            DefaultInvocation invocation = decode(headers, body, serviceConfig, methodConfig);
+            close(body);
+            body = null;
+
+            Context context = Context.fork();
+            // set link
+            String link = NetworkUtil.link(channel.remoteAddress(), channel.localAddress());
+            context.put(ConstantUtil.RPC_LINK_KEY, link);
+
+            // invoke invocation
+            context.call(() -> serviceConfig.getHandler().handle(invocation)).whenComplete((reply, error) -> {
+                if (error != null) {
+                    errorHandle(channel, error);
+                } else {
+                    replyHandle(channel, reply, serviceConfig, methodConfig, learnEntry);
+                }
+                invocationRecycler.recycle(invocation);
+            });
 
             return;
         } catch (InvokeException e) {
             exception = e;
         } catch (Throwable e) {
             exception = new InvokeException(ErrorCode.INVOKE_ERROR, e);
+        } finally {
+            close(body);
         }
 
         errorHandle(channel, exception);
     }
 
+    private void replyHandle(Channel channel, Object reply, ServiceConfig serviceConfig, MethodConfig methodConfig,
+            MethodDictionary.Entry learnEntry) {
+        DefaultHttp2Headers headers = Http2HeaderCache.newHeaders(4);
+        headers.status(HttpResponseStatus.OK.codeAsText());
+        if (learnEntry != null) {
+            headers.add(Http2HeaderCache.METHOD_ID_KEY, Http2HeaderCache.of(learnEntry.getIdText()));
+        }
+
+        ByteBuf content;
+        try {
+            content = encodeContent(reply, headers, serviceConfig, methodConfig, channel.alloc());
+        } catch (Throwable e) {
+            errorHandle(channel, e);
+            return;
+        }
+
+        if (content == null) {
+            channel.writeAndFlush(new DefaultHttp2HeadersFrame(headers, true));
+        } else {
+            headers.setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            channel.write(new DefaultHttp2HeadersFrame(headers, false));
+            channel.writeAndFlush(new DefaultHttp2DataFrame(content, true));
+        }
+    }
+
+    private ByteBuf encodeContent(Object reply, Http2Headers headers, ServiceConfig serviceConfig,
+            MethodConfig methodConfig, ByteBufAllocator alloc) {
+        if (reply == null) {
+            return null;
+        }
+
+        // serialize directly into the pooled buffer
+        ByteBuf content = alloc.ioBuffer();
+        try {
+            Serializer serializer = serviceConfig.getSerializer();
+            serializer.encode(reply, methodConfig.getReturnType(), new ByteBufOutputStream(content));
+            headers.add(Http2HeaderCache.SERIALIZER_KEY, Http2HeaderCache.of(serializer.type()));
+        } catch (IOException e) {
+            content.release();
+            throw new ServiceException(ErrorCode.CODEC_ERROR,
+                    "serialize encode error: " + methodConfig.getMethodName(), e);
+        } catch (RuntimeException e) {
+            content.release();
+            throw e;
+        }
+
+        Compressor compressor = serviceConfig.getCompressor();
+        if (compressor != null && content.readableBytes() > serviceConfig.getCompressThreshold()) {
+            ByteBuf compressed = alloc.ioBuffer();
+            try {
+                compressor.encode(new ByteBufInputStream(content), new ByteBufOutputStream(compressed));
+                headers.add(Http2HeaderCache.COMPRESSOR_KEY, Http2HeaderCache.of(compressor.type()));
+            } catch (IOException e) {
+                compressed.release();
+                throw new ServiceException(ErrorCode.CODEC_ERROR,
+                        "compress encode error: " + methodConfig.getMethodName(), e);
+            } catch (RuntimeException e) {
+                compressed.release();
+                throw e;
+            } finally {
+                content.release();
+            }
+            content = compressed;
+        }
+        return content;
+    }
+
     private void errorHandle(Channel channel, Throwable error) {
         InvokeException exception;
         if (error instanceof InvokeException) {
@@ -137,13 +191,13 @@ public final class Http2Processor {
             exception = new InvokeException(ErrorCode.INVOKE_ERROR, error);
         }
         // send response with exception
-        DefaultHttp2Headers headers = new DefaultHttp2Headers();
+        DefaultHttp2Headers headers = Http2HeaderCache.newHeaders(2);
         headers.status(HttpResponseStatus.INTERNAL_SERVER_ERROR.codeAsText());
-        headers.setInt(InvokeException.CODE_KEY, exception.getCode().value());
+        headers.setInt(Http2HeaderCache.ERROR_CODE_KEY, exception.getCode().value());
 
         String message = exception.getMessage();
         if (message == null) {
-            channel.write(new DefaultHttp2HeadersFrame(headers, true));
+            channel.writeAndFlush(new DefaultHttp2HeadersFrame(headers, true));
         } else {
             ByteBuf ioBuffer = channel.alloc().ioBuffer();
             ByteBuf buf = ioBuffer.writeBytes(message.getBytes(CharsetUtil.UTF_8));
@@ -153,20 +207,19 @@ public final class Http2Processor {
 
     }
 
-    private Invocation decode(Http2Headers headers, ByteBuf bbc, ServiceConfig serviceConfig,
+    private DefaultInvocation decode(Http2Headers headers, InputStream body, ServiceConfig serviceConfig,
             MethodConfig methodConfig) {
         Object value;
-        if (bbc == null) {
+        if (body == null) {
             value = null;
         } else {
-            byte[] content = new byte[bbc.readableBytes()];
-            bbc.readBytes(content);
-
-            CharSequence compressorType = headers.get(Compressor.TYPE_KEY);
+            // decode from the received body, the body is closed after the invocation is decoded
+            InputStream input = body;
+            CharSequence compressorType = headers.get(Http2HeaderCache.COMPRESSOR_KEY);
             Compressor compressor = serviceConfig.getCompressor();
             if (compressor != null && compressorType != null) {
                 try {
-                    content = compressor.decode(content);
+                    input = compressor.decode(input);
                 } catch (IOException e) {
                     throw new ServiceException(ErrorCode.CODEC_ERROR,
                             "compress decode error: " + methodConfig.getMethodName(), e);
@@ -176,37 +229,136 @@ public final class Http2Processor {
             try {
                 Serializer serializer = serviceConfig.getSerializer();
                 Class<?> contentType = methodConfig.getParamType();
-                value = serializer.decode(content, contentType);
+                value = serializer.decode(input, contentType);
             } catch (IOException e) {
                 throw new ServiceException(ErrorCode.CODEC_ERROR,
                         "serialize decode error: " + methodConfig.getMethodName(), e);
             }
         }
 
-        String service = headers.get(Invocation.SERVICE_KEY).toString();
-        String method = headers.get(Invocation.METHOD_KEY).toString();
-        DefaultInvocation invocation = new DefaultInvocation(service, method, value);
-        invocation.setConsumer(headers.get(Invocation.CONSUMER_KEY, "").toString());
-        invocation.setProvider(headers.get(Invocation.PROVIDER_KEY, "").toString());
-        invocation.setTimeout(headers.getIntAndRemove(Invocation.TIMEOUT_KEY));
+        // the names are omitted when the request carries the method id
+        String service = serviceConfig.getService();
+        String method = methodConfig.getMethodName();
+        CharSequence provider = headers.get(Http2HeaderCache.PROVIDER_KEY);
+        DefaultInvocation invocation = invocationRecycler.acquire(service, method, value);
+        invocation.setConsumer(headers.get(Http2HeaderCache.CONSUMER_KEY, "").toString());
+        invocation.setProvider(provider != null ? provider.toString() : serviceConfig.getProvider());
+        invocation.setTimeout(headers.getIntAndRemove(Http2HeaderCache.TIMEOUT_KEY));
         invocation.setServiceConfig(serviceConfig);
         invocation.setMethodConfig(methodConfig);
-        headers.forEach(e -> invocation.attributes().put(e.getKey().toString(), e.getValue().toString()));
+        invocation.attributes(new RequestAttributes(headers));
         return invocation;
     }
 
-    public void process(Channel channel, Http2HeadersFrame headersFrame, Http2DataFrame dataFrame) {
+    /**
+     * reply the error for the stream rejected before it is processed.
+     */
+    public void reject(Channel channel, Throwable error) {
+        errorHandle(channel, error);
+    }
+
+    /**
+     * process the request, the body is an aggregated buffer or an arriving {@link Http2BodyStream} and is closed
+     * after decoding.
+     */
+    public void process(Channel channel, Http2HeadersFrame headersFrame, InputStream body) {
+        MethodDictionary.Entry entry;
+        try {
+            // resolve by the method id or the names
+            Http2Headers headers = headersFrame.headers();
+            entry = methodDictionary.resolve(text(headers.get(Http2HeaderCache.METHOD_ID_KEY)),
+                    text(headers.get(Http2HeaderCache.SERVICE_KEY)), text(headers.get(Http2HeaderCache.METHOD_KEY)));
+        } catch (Throwable e) {
+            close(body);
+            errorHandle(channel, e);
+            return;
+        }
+
+        boolean streaming = body instanceof Http2BodyStream;
+        if (!streaming && entry.getMethodConfig().isInlineDispatch()) {
+            // non-blocking method, invoke on the event loop
+            invokeInline(channel, headersFrame, body, entry);
+            return;
+        }
+
         Executor executor = null;
         if (executorSelector != null) {
+            String s = entry.getServiceConfig().getService();
+            String m = entry.getMethodConfig().getMethodName();
             Http2Headers headers = headersFrame.headers();
-            String s = headers.get(Invocation.SERVICE_KEY).toString();
-            String m = headers.get(Invocation.METHOD_KEY).toString();
-            executor = executorSelector.select(s, m);
+            executor = executorSelector.select(s, m, k -> text(headers.get(k)));
+        }
+        if (executor == null) {
+            executor = businessExecutor;
+        }
+        if (executor == null && streaming) {
+            // the streamed body blocks the decoder, never decode it on the event loop
+            executor = streamExecutor;
         }
         if (executor != null) {
-            executor.execute(() -> invoke(channel, headersFrame, dataFrame));
+            try {
+                executor.execute(() -> invoke(channel, headersFrame, body, entry));
+            } catch (RejectedExecutionException e) {
+                close(body);
+                errorHandle(channel, new ServiceException(ErrorCode.OVERLOAD_ERROR, "server is overload"));
+            } catch (RuntimeException e) {
+                close(body);
+                throw e;
+            }
         } else {
-            invoke(channel, headersFrame, dataFrame);
+            invoke(channel, headersFrame, body, entry);
+        }
+    }
+
+    private void invokeInline(Channel channel, Http2HeadersFrame headersFrame, InputStream body,
+            MethodDictionary.Entry entry) {
+        StallWatchdog watchdog = stallWatchdog.get();
+        if (watchdog == null) {
+            invoke(channel, headersFrame, body, entry);
+            return;
+        }
+
+        watchdog.enter(entry);
+        try {
+            invoke(channel, headersFrame, body, entry);
+        } finally {
+            watchdog.exit();
+        }
+    }
+
+    private static void close(InputStream body) {
+        if (body != null) {
+            try {
+                body.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static String text(CharSequence value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * invocation attributes view of the request headers.
+     */
+    private static final class RequestAttributes extends HeaderAttributes {
+
+        private final Http2Headers headers;
+
+        RequestAttributes(Http2Headers headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        protected String header(String name) {
+            return text(headers.get(name));
+        }
+
+        @Override
+        protected void forEachHeader(BiConsumer<String, String> action) {
+            headers.forEach(e -> action.accept(e.getKey().toString(), e.getValue().toString()));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http2;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * the netty transport of the http2 acceptor and connector. The native transports are optional dependencies and are
+ * loaded by reflection, the selection falls back to NIO when they are not available.
+ *
+ * @author dinstone
+ */
+public final class Http2Transport {
+
+    public enum Type {
+        /**
+         * epoll if available, then io_uring, then NIO
+         */
+        AUTO,
+
+        NIO,
+
+        EPOLL,
+
+        IO_URING
+    }
+
+    private static final String EPOLL_PACKAGE = "io.netty.channel.epoll.";
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    private static final Http2Transport NIO = new Http2Transport(Type.NIO, NioEventLoopGroup.class,
+            NioServerSocketChannel.class, NioSocketChannel.class, null, false);
+
+    private final Type type;
+
+    private final Class<?> groupClass;
+
+    private final Class<? extends ServerChannel> serverChannelClass;
+
+    private final Class<? extends Channel> channelClass;
+
+    private final Class<?> optionClass;
+
+    private final boolean domainSocket;
+
+    private Http2Transport(Type type, Class<?> groupClass, Class<? extends ServerChannel> serverChannelClass,
+            Class<? extends Channel> channelClass, Class<?> optionClass, boolean domainSocket) {
+        this.type = type;
+        this.groupClass = groupClass;
+        this.serverChannelClass = serverChannelClass;
+        this.channelClass = channelClass;
+        this.optionClass = optionClass;
+        this.domainSocket = domainSocket;
+    }
+
+    /**
+     * select the transport of the type, the unavailable native transport falls back to NIO.
+     */
+    public static Http2Transport select(Type type) {
+        Http2Transport transport = null;
+        if (type == Type.EPOLL) {
+            transport = load(Type.EPOLL, EPOLL_PACKAGE, "Epoll");
+        } else if (type == Type.IO_URING) {
+            transport = load(Type.IO_URING, IO_URING_PACKAGE, "IOUring");
+        } else if (type == null || type == Type.AUTO) {
+            transport = load(Type.EPOLL, EPOLL_PACKAGE, "Epoll");
+            if (transport == null) {
+                transport = load(Type.IO_URING, IO_URING_PACKAGE, "IOUring");
+            }
+        }
+        return transport != null ? transport : NIO;
+    }
+
+    /**
+     * the unix domain socket transport of epoll.
+     *
+     * @return null if epoll is not available
+     */
+    public static Http2Transport domainSocket() {
+        return load(Type.EPOLL, EPOLL_PACKAGE, "Epoll", "DomainSocketChannel");
+    }
+
+    /**
+     * the domain socket address of the path.
+     */
+    public static SocketAddress domainSocketAddress(String path) {
+        try {
+            Class<?> addressClass = Class.forName("io.netty.channel.unix.DomainSocketAddress", true,
+                    Http2Transport.class.getClassLoader());
+            return (SocketAddress) addressClass.getConstructor(String.class).newInstance(path);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("can't create domain socket address " + path, e);
+        }
+    }
+
+    private static Http2Transport load(Type type, String pkg, String prefix) {
+        return load(type, pkg, prefix, "SocketChannel");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Http2Transport load(Type type, String pkg, String prefix, String channel) {
+        try {
+            ClassLoader loader = Http2Transport.class.getClassLoader();
+            Method available = Class.forName(pkg + prefix, true, loader).getMethod("isAvailable");
+            if (!(Boolean) available.invoke(null)) {
+                return null;
+            }
+
+            Class<?> groupClass = Class.forName(pkg + prefix + "EventLoopGroup", true, loader);
+            Class<? extends ServerChannel> serverChannelClass = (Class<? extends ServerChannel>) Class
+                    .forName(pkg + prefix + "Server" + channel, true, loader);
+            Class<? extends Channel> channelClass = (Class<? extends Channel>) Class
+                    .forName(pkg + prefix + channel, true, loader);
+            Class<?> optionClass = Class.forName(pkg + prefix + "ChannelOption", true, loader);
+            boolean domainSocket = !"SocketChannel".equals(channel);
+            return new Http2Transport(type, groupClass, serverChannelClass, channelClass, optionClass,
+                    domainSocket);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isDomainSocket() {
+        return domainSocket;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        try {
+            Constructor<?> constructor = groupClass.getConstructor(int.class, ThreadFactory.class);
+            return (EventLoopGroup) constructor.newInstance(threads, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("can't create " + type + " event loop group", e);
+        }
+    }
+
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        return serverChannelClass;
+    }
+
+    public Class<? extends Channel> getChannelClass() {
+        return channelClass;
+    }
+
+    /**
+     * the SO_REUSEPORT option of the native transport, or of NIO on the JDK 9+.
+     *
+     * @return null if the transport does not support it
+     */
+    @SuppressWarnings("unchecked")
+    public ChannelOption<Boolean> reusePortOption() {
+        if (optionClass != null) {
+            return nativeOption("SO_REUSEPORT");
+        }
+        try {
+            Object option = StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+            return NioChannelOption.of((SocketOption<Boolean>) option);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * the native channel option of the name, such as TCP_QUICKACK, SO_BUSY_POLL, TCP_FASTOPEN and
+     * TCP_FASTOPEN_CONNECT.
+     *
+     * @return null if the transport does not support it
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ChannelOption<T> nativeOption(String name) {
+        if (optionClass == null) {
+            return null;
+        }
+        try {
+            return (ChannelOption<T>) optionClass.getField(name).get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+}
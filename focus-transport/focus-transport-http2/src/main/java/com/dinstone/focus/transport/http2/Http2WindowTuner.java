@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http2;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http2.DefaultHttp2PingFrame;
+import io.netty.handler.codec.http2.DefaultHttp2SettingsFrame;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2PingFrame;
+import io.netty.handler.codec.http2.Http2Settings;
+
+/**
+ * tunes the flow control window of a connection, sits between the frame codec and the multiplex handler. It opens the
+ * connection window to the initial window, and in the auto tuning mode samples the bandwidth-delay product: the bytes
+ * received during a PING round trip. When a sample fills two thirds of the window, the stream and connection windows
+ * grow to twice the sample, up to the max window. The sampling PING carries its own payload, so it never mixes with the
+ * heartbeat PING.
+ *
+ * @author dinstone
+ */
+public class Http2WindowTuner extends ChannelInboundHandlerAdapter {
+
+    private static final long BDP_PING = 0x62647050696e6721L;
+
+    private final int maxWindow;
+
+    private final boolean autoTuning;
+
+    private int window;
+
+    private boolean pinging;
+
+    private long sampleBytes;
+
+    public Http2WindowTuner(int initialWindow, int maxWindow, boolean autoTuning) {
+        this.window = Math.max(initialWindow, Http2CodecUtil.DEFAULT_WINDOW_SIZE);
+        this.maxWindow = Math.max(maxWindow, window);
+        this.autoTuning = autoTuning;
+    }
+
+    /**
+     * create the initial settings of the codec.
+     */
+    public static Http2Settings initialSettings(int initialWindow, int maxFrameSize, int maxConcurrentStreams) {
+        Http2Settings settings = Http2Settings.defaultSettings();
+        if (initialWindow > 0) {
+            settings.initialWindowSize(initialWindow);
+        }
+        if (maxFrameSize > 0) {
+            settings.maxFrameSize(maxFrameSize);
+        }
+        if (maxConcurrentStreams > 0) {
+            settings.maxConcurrentStreams(maxConcurrentStreams);
+        }
+        return settings;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        super.channelActive(ctx);
+
+        // the SETTINGS frame only changes the stream window, open the connection window too
+        int delta = window - Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+        if (delta > 0) {
+            ctx.writeAndFlush(new DefaultHttp2WindowUpdateFrame(delta));
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (autoTuning) {
+            if (msg instanceof Http2DataFrame) {
+                sample(ctx, ((Http2DataFrame) msg).initialFlowControlledBytes());
+            } else if (msg instanceof Http2PingFrame) {
+                Http2PingFrame pingFrame = (Http2PingFrame) msg;
+                if (pingFrame.ack() && pingFrame.content() == BDP_PING) {
+                    tune(ctx);
+                    return;
+                }
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    private void sample(ChannelHandlerContext ctx, int bytes) {
+        if (!pinging) {
+            // start a round trip with the first data
+            pinging = true;
+            sampleBytes = 0;
+            ctx.writeAndFlush(new DefaultHttp2PingFrame(BDP_PING));
+        }
+        sampleBytes += bytes;
+    }
+
+    private void tune(ChannelHandlerContext ctx) {
+        pinging = false;
+
+        if (window >= maxWindow || sampleBytes * 3 < window * 2L) {
+            return;
+        }
+        int next = (int) Math.min(maxWindow, sampleBytes * 2);
+        if (next <= window) {
+            return;
+        }
+
+        int delta = next - window;
+        window = next;
+        ctx.write(new DefaultHttp2SettingsFrame(new Http2Settings().initialWindowSize(next)));
+        ctx.writeAndFlush(new DefaultHttp2WindowUpdateFrame(delta));
+    }
+
+    /**
+     * the current window of the streams and the connection.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+}
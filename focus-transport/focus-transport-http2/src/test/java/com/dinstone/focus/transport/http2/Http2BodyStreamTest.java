@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http2;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class Http2BodyStreamTest {
+
+    @Test
+    public void streamBodyBeyondThreshold() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        int threshold = 64 * 1024;
+        int total = threshold * 8;
+        int frameSize = 16 * 1024;
+        Http2BodyStream body = new Http2BodyStream(channel, threshold, 1000);
+
+        byte[] chunk = new byte[8 * 1024];
+        int sent = 0;
+        long received = 0;
+        int pauses = 0;
+        while (received < total) {
+            // the event loop delivers the frames while reading is on
+            channel.runPendingTasks();
+            while (sent < total && channel.config().isAutoRead()) {
+                int size = Math.min(frameSize, total - sent);
+                sent += size;
+                body.offer(Unpooled.wrappedBuffer(new byte[size]), sent == total);
+                if (!channel.config().isAutoRead()) {
+                    pauses++;
+                }
+            }
+
+            int n = body.read(chunk, 0, chunk.length);
+            Assert.assertTrue(n > 0);
+            received += n;
+        }
+
+        Assert.assertEquals(total, received);
+        Assert.assertEquals(-1, body.read(chunk, 0, chunk.length));
+        Assert.assertTrue("the stream never paused", pauses > 1);
+        channel.runPendingTasks();
+        Assert.assertTrue(channel.config().isAutoRead());
+
+        body.close();
+        channel.finishAndReleaseAll();
+    }
+
+}
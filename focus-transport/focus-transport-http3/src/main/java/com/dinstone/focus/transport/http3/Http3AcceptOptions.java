@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.io.File;
+
+import com.dinstone.focus.transport.AcceptOptions;
+import com.dinstone.focus.transport.ExecutorSelector;
+
+public class Http3AcceptOptions implements AcceptOptions {
+
+    /**
+     * The default worker event loop size = 1, all the QUIC connections of a UDP socket share its event loop.
+     */
+    public static final int DEFAULT_WORKER_SIZE = 1;
+
+    /**
+     * The default idle timeout 30s
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+    /**
+     * The default max concurrent bidirectional streams per connection.
+     */
+    public static final int DEFAULT_MAX_STREAMS = 1024;
+
+    /**
+     * The default connection flow control window = 16MB.
+     */
+    public static final long DEFAULT_INITIAL_MAX_DATA = 16 * 1024 * 1024;
+
+    /**
+     * The default stream flow control window = 1MB.
+     */
+    public static final long DEFAULT_INITIAL_MAX_STREAM_DATA = 1024 * 1024;
+
+    /**
+     * The default max body size = 64MB.
+     */
+    public static final long DEFAULT_MAX_BODY_SIZE = 64 * 1024 * 1024;
+
+    private int workerSize;
+
+    private int idleTimeout;
+
+    private int maxStreams;
+
+    private long initialMaxData;
+
+    private long initialMaxStreamData;
+
+    private long maxBodySize;
+
+    private File certChainFile;
+
+    private File privateKeyFile;
+
+    private String privateKeyPassword;
+
+    private ExecutorSelector executorSelector;
+
+    public Http3AcceptOptions() {
+        workerSize = DEFAULT_WORKER_SIZE;
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        maxStreams = DEFAULT_MAX_STREAMS;
+        initialMaxData = DEFAULT_INITIAL_MAX_DATA;
+        initialMaxStreamData = DEFAULT_INITIAL_MAX_STREAM_DATA;
+        maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    }
+
+    public int getWorkerSize() {
+        return workerSize;
+    }
+
+    public void setWorkerSize(int workerSize) {
+        this.workerSize = workerSize;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * the QUIC max idle timeout in seconds.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    public void setMaxStreams(int maxStreams) {
+        this.maxStreams = maxStreams;
+    }
+
+    public long getInitialMaxData() {
+        return initialMaxData;
+    }
+
+    public void setInitialMaxData(long initialMaxData) {
+        this.initialMaxData = initialMaxData;
+    }
+
+    public long getInitialMaxStreamData() {
+        return initialMaxStreamData;
+    }
+
+    public void setInitialMaxStreamData(long initialMaxStreamData) {
+        this.initialMaxStreamData = initialMaxStreamData;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * the max request body bytes, the larger body is rejected. A value less than 1 means no limit.
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public File getCertChainFile() {
+        return certChainFile;
+    }
+
+    /**
+     * the PEM certificate chain, a self-signed certificate is generated if it is absent.
+     */
+    public void setCertChainFile(File certChainFile) {
+        this.certChainFile = certChainFile;
+    }
+
+    public File getPrivateKeyFile() {
+        return privateKeyFile;
+    }
+
+    public void setPrivateKeyFile(File privateKeyFile) {
+        this.privateKeyFile = privateKeyFile;
+    }
+
+    public String getPrivateKeyPassword() {
+        return privateKeyPassword;
+    }
+
+    public void setPrivateKeyPassword(String privateKeyPassword) {
+        this.privateKeyPassword = privateKeyPassword;
+    }
+
+    @Override
+    public ExecutorSelector getExecutorSelector() {
+        return executorSelector;
+    }
+
+    public void setExecutorSelector(ExecutorSelector executorSelector) {
+        this.executorSelector = executorSelector;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "http3";
+    }
+
+    /**
+     * QUIC is always encrypted.
+     */
+    @Override
+    public boolean isEnableSsl() {
+        return true;
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.transport.Acceptor;
+import com.dinstone.focus.transport.MethodDictionary;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.incubator.codec.http3.Http3;
+import io.netty.incubator.codec.http3.Http3DataFrame;
+import io.netty.incubator.codec.http3.Http3HeadersFrame;
+import io.netty.incubator.codec.http3.Http3RequestStreamInboundHandler;
+import io.netty.incubator.codec.http3.Http3ServerConnectionHandler;
+import io.netty.incubator.codec.quic.InsecureQuicTokenHandler;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicSslContext;
+import io.netty.incubator.codec.quic.QuicSslContextBuilder;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * http3 acceptor on the netty QUIC codec, every request is an independent QUIC stream, so a lost packet only stalls
+ * its own stream.
+ *
+ * @author dinstone
+ */
+public class Http3Acceptor implements Acceptor {
+
+    private final Http3AcceptOptions acceptOptions;
+
+    private final NioEventLoopGroup workGroup;
+
+    private final Bootstrap bootstrap;
+
+    private Http3Processor messageProcessor;
+
+    private Channel channel;
+
+    public Http3Acceptor(Http3AcceptOptions acceptOptions) {
+        this.acceptOptions = acceptOptions;
+
+        QuicSslContext sslContext;
+        try {
+            if (acceptOptions.getCertChainFile() != null && acceptOptions.getPrivateKeyFile() != null) {
+                sslContext = QuicSslContextBuilder.forServer(acceptOptions.getPrivateKeyFile(),
+                        acceptOptions.getPrivateKeyPassword(), acceptOptions.getCertChainFile())
+                        .applicationProtocols(Http3.supportedApplicationProtocols()).build();
+            } else {
+                SelfSignedCertificate certificate = new SelfSignedCertificate();
+                sslContext = QuicSslContextBuilder.forServer(certificate.key(), null, certificate.cert())
+                        .applicationProtocols(Http3.supportedApplicationProtocols()).build();
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+
+        ChannelHandler codec = Http3.newQuicServerCodecBuilder().sslContext(sslContext)
+                .maxIdleTimeout(acceptOptions.getIdleTimeout(), TimeUnit.SECONDS)
+                .initialMaxData(acceptOptions.getInitialMaxData())
+                .initialMaxStreamDataBidirectionalLocal(acceptOptions.getInitialMaxStreamData())
+                .initialMaxStreamDataBidirectionalRemote(acceptOptions.getInitialMaxStreamData())
+                .initialMaxStreamsBidirectional(acceptOptions.getMaxStreams())
+                .tokenHandler(InsecureQuicTokenHandler.INSTANCE).handler(new ChannelInitializer<QuicChannel>() {
+
+                    @Override
+                    protected void initChannel(QuicChannel ch) {
+                        ch.pipeline().addLast(new Http3ServerConnectionHandler(
+                                new ChannelInitializer<QuicStreamChannel>() {
+
+                                    @Override
+                                    protected void initChannel(QuicStreamChannel ch) {
+                                        ch.pipeline().addLast(new Http3StreamHandler());
+                                    }
+
+                                }));
+                    }
+
+                }).build();
+
+        workGroup = new NioEventLoopGroup(acceptOptions.getWorkerSize(), new DefaultThreadFactory("H3A-Work"));
+        bootstrap = new Bootstrap().group(workGroup).channel(NioDatagramChannel.class).handler(codec);
+    }
+
+    @Override
+    public void bind(InetSocketAddress serviceAddress, Function<String, ServiceConfig> serviceFinder) throws Exception {
+        bind(serviceAddress, new MethodDictionary(serviceFinder));
+    }
+
+    @Override
+    public void bind(InetSocketAddress serviceAddress, MethodDictionary methodDictionary) throws Exception {
+        messageProcessor = new Http3Processor(methodDictionary, acceptOptions.getExecutorSelector());
+        channel = bootstrap.bind(serviceAddress).sync().channel();
+    }
+
+    @Override
+    public void destroy() {
+        if (channel != null) {
+            channel.close();
+        }
+        if (workGroup != null) {
+            workGroup.shutdownGracefully();
+        }
+    }
+
+    /**
+     * the handler of one request stream, aggregates the body until the input is closed.
+     */
+    private class Http3StreamHandler extends Http3RequestStreamInboundHandler {
+
+        private Http3HeadersFrame headersFrame;
+
+        private CompositeByteBuf body;
+
+        private boolean rejected;
+
+        @Override
+        protected void channelRead(ChannelHandlerContext ctx, Http3HeadersFrame frame) {
+            headersFrame = frame;
+        }
+
+        @Override
+        protected void channelRead(ChannelHandlerContext ctx, Http3DataFrame frame) {
+            if (rejected) {
+                frame.release();
+                return;
+            }
+            try {
+                body = Http3Codec.append(body, frame, acceptOptions.getMaxBodySize(), ctx.alloc());
+            } catch (RuntimeException e) {
+                body = null;
+                rejected = true;
+                messageProcessor.reject((QuicStreamChannel) ctx.channel(), e);
+            }
+        }
+
+        @Override
+        protected void channelInputClosed(ChannelHandlerContext ctx) {
+            if (rejected || headersFrame == null) {
+                return;
+            }
+            CompositeByteBuf content = body;
+            body = null;
+            // the processor releases the body after decoding
+            messageProcessor.process((QuicStreamChannel) ctx.channel(), headersFrame, content);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (body != null) {
+                body.release();
+                body = null;
+            }
+            super.channelInactive(ctx);
+        }
+
+    }
+
+}
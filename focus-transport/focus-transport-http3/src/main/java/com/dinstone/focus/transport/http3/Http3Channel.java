@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.ExceptionUtil;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.invoke.Invocation;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.incubator.codec.http3.DefaultHttp3DataFrame;
+import io.netty.incubator.codec.http3.DefaultHttp3HeadersFrame;
+import io.netty.incubator.codec.http3.Http3;
+import io.netty.incubator.codec.http3.Http3DataFrame;
+import io.netty.incubator.codec.http3.Http3Headers;
+import io.netty.incubator.codec.http3.Http3HeadersFrame;
+import io.netty.incubator.codec.http3.Http3RequestStreamInboundHandler;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+
+/**
+ * a QUIC connection, every invocation is sent on its own request stream.
+ *
+ * @author dinstone
+ */
+public class Http3Channel {
+
+    private static final String PATH = "/focus";
+
+    private final QuicChannel channel;
+
+    private final Http3ConnectOptions connectOptions;
+
+    private final String authority;
+
+    // method ids learned from the server, only valid on this connection
+    private final Map<MethodConfig, String> methodIds = new ConcurrentHashMap<>();
+
+    public Http3Channel(QuicChannel channel, Http3ConnectOptions connectOptions) {
+        this.channel = channel;
+        this.connectOptions = connectOptions;
+
+        InetSocketAddress remote = getRemoteAddress();
+        this.authority = remote.getHostString() + ":" + remote.getPort();
+    }
+
+    public boolean isActive() {
+        return channel.isActive();
+    }
+
+    public void destroy() {
+        channel.close();
+    }
+
+    public InetSocketAddress getRemoteAddress() {
+        return (InetSocketAddress) channel.remoteSocketAddress();
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) channel.localSocketAddress();
+    }
+
+    public CompletableFuture<Object> send(Invocation invocation) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        ServiceConfig serviceConfig = invocation.getServiceConfig();
+        MethodConfig methodConfig = invocation.getMethodConfig();
+
+        // encode first, the codec types are carried by the invocation attributes
+        ByteBuf content = Http3Codec.encode(invocation.getParameter(), methodConfig.getParamType(), serviceConfig,
+                methodConfig, channel.alloc(), invocation.attributes()::put);
+
+        DefaultHttp3HeadersFrame headersFrame = new DefaultHttp3HeadersFrame();
+        Http3Headers headers = headersFrame.headers();
+        headers.method(HttpMethod.POST.asciiName()).path(PATH).scheme("https");
+        headers.authority(authority);
+        headers.add(Invocation.CONSUMER_KEY, invocation.getConsumer());
+        String methodId = methodIds.get(methodConfig);
+        if (methodId != null) {
+            // the method id replaces the provider, service and method names
+            headers.add(Invocation.METHOD_ID_KEY, methodId);
+        } else {
+            headers.add(Invocation.PROVIDER_KEY, invocation.getProvider());
+            headers.add(Invocation.SERVICE_KEY, invocation.getService());
+            headers.add(Invocation.METHOD_KEY, invocation.getMethod());
+        }
+        headers.addInt(Invocation.TIMEOUT_KEY, invocation.getTimeout());
+        invocation.attributes().forEach((k, v) -> {
+            if (k != null && v != null) {
+                headers.add(k, v);
+            }
+        });
+        if (content != null) {
+            headers.setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        }
+
+        StreamHandler streamHandler = new StreamHandler(future, serviceConfig, methodConfig);
+        Http3.newRequestStream(channel, streamHandler).addListener((Future<QuicStreamChannel> openFuture) -> {
+            if (!openFuture.isSuccess()) {
+                ReferenceCountUtil.release(content);
+                // nothing is sent, the request can be retried on another instance
+                ConnectException error = new ConnectException("stream open error: " + openFuture.cause());
+                error.initCause(openFuture.cause());
+                future.completeExceptionally(error);
+                return;
+            }
+
+            QuicStreamChannel streamChannel = openFuture.getNow();
+            if (content != null) {
+                streamChannel.write(headersFrame);
+                streamChannel.writeAndFlush(new DefaultHttp3DataFrame(content))
+                        .addListener(QuicStreamChannel.SHUTDOWN_OUTPUT);
+            } else {
+                streamChannel.writeAndFlush(headersFrame).addListener(QuicStreamChannel.SHUTDOWN_OUTPUT);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * the handler of one request stream, aggregates the response body until the input is closed.
+     */
+    private class StreamHandler extends Http3RequestStreamInboundHandler {
+
+        private final CompletableFuture<Object> future;
+        private final ServiceConfig serviceConfig;
+        private final MethodConfig methodConfig;
+
+        private Http3HeadersFrame headersFrame;
+        private CompositeByteBuf body;
+
+        public StreamHandler(CompletableFuture<Object> future, ServiceConfig serviceConfig,
+                MethodConfig methodConfig) {
+            this.future = future;
+            this.serviceConfig = serviceConfig;
+            this.methodConfig = methodConfig;
+        }
+
+        @Override
+        protected void channelRead(ChannelHandlerContext ctx, Http3HeadersFrame frame) {
+            headersFrame = frame;
+        }
+
+        @Override
+        protected void channelRead(ChannelHandlerContext ctx, Http3DataFrame frame) {
+            if (future.isDone()) {
+                frame.release();
+                return;
+            }
+            try {
+                body = Http3Codec.append(body, frame, connectOptions.getMaxBodySize(), ctx.alloc());
+            } catch (RuntimeException e) {
+                body = null;
+                future.completeExceptionally(e);
+                ctx.close();
+            }
+        }
+
+        @Override
+        protected void channelInputClosed(ChannelHandlerContext ctx) {
+            CompositeByteBuf content = body;
+            body = null;
+            try {
+                if (headersFrame == null) {
+                    future.completeExceptionally(new ServiceException(ErrorCode.INVOKE_ERROR,
+                            "stream is closed before the response: " + methodConfig.getMethodName()));
+                } else {
+                    handle(headersFrame.headers(), content);
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                ReferenceCountUtil.release(content);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (body != null) {
+                body.release();
+                body = null;
+            }
+            if (!future.isDone()) {
+                future.completeExceptionally(new ServiceException(ErrorCode.INVOKE_ERROR,
+                        "stream is closed before the response: " + methodConfig.getMethodName()));
+            }
+            super.channelInactive(ctx);
+        }
+
+        private void handle(Http3Headers headers, ByteBuf content) {
+            if (HttpResponseStatus.OK.codeAsText().contentEquals(headers.status())) {
+                // learn the method id for the later requests
+                CharSequence methodId = headers.get(Invocation.METHOD_ID_KEY);
+                if (methodId != null) {
+                    methodIds.put(methodConfig, methodId.toString());
+                }
+
+                Object value = null;
+                if (content != null) {
+                    CharSequence compressorType = headers.get(Compressor.TYPE_KEY);
+                    value = Http3Codec.decode(content, methodConfig.getReturnType(), compressorType, serviceConfig,
+                            methodConfig);
+                }
+                future.complete(value);
+            } else {
+                // error handle
+                String message = null;
+                if (content != null && content.isReadable()) {
+                    message = content.toString(CharsetUtil.UTF_8);
+                }
+
+                int errorCode = headers.getInt(InvokeException.CODE_KEY, 0);
+                future.complete(ExceptionUtil.invokeException(errorCode, message));
+            }
+        }
+
+    }
+
+}
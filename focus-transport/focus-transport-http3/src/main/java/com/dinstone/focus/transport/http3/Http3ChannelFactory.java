@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.incubator.codec.http3.Http3;
+import io.netty.incubator.codec.http3.Http3ClientConnectionHandler;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicSslContext;
+import io.netty.incubator.codec.quic.QuicSslContextBuilder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+
+public class Http3ChannelFactory {
+
+    private final ConcurrentMap<InetSocketAddress, CompletableFuture<Http3Channel>> channelMap;
+
+    private final Http3ConnectOptions connectOptions;
+
+    private final EventLoopGroup workGroup;
+
+    private final Channel[] datagramChannels;
+
+    private final AtomicInteger nextChannel = new AtomicInteger();
+
+    public Http3ChannelFactory(Http3ConnectOptions connectOptions) {
+        this.connectOptions = connectOptions;
+        this.channelMap = new ConcurrentHashMap<>();
+
+        QuicSslContext sslContext = QuicSslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .applicationProtocols(Http3.supportedApplicationProtocols()).build();
+        ChannelHandler codec = Http3.newQuicClientCodecBuilder().sslContext(sslContext)
+                .maxIdleTimeout(connectOptions.getIdleTimeout(), TimeUnit.SECONDS)
+                .initialMaxData(connectOptions.getInitialMaxData())
+                .initialMaxStreamDataBidirectionalLocal(connectOptions.getInitialMaxStreamData())
+                .initialMaxStreamDataBidirectionalRemote(connectOptions.getInitialMaxStreamData()).build();
+
+        // every event loop owns a local UDP socket, the QUIC connections of a socket share its event loop
+        int workerSize = connectOptions.getWorkerSize();
+        if (workerSize < 1) {
+            workerSize = Http3ConnectOptions.DEFAULT_WORKER_SIZE;
+        }
+        workGroup = new NioEventLoopGroup(workerSize, new DefaultThreadFactory("H3C-Work"));
+        Bootstrap bootstrap = new Bootstrap().group(workGroup).channel(NioDatagramChannel.class).handler(codec);
+        datagramChannels = new Channel[workerSize];
+        for (int i = 0; i < workerSize; i++) {
+            datagramChannels[i] = bootstrap.bind(0).syncUninterruptibly().channel();
+        }
+    }
+
+    /**
+     * get the channel of the address, connect if it is absent or inactive. Nothing blocks, the concurrent callers
+     * share the same connecting future.
+     */
+    public CompletableFuture<Http3Channel> create(InetSocketAddress socketAddress) {
+        while (true) {
+            CompletableFuture<Http3Channel> future = channelMap.get(socketAddress);
+            if (future == null) {
+                CompletableFuture<Http3Channel> connecting = new CompletableFuture<>();
+                if (channelMap.putIfAbsent(socketAddress, connecting) == null) {
+                    connect(socketAddress, connecting);
+                    return connecting;
+                }
+            } else if (!future.isDone()) {
+                return future;
+            } else {
+                Http3Channel http3Channel = future.isCompletedExceptionally() ? null : future.join();
+                if (http3Channel != null && http3Channel.isActive()) {
+                    return future;
+                }
+
+                // reconnect the failed or inactive channel
+                CompletableFuture<Http3Channel> connecting = new CompletableFuture<>();
+                if (channelMap.replace(socketAddress, future, connecting)) {
+                    if (http3Channel != null) {
+                        http3Channel.destroy();
+                    }
+                    connect(socketAddress, connecting);
+                    return connecting;
+                }
+            }
+        }
+    }
+
+    private void connect(InetSocketAddress sa, CompletableFuture<Http3Channel> future) {
+        Channel datagramChannel = datagramChannels[(nextChannel.getAndIncrement() & 0x7fffffff)
+                % datagramChannels.length];
+        try {
+            Future<QuicChannel> connectFuture = QuicChannel.newBootstrap(datagramChannel)
+                    .handler(new Http3ClientConnectionHandler()).remoteAddress(sa).connect();
+            connectFuture.addListener(f -> {
+                if (connectFuture.isSuccess()) {
+                    future.complete(new Http3Channel(connectFuture.getNow(), connectOptions));
+                } else if (connectFuture.isCancelled()) {
+                    future.completeExceptionally(new ConnectException("Connect Timeout Exception : " + sa));
+                } else {
+                    future.completeExceptionally(
+                            new ConnectException("Connect Exception : " + sa + " " + connectFuture.cause()));
+                }
+            });
+
+            // QUIC has no connect timeout option, cancel the handshake
+            datagramChannel.eventLoop().schedule(() -> connectFuture.cancel(false),
+                    connectOptions.getConnectTimeout(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            future.completeExceptionally(new ConnectException("Connect Exception : " + sa + " " + e));
+        }
+    }
+
+    public void destroy() {
+        channelMap.forEach((k, v) -> v.thenAccept(Http3Channel::destroy));
+        for (Channel datagramChannel : datagramChannels) {
+            datagramChannel.close();
+        }
+        workGroup.shutdownGracefully();
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BiConsumer;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.serialize.Serializer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.incubator.codec.http3.Http3DataFrame;
+
+/**
+ * the content codec of the http3 transport, shared by the request and the response side.
+ *
+ * @author dinstone
+ */
+final class Http3Codec {
+
+    private Http3Codec() {
+    }
+
+    /**
+     * serialize and compress the value into a pooled buffer, the codec types are reported to the type consumer.
+     *
+     * @return null if the value is null
+     */
+    static ByteBuf encode(Object value, Class<?> type, ServiceConfig serviceConfig, MethodConfig methodConfig,
+            ByteBufAllocator alloc, BiConsumer<String, String> codecTypes) {
+        if (value == null) {
+            return null;
+        }
+
+        ByteBuf content = alloc.ioBuffer();
+        try {
+            Serializer serializer = serviceConfig.getSerializer();
+            serializer.encode(value, type, new ByteBufOutputStream(content));
+            codecTypes.accept(Serializer.TYPE_KEY, serializer.type());
+        } catch (IOException e) {
+            content.release();
+            throw new ServiceException(ErrorCode.CODEC_ERROR,
+                    "serialize encode error: " + methodConfig.getMethodName(), e);
+        } catch (RuntimeException e) {
+            content.release();
+            throw e;
+        }
+
+        Compressor compressor = serviceConfig.getCompressor();
+        if (compressor != null && content.readableBytes() > serviceConfig.getCompressThreshold()) {
+            ByteBuf compressed = alloc.ioBuffer();
+            try {
+                compressor.encode(new ByteBufInputStream(content), new ByteBufOutputStream(compressed));
+                codecTypes.accept(Compressor.TYPE_KEY, compressor.type());
+            } catch (IOException e) {
+                compressed.release();
+                throw new ServiceException(ErrorCode.CODEC_ERROR,
+                        "compress encode error: " + methodConfig.getMethodName(), e);
+            } catch (RuntimeException e) {
+                compressed.release();
+                throw e;
+            } finally {
+                content.release();
+            }
+            content = compressed;
+        }
+        return content;
+    }
+
+    /**
+     * decompress and deserialize the body, the body is not released.
+     */
+    static Object decode(ByteBuf body, Class<?> type, CharSequence compressorType, ServiceConfig serviceConfig,
+            MethodConfig methodConfig) {
+        InputStream input = new ByteBufInputStream(body);
+        Compressor compressor = serviceConfig.getCompressor();
+        if (compressor != null && compressorType != null) {
+            try {
+                input = compressor.decode(input);
+            } catch (IOException e) {
+                throw new ServiceException(ErrorCode.CODEC_ERROR,
+                        "compress decode error: " + methodConfig.getMethodName(), e);
+            }
+        }
+
+        try {
+            return serviceConfig.getSerializer().decode(input, type);
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.CODEC_ERROR,
+                    "serialize decode error: " + methodConfig.getMethodName(), e);
+        }
+    }
+
+    /**
+     * append the data frame to the body, the frame is released.
+     *
+     * @return the body, created on the first frame
+     */
+    static CompositeByteBuf append(CompositeByteBuf body, Http3DataFrame frame, long maxBodySize,
+            ByteBufAllocator alloc) {
+        if (body == null) {
+            body = alloc.compositeBuffer(Integer.MAX_VALUE);
+        }
+        if (maxBodySize > 0 && body.readableBytes() + frame.content().readableBytes() > maxBodySize) {
+            frame.release();
+            body.release();
+            throw new ServiceException(ErrorCode.CODEC_ERROR, "body size exceeds the max body size " + maxBodySize);
+        }
+        body.addComponent(true, frame.content());
+        return body;
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import com.dinstone.focus.transport.ConnectOptions;
+
+public class Http3ConnectOptions implements ConnectOptions {
+
+    /**
+     * The default worker event loop size = 1, every event loop owns one local UDP socket.
+     */
+    public static final int DEFAULT_WORKER_SIZE = 1;
+
+    /**
+     * The default idle timeout 30s
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+    /**
+     * The default connect timeout 3000ms
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+
+    /**
+     * The default connection flow control window = 16MB
+     */
+    public static final long DEFAULT_INITIAL_MAX_DATA = 16 * 1024 * 1024;
+
+    /**
+     * The default stream flow control window = 1MB
+     */
+    public static final long DEFAULT_INITIAL_MAX_STREAM_DATA = 1024 * 1024;
+
+    /**
+     * The default max body size = 64MB
+     */
+    public static final long DEFAULT_MAX_BODY_SIZE = 64 * 1024 * 1024;
+
+    private int workerSize;
+
+    private int idleTimeout;
+
+    private int connectTimeout;
+
+    private long initialMaxData;
+
+    private long initialMaxStreamData;
+
+    private long maxBodySize;
+
+    public Http3ConnectOptions() {
+        workerSize = DEFAULT_WORKER_SIZE;
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        initialMaxData = DEFAULT_INITIAL_MAX_DATA;
+        initialMaxStreamData = DEFAULT_INITIAL_MAX_STREAM_DATA;
+        maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    }
+
+    public Http3ConnectOptions(Http3ConnectOptions other) {
+        workerSize = other.workerSize;
+        idleTimeout = other.idleTimeout;
+        connectTimeout = other.connectTimeout;
+        initialMaxData = other.initialMaxData;
+        initialMaxStreamData = other.initialMaxStreamData;
+        maxBodySize = other.maxBodySize;
+    }
+
+    public int getWorkerSize() {
+        return workerSize;
+    }
+
+    /**
+     * the client event loops, the QUIC connections are spread over their UDP sockets.
+     */
+    public void setWorkerSize(int workerSize) {
+        this.workerSize = workerSize;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * the QUIC max idle timeout in seconds.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * the connect timeout in milliseconds.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public long getInitialMaxData() {
+        return initialMaxData;
+    }
+
+    public void setInitialMaxData(long initialMaxData) {
+        this.initialMaxData = initialMaxData;
+    }
+
+    public long getInitialMaxStreamData() {
+        return initialMaxStreamData;
+    }
+
+    public void setInitialMaxStreamData(long initialMaxStreamData) {
+        this.initialMaxStreamData = initialMaxStreamData;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * the max response body bytes, the larger body fails the invocation. A value less than 1 means no limit.
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * QUIC is always encrypted.
+     */
+    @Override
+    public boolean isEnableSsl() {
+        return true;
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.naming.ServiceInstance;
+import com.dinstone.focus.transport.Connector;
+import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.focus.utils.NetworkUtil;
+
+public class Http3Connector implements Connector {
+
+    private final Http3ChannelFactory channelFactory;
+
+    public Http3Connector(Http3ConnectOptions connectOptions) {
+        channelFactory = new Http3ChannelFactory(new Http3ConnectOptions(connectOptions));
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Invocation invocation, ServiceInstance instance) {
+        return channelFactory.create(instance.getInstanceAddress()).thenCompose(http3Channel -> {
+            String link = NetworkUtil.link(http3Channel.getLocalAddress(), http3Channel.getRemoteAddress());
+            invocation.context().put(ConstantUtil.RPC_LINK_KEY, link);
+            return http3Channel.send(invocation);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        channelFactory.destroy();
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.invoke.Context;
+import com.dinstone.focus.invoke.DefaultInvocation;
+import com.dinstone.focus.invoke.HeaderAttributes;
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.focus.utils.NetworkUtil;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.incubator.codec.http3.DefaultHttp3DataFrame;
+import io.netty.incubator.codec.http3.DefaultHttp3HeadersFrame;
+import io.netty.incubator.codec.http3.Http3Headers;
+import io.netty.incubator.codec.http3.Http3HeadersFrame;
+import io.netty.incubator.codec.quic.QuicChannel;
+import io.netty.incubator.codec.quic.QuicStreamChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+
+public final class Http3Processor {
+
+    private final MethodDictionary methodDictionary;
+    private final ExecutorSelector executorSelector;
+
+    public Http3Processor(MethodDictionary methodDictionary, ExecutorSelector executorSelector) {
+        this.methodDictionary = methodDictionary;
+        this.executorSelector = executorSelector;
+    }
+
+    /**
+     * process the request of the stream, the body is released after decoding.
+     */
+    public void process(QuicStreamChannel channel, Http3HeadersFrame headersFrame, ByteBuf body) {
+        MethodDictionary.Entry entry;
+        try {
+            // resolve by the method id or the names
+            Http3Headers headers = headersFrame.headers();
+            entry = methodDictionary.resolve(text(headers.get(Invocation.METHOD_ID_KEY)),
+                    text(headers.get(Invocation.SERVICE_KEY)), text(headers.get(Invocation.METHOD_KEY)));
+        } catch (Throwable e) {
+            ReferenceCountUtil.release(body);
+            errorHandle(channel, e);
+            return;
+        }
+
+        Executor executor = null;
+        if (executorSelector != null) {
+            String s = entry.getServiceConfig().getService();
+            String m = entry.getMethodConfig().getMethodName();
+            Http3Headers headers = headersFrame.headers();
+            executor = executorSelector.select(s, m, k -> text(headers.get(k)));
+        }
+        if (executor != null) {
+            try {
+                executor.execute(() -> invoke(channel, headersFrame, body, entry));
+            } catch (RejectedExecutionException e) {
+                ReferenceCountUtil.release(body);
+                errorHandle(channel, new ServiceException(ErrorCode.OVERLOAD_ERROR, "server is overload"));
+            }
+        } else {
+            invoke(channel, headersFrame, body, entry);
+        }
+    }
+
+    /**
+     * reply the error for the stream rejected before it is processed.
+     */
+    public void reject(QuicStreamChannel channel, Throwable error) {
+        errorHandle(channel, error);
+    }
+
+    private void invoke(QuicStreamChannel channel, Http3HeadersFrame headersFrame, ByteBuf body,
+            MethodDictionary.Entry entry) {
+        InvokeException exception;
+        try {
+            Http3Headers headers = headersFrame.headers();
+            ServiceConfig serviceConfig = entry.getServiceConfig();
+            MethodConfig methodConfig = entry.getMethodConfig();
+            // teach the client the method id if it has not learned yet
+            String learnId = entry.hasId() && !headers.contains(Invocation.METHOD_ID_KEY) ? entry.getIdText() : null;
+
+            // decode invocation from request
+            Invocation invocation = decode(headers, body, serviceConfig, methodConfig);
+            ReferenceCountUtil.release(body);
+            body = null;
+
+            Context context = Context.fork();
+            // set link, the stream parent is the QUIC connection
+            QuicChannel connection = channel.parent();
+            String link = NetworkUtil.link(connection.remoteSocketAddress(), connection.localSocketAddress());
+            context.put(ConstantUtil.RPC_LINK_KEY, link);
+
+            // invoke invocation
+            context.call(() -> serviceConfig.getHandler().handle(invocation)).whenComplete((reply, error) -> {
+                if (error != null) {
+                    errorHandle(channel, error);
+                } else {
+                    replyHandle(channel, reply, serviceConfig, methodConfig, learnId);
+                }
+            });
+
+            return;
+        } catch (InvokeException e) {
+            exception = e;
+        } catch (Throwable e) {
+            exception = new InvokeException(ErrorCode.INVOKE_ERROR, e);
+        } finally {
+            ReferenceCountUtil.release(body);
+        }
+
+        errorHandle(channel, exception);
+    }
+
+    private Invocation decode(Http3Headers headers, ByteBuf body, ServiceConfig serviceConfig,
+            MethodConfig methodConfig) {
+        Object value = null;
+        if (body != null) {
+            CharSequence compressorType = headers.get(Compressor.TYPE_KEY);
+            value = Http3Codec.decode(body, methodConfig.getParamType(), compressorType, serviceConfig, methodConfig);
+        }
+
+        // the names are omitted when the request carries the method id
+        String service = serviceConfig.getService();
+        String method = methodConfig.getMethodName();
+        CharSequence provider = headers.get(Invocation.PROVIDER_KEY);
+        DefaultInvocation invocation = new DefaultInvocation(service, method, value);
+        invocation.setConsumer(text(headers.get(Invocation.CONSUMER_KEY, "")));
+        invocation.setProvider(provider != null ? provider.toString() : serviceConfig.getProvider());
+        invocation.setTimeout(headers.getIntAndRemove(Invocation.TIMEOUT_KEY, 0));
+        invocation.setServiceConfig(serviceConfig);
+        invocation.setMethodConfig(methodConfig);
+        invocation.attributes(new RequestAttributes(headers));
+        return invocation;
+    }
+
+    private void replyHandle(QuicStreamChannel channel, Object reply, ServiceConfig serviceConfig,
+            MethodConfig methodConfig, String learnId) {
+        DefaultHttp3HeadersFrame headersFrame = new DefaultHttp3HeadersFrame();
+        Http3Headers headers = headersFrame.headers();
+        headers.status(HttpResponseStatus.OK.codeAsText());
+        if (learnId != null) {
+            headers.add(Invocation.METHOD_ID_KEY, learnId);
+        }
+
+        ByteBuf content;
+        try {
+            content = Http3Codec.encode(reply, methodConfig.getReturnType(), serviceConfig, methodConfig,
+                    channel.alloc(), headers::add);
+        } catch (Throwable e) {
+            errorHandle(channel, e);
+            return;
+        }
+
+        if (content == null) {
+            channel.writeAndFlush(headersFrame).addListener(QuicStreamChannel.SHUTDOWN_OUTPUT);
+        } else {
+            headers.setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+            channel.write(headersFrame);
+            channel.writeAndFlush(new DefaultHttp3DataFrame(content)).addListener(QuicStreamChannel.SHUTDOWN_OUTPUT);
+        }
+    }
+
+    private void errorHandle(Channel channel, Throwable error) {
+        InvokeException exception;
+        if (error instanceof InvokeException) {
+            exception = (InvokeException) error;
+        } else {
+            exception = new InvokeException(ErrorCode.INVOKE_ERROR, error);
+        }
+        // send response with exception
+        DefaultHttp3HeadersFrame headersFrame = new DefaultHttp3HeadersFrame();
+        Http3Headers headers = headersFrame.headers();
+        headers.status(HttpResponseStatus.INTERNAL_SERVER_ERROR.codeAsText());
+        headers.setInt(InvokeException.CODE_KEY, exception.getCode().value());
+
+        String message = exception.getMessage();
+        if (message == null) {
+            channel.writeAndFlush(headersFrame).addListener(QuicStreamChannel.SHUTDOWN_OUTPUT);
+        } else {
+            ByteBuf buf = channel.alloc().ioBuffer().writeBytes(message.getBytes(CharsetUtil.UTF_8));
+            channel.write(headersFrame);
+            channel.writeAndFlush(new DefaultHttp3DataFrame(buf)).addListener(QuicStreamChannel.SHUTDOWN_OUTPUT);
+        }
+    }
+
+    private static String text(CharSequence value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * invocation attributes view of the request headers, the pseudo headers are skipped.
+     */
+    private static final class RequestAttributes extends HeaderAttributes {
+
+        private final Http3Headers headers;
+
+        RequestAttributes(Http3Headers headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        protected String header(String name) {
+            if (name.isEmpty() || name.charAt(0) == ':') {
+                return null;
+            }
+            return text(headers.get(name));
+        }
+
+        @Override
+        protected void forEachHeader(BiConsumer<String, String> action) {
+            headers.forEach(e -> {
+                if (e.getKey().charAt(0) != ':') {
+                    action.accept(e.getKey().toString(), e.getValue().toString());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.http3;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.dinstone.focus.config.AbstractMethodConfig;
+import com.dinstone.focus.config.AbstractServiceConfig;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.invoke.DefaultInvocation;
+import com.dinstone.focus.serialize.Serializer;
+import com.dinstone.focus.transport.MethodDictionary;
+
+import io.netty.incubator.codec.quic.Quic;
+
+public class Http3LoopbackTest {
+
+    @Test
+    public void invokeOverLoopback() throws Exception {
+        // the platforms without the native QUIC library skip the test
+        Assume.assumeTrue(Quic.isAvailable());
+
+        AbstractServiceConfig serviceConfig = new AbstractServiceConfig() {
+        };
+        serviceConfig.setService("echo.service");
+        serviceConfig.setProvider("echo.provider");
+        serviceConfig.setSerializer(new TextSerializer());
+        AbstractMethodConfig methodConfig = new AbstractMethodConfig("echo") {
+        };
+        methodConfig.setParamType(String.class);
+        methodConfig.setReturnType(String.class);
+        serviceConfig.addMethodConfig(methodConfig);
+        serviceConfig.setHandler(invocation -> CompletableFuture.completedFuture("echo " + invocation.getParameter()));
+
+        MethodDictionary methodDictionary = new MethodDictionary();
+        methodDictionary.register(serviceConfig);
+
+        // no certificate files, the acceptor generates a self-signed one and the client trusts any
+        Http3Acceptor acceptor = new Http3Acceptor(new Http3AcceptOptions());
+        Http3ConnectOptions connectOptions = new Http3ConnectOptions();
+        connectOptions.setWorkerSize(2);
+        Http3ChannelFactory channelFactory = new Http3ChannelFactory(connectOptions);
+        try {
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", freePort());
+            acceptor.bind(address, methodDictionary);
+
+            // the later calls carry the method id learned from the first reply
+            for (int i = 0; i < 3; i++) {
+                DefaultInvocation invocation = invocation(serviceConfig, methodConfig, "focus-" + i);
+                Object reply = channelFactory.create(address).thenCompose(channel -> channel.send(invocation))
+                        .get(10, TimeUnit.SECONDS);
+                Assert.assertEquals("echo focus-" + i, reply);
+            }
+        } finally {
+            channelFactory.destroy();
+            acceptor.destroy();
+        }
+    }
+
+    private static DefaultInvocation invocation(AbstractServiceConfig serviceConfig, MethodConfig methodConfig,
+            String parameter) {
+        DefaultInvocation invocation = new DefaultInvocation(serviceConfig.getService(),
+                methodConfig.getMethodName(), parameter);
+        invocation.setConsumer("echo.consumer");
+        invocation.setProvider(serviceConfig.getProvider());
+        invocation.setTimeout(10000);
+        invocation.setServiceConfig(serviceConfig);
+        invocation.setMethodConfig(methodConfig);
+        return invocation;
+    }
+
+    private static int freePort() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class TextSerializer implements Serializer {
+
+        @Override
+        public String type() {
+            return "text";
+        }
+
+        @Override
+        public byte[] encode(Object content, Class<?> contentType) {
+            return content.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object decode(byte[] contentBytes, Class<?> contentType) {
+            return new String(contentBytes, StandardCharsets.UTF_8);
+        }
+
+    }
+
+}
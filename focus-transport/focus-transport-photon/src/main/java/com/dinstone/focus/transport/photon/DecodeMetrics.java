@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.photon;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * response decode metrics, the queue time is the time from the response arrival to the decode start.
+ *
+ * @author dinstone
+ */
+public class DecodeMetrics {
+
+    private final LongAdder inlineCount = new LongAdder();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private final LongAdder queueTimeNanos = new LongAdder();
+
+    private final AtomicLong maxQueueTimeNanos = new AtomicLong();
+
+    void inlined() {
+        inlineCount.increment();
+    }
+
+    void queued(long queueNanos) {
+        queuedCount.increment();
+        queueTimeNanos.add(queueNanos);
+
+        long max = maxQueueTimeNanos.get();
+        while (queueNanos > max && !maxQueueTimeNanos.compareAndSet(max, queueNanos)) {
+            max = maxQueueTimeNanos.get();
+        }
+    }
+
+    public long getInlineCount() {
+        return inlineCount.sum();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    public long getQueueTime(TimeUnit unit) {
+        return unit.convert(queueTimeNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getAverageQueueTime(TimeUnit unit) {
+        long count = queuedCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return unit.convert(queueTimeNanos.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxQueueTime(TimeUnit unit) {
+        return unit.convert(maxQueueTimeNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeMetrics [inlineCount=" + getInlineCount() + ", queuedCount=" + getQueuedCount()
+                + ", averageQueueMicros=" + getAverageQueueTime(TimeUnit.MICROSECONDS) + ", maxQueueMicros="
+                + getMaxQueueTime(TimeUnit.MICROSECONDS) + "]";
+    }
+
+}
@@ -25,8 +25,35 @@ public class PhotonAcceptOptions extends com.dinstone.photon.AcceptOptions imple
      */
     public static final int DEFAULT_BUSINESS_SIZE = 2 * Runtime.getRuntime().availableProcessors();
 
+    /**
+     * The default business queue size.
+     */
+    public static final int DEFAULT_BUSINESS_QUEUE_SIZE = 1024;
+
+    /**
+     * The default limit of the running invocations in the virtual thread mode.
+     */
+    public static final int DEFAULT_VIRTUAL_THREAD_LIMIT = 10000;
+
+    /**
+     * The default stall threshold of the inline dispatch = 100ms.
+     */
+    public static final int DEFAULT_INLINE_STALL_THRESHOLD = 100;
+
     private int businessSize = DEFAULT_BUSINESS_SIZE;
 
+    private int businessQueueSize = DEFAULT_BUSINESS_QUEUE_SIZE;
+
+    private boolean loadShedding = true;
+
+    private boolean virtualThread;
+
+    private int virtualThreadLimit = DEFAULT_VIRTUAL_THREAD_LIMIT;
+
+    private int inlineStallThreshold = DEFAULT_INLINE_STALL_THRESHOLD;
+
+    private boolean recycleInvocation;
+
     private ExecutorSelector executorSelector;
 
     @Override
@@ -50,4 +77,74 @@ public class PhotonAcceptOptions extends com.dinstone.photon.AcceptOptions imple
     public void setBusinessSize(int businessSize) {
         this.businessSize = businessSize;
     }
+
+    public int getBusinessQueueSize() {
+        return businessQueueSize;
+    }
+
+    /**
+     * the capacity of the business queue, the request is rejected with the overload error when the queue is full. A
+     * value less than 1 means an unbounded queue.
+     */
+    public void setBusinessQueueSize(int businessQueueSize) {
+        this.businessQueueSize = businessQueueSize;
+    }
+
+    public boolean isLoadShedding() {
+        return loadShedding;
+    }
+
+    /**
+     * drop the queued request whose remaining deadline is below the observed service time of its method.
+     */
+    public void setLoadShedding(boolean loadShedding) {
+        this.loadShedding = loadShedding;
+    }
+
+    public boolean isRecycleInvocation() {
+        return recycleInvocation;
+    }
+
+    /**
+     * reuse the server-side invocations on the business threads, the interceptors and services must not keep the
+     * invocation after the call completes.
+     */
+    public void setRecycleInvocation(boolean recycleInvocation) {
+        this.recycleInvocation = recycleInvocation;
+    }
+
+    public boolean isVirtualThread() {
+        return virtualThread;
+    }
+
+    /**
+     * run each invocation on its own virtual thread instead of the business pool, java 21+ is required.
+     */
+    public void setVirtualThread(boolean virtualThread) {
+        this.virtualThread = virtualThread;
+    }
+
+    public int getVirtualThreadLimit() {
+        return virtualThreadLimit;
+    }
+
+    /**
+     * the limit of the running invocations in the virtual thread mode, the request over it is rejected with the
+     * overload error. A value less than 1 means no limit.
+     */
+    public void setVirtualThreadLimit(int virtualThreadLimit) {
+        this.virtualThreadLimit = virtualThreadLimit;
+    }
+
+    public int getInlineStallThreshold() {
+        return inlineStallThreshold;
+    }
+
+    /**
+     * the event loop stall threshold in milliseconds, the inline dispatch invocation running longer is reported. A
+     * value less than 1 disables the watchdog.
+     */
+    public void setInlineStallThreshold(int inlineStallThreshold) {
+        this.inlineStallThreshold = inlineStallThreshold;
+    }
 }
@@ -16,34 +16,72 @@
 package com.dinstone.focus.transport.photon;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.invoke.InvocationRecycler;
 import com.dinstone.focus.transport.Acceptor;
 import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.transport.executor.LimitedExecutorService;
+import com.dinstone.focus.transport.executor.StallWatchdog;
+import com.dinstone.focus.transport.executor.VirtualThreads;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 public class PhotonAcceptor implements Acceptor {
 
     private final com.dinstone.photon.Acceptor delegateAcceptor;
     private final ExecutorSelector executorSelector;
     private final ExecutorService sharedExecutor;
+    private final boolean loadShedding;
+    private final int stallThreshold;
+    private volatile StallWatchdog stallWatchdog;
+    private final InvocationRecycler invocationRecycler;
 
     public PhotonAcceptor(PhotonAcceptOptions acceptOptions) {
         delegateAcceptor = new com.dinstone.photon.Acceptor(acceptOptions);
         executorSelector = acceptOptions.getExecutorSelector();
 
-        int businessSize = acceptOptions.getBusinessSize();
-        if (businessSize < 1) {
-            businessSize = PhotonAcceptOptions.DEFAULT_BUSINESS_SIZE;
+        if (acceptOptions.isVirtualThread()) {
+            // one virtual thread per invocation, bounded by the running limit
+            ExecutorService virtualExecutor = VirtualThreads.newThreadPerTaskExecutor("PAT-Virtual");
+            sharedExecutor = new LimitedExecutorService(virtualExecutor, acceptOptions.getVirtualThreadLimit());
+        } else {
+            int businessSize = acceptOptions.getBusinessSize();
+            if (businessSize < 1) {
+                businessSize = PhotonAcceptOptions.DEFAULT_BUSINESS_SIZE;
+            }
+            // bounded queue, the processor rejects the request when it is full
+            int queueSize = acceptOptions.getBusinessQueueSize();
+            BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize)
+                    : new LinkedBlockingQueue<>();
+            sharedExecutor = new ThreadPoolExecutor(businessSize, businessSize, 0L, TimeUnit.MILLISECONDS, queue,
+                    new DefaultThreadFactory("PAT-Business"));
         }
-        sharedExecutor = Executors.newFixedThreadPool(businessSize);
+        loadShedding = acceptOptions.isLoadShedding();
+        // a virtual thread runs one invocation only, its pool would never be reused
+        invocationRecycler = new InvocationRecycler(
+                acceptOptions.isRecycleInvocation() && !acceptOptions.isVirtualThread());
+
+        stallThreshold = acceptOptions.getInlineStallThreshold();
     }
 
     @Override
     public void bind(InetSocketAddress serviceAddress, Function<String, ServiceConfig> serviceFinder) throws Exception {
-        delegateAcceptor.setProcessor(new PhotonProcessor(serviceFinder, sharedExecutor, executorSelector));
+        bind(serviceAddress, new MethodDictionary(serviceFinder));
+    }
+
+    @Override
+    public void bind(InetSocketAddress serviceAddress, MethodDictionary methodDictionary) throws Exception {
+        delegateAcceptor.setProcessor(new PhotonProcessor(methodDictionary, sharedExecutor, executorSelector,
+                loadShedding, this::stallWatchdog, invocationRecycler));
         delegateAcceptor.bind(serviceAddress);
     }
 
@@ -56,6 +94,27 @@ public class PhotonAcceptor implements Acceptor {
         if (sharedExecutor != null) {
             sharedExecutor.shutdown();
         }
+        synchronized (this) {
+            if (stallWatchdog != null) {
+                stallWatchdog.destroy();
+            }
+        }
+    }
+
+    /**
+     * the watchdog is created at the first inline dispatch invocation, null if it is disabled.
+     */
+    private StallWatchdog stallWatchdog() {
+        StallWatchdog watchdog = stallWatchdog;
+        if (watchdog == null && stallThreshold > 0) {
+            synchronized (this) {
+                if (stallWatchdog == null) {
+                    stallWatchdog = new StallWatchdog("PAT-Watchdog", stallThreshold);
+                }
+                watchdog = stallWatchdog;
+            }
+        }
+        return watchdog;
     }
 
 }
@@ -15,20 +15,103 @@
  */
 package com.dinstone.focus.transport.photon;
 
+import java.util.concurrent.Executor;
+
 import com.dinstone.focus.transport.ConnectOptions;
 
 public class PhotonConnectOptions extends com.dinstone.photon.ConnectOptions implements ConnectOptions {
 
+    /**
+     * where the response is decoded (deserialized and decompressed)
+     */
+    public enum DecodeStrategy {
+        /**
+         * decode on the IO thread if the payload is not greater than the inline threshold, otherwise on the decode pool
+         */
+        INLINE,
+        /**
+         * decode on the dedicated bounded decode pool
+         */
+        POOL,
+        /**
+         * decode on the caller supplied decode executor
+         */
+        EXECUTOR
+    }
+
+    /**
+     * The default decode pool size = Runtime.availableProcessors
+     */
+    public static final int DEFAULT_DECODE_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default decode queue size
+     */
+    private static final int DEFAULT_DECODE_QUEUE_SIZE = 10000;
+
+    /**
+     * The default inline decode payload threshold, 4KB
+     */
+    private static final int DEFAULT_INLINE_THRESHOLD = 4096;
+
     private static final int DEFAULT_POOL_SIZE = 1;
 
+    /**
+     * The default pending requests per connection to grow the elastic pool
+     */
+    private static final int DEFAULT_PENDING_THRESHOLD = 128;
+
+    /**
+     * The default pending request bytes per connection to grow the elastic pool, 4MB
+     */
+    private static final long DEFAULT_PENDING_BYTES_THRESHOLD = 4 * 1024 * 1024;
+
+    /**
+     * The default idle cooldown to shrink the elastic pool, 60s
+     */
+    private static final long DEFAULT_IDLE_COOLDOWN = 60 * 1000;
+
     private int connectPoolSize = DEFAULT_POOL_SIZE;
 
+    /**
+     * elastic pool is enabled when the max pool size is greater than 0
+     */
+    private int minPoolSize = DEFAULT_POOL_SIZE;
+
+    private int maxPoolSize;
+
+    private int pendingThreshold = DEFAULT_PENDING_THRESHOLD;
+
+    private long pendingBytesThreshold = DEFAULT_PENDING_BYTES_THRESHOLD;
+
+    private long idleCooldown = DEFAULT_IDLE_COOLDOWN;
+
+    private DecodeStrategy decodeStrategy = DecodeStrategy.POOL;
+
+    private int decodePoolSize = DEFAULT_DECODE_POOL_SIZE;
+
+    private int decodeQueueSize = DEFAULT_DECODE_QUEUE_SIZE;
+
+    private int inlineThreshold = DEFAULT_INLINE_THRESHOLD;
+
+    private Executor decodeExecutor;
+
     public PhotonConnectOptions() {
     }
 
     public PhotonConnectOptions(PhotonConnectOptions other) {
         super(other);
         connectPoolSize = other.connectPoolSize;
+        minPoolSize = other.minPoolSize;
+        maxPoolSize = other.maxPoolSize;
+        pendingThreshold = other.pendingThreshold;
+        pendingBytesThreshold = other.pendingBytesThreshold;
+        idleCooldown = other.idleCooldown;
+        decodeStrategy = other.decodeStrategy;
+        decodePoolSize = other.decodePoolSize;
+        decodeQueueSize = other.decodeQueueSize;
+        inlineThreshold = other.inlineThreshold;
+        decodeExecutor = other.decodeExecutor;
     }
 
     public int getConnectPoolSize() {
@@ -40,4 +123,101 @@ public class PhotonConnectOptions extends com.dinstone.photon.ConnectOptions imp
         return this;
     }
 
+    public boolean isElasticPool() {
+        return maxPoolSize > 0;
+    }
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public PhotonConnectOptions setMinPoolSize(int minPoolSize) {
+        this.minPoolSize = minPoolSize;
+        return this;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public PhotonConnectOptions setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+        return this;
+    }
+
+    public int getPendingThreshold() {
+        return pendingThreshold;
+    }
+
+    public PhotonConnectOptions setPendingThreshold(int pendingThreshold) {
+        this.pendingThreshold = pendingThreshold;
+        return this;
+    }
+
+    public long getPendingBytesThreshold() {
+        return pendingBytesThreshold;
+    }
+
+    public PhotonConnectOptions setPendingBytesThreshold(long pendingBytesThreshold) {
+        this.pendingBytesThreshold = pendingBytesThreshold;
+        return this;
+    }
+
+    public long getIdleCooldown() {
+        return idleCooldown;
+    }
+
+    public PhotonConnectOptions setIdleCooldown(long idleCooldown) {
+        this.idleCooldown = idleCooldown;
+        return this;
+    }
+
+    public DecodeStrategy getDecodeStrategy() {
+        return decodeStrategy;
+    }
+
+    public PhotonConnectOptions setDecodeStrategy(DecodeStrategy decodeStrategy) {
+        this.decodeStrategy = decodeStrategy;
+        return this;
+    }
+
+    public int getDecodePoolSize() {
+        return decodePoolSize;
+    }
+
+    public PhotonConnectOptions setDecodePoolSize(int decodePoolSize) {
+        this.decodePoolSize = decodePoolSize;
+        return this;
+    }
+
+    public int getDecodeQueueSize() {
+        return decodeQueueSize;
+    }
+
+    public PhotonConnectOptions setDecodeQueueSize(int decodeQueueSize) {
+        this.decodeQueueSize = decodeQueueSize;
+        return this;
+    }
+
+    public int getInlineThreshold() {
+        return inlineThreshold;
+    }
+
+    public PhotonConnectOptions setInlineThreshold(int inlineThreshold) {
+        this.inlineThreshold = inlineThreshold;
+        return this;
+    }
+
+    public Executor getDecodeExecutor() {
+        return decodeExecutor;
+    }
+
+    /**
+     * set the caller's executor for {@link DecodeStrategy#EXECUTOR}
+     */
+    public PhotonConnectOptions setDecodeExecutor(Executor decodeExecutor) {
+        this.decodeExecutor = decodeExecutor;
+        return this;
+    }
+
 }
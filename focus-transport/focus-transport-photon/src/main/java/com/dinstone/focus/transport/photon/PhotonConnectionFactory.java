@@ -15,37 +15,53 @@
  */
 package com.dinstone.focus.transport.photon;
 
+import java.net.ConnectException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import com.dinstone.photon.Connection;
+import com.dinstone.focus.transport.pool.ConnectionPool;
 import com.dinstone.photon.Connector;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
+
 public class PhotonConnectionFactory {
 
+    private static final int CONNECT_THREAD_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
     private final Connector photonConnector;
 
     private final PhotonConnectOptions connectOptions;
 
-    private final ConcurrentMap<InetSocketAddress, ConnectionPool> connectionPoolMap;
+    private final ConcurrentMap<InetSocketAddress, PhotonPool> connectionPoolMap;
+
+    private final ScheduledThreadPoolExecutor connectExecutor;
 
     public PhotonConnectionFactory(PhotonConnectOptions connectOptions) {
         this.connectOptions = connectOptions;
         this.photonConnector = new Connector(connectOptions);
         this.connectionPoolMap = new ConcurrentHashMap<>();
+        this.connectExecutor = new ScheduledThreadPoolExecutor(CONNECT_THREAD_SIZE,
+                new DefaultThreadFactory("PCF-Connect", true));
+        this.connectExecutor.setRemoveOnCancelPolicy(true);
     }
 
-    public Connection create(InetSocketAddress socketAddress) throws Exception {
-        ConnectionPool connectionPool = connectionPoolMap.get(socketAddress);
+    public PooledConnection create(InetSocketAddress socketAddress) throws Exception {
+        PhotonPool connectionPool = connectionPoolMap.get(socketAddress);
         if (connectionPool == null) {
-            connectionPool = connectionPoolMap.computeIfAbsent(socketAddress, ConnectionPool::new);
+            connectionPool = connectionPoolMap.computeIfAbsent(socketAddress, PhotonPool::new);
         }
         return connectionPool.getConnection();
     }
 
     public void destroy() {
-        for (ConnectionPool connectionPool : connectionPoolMap.values()) {
+        connectExecutor.shutdownNow();
+        for (PhotonPool connectionPool : connectionPoolMap.values()) {
             if (connectionPool != null) {
                 connectionPool.destroy();
             }
@@ -54,45 +70,92 @@ public class PhotonConnectionFactory {
         photonConnector.destroy().awaitUninterruptibly();
     }
 
-    class ConnectionPool {
+    /**
+     * photon connection pool of one address, selects the live connection with the least pending requests. In elastic
+     * mode the pool grows up to the max size when the least loaded connection crosses the pending thresholds.
+     */
+    class PhotonPool extends ConnectionPool<PooledConnection> {
 
         private final InetSocketAddress socketAddress;
 
-        private final Connection[] connections;
+        private final int pendingThreshold;
 
-        private int count;
+        private final long pendingBytesThreshold;
 
-        public ConnectionPool(InetSocketAddress socketAddress) {
+        public PhotonPool(InetSocketAddress socketAddress) {
+            super(minSize(connectOptions), maxSize(connectOptions), connectOptions.getIdleCooldown(), connectExecutor);
             this.socketAddress = socketAddress;
-            this.connections = new Connection[connectOptions.getConnectPoolSize()];
+            this.pendingThreshold = connectOptions.getPendingThreshold();
+            this.pendingBytesThreshold = connectOptions.getPendingBytesThreshold();
         }
 
-        public synchronized Connection getConnection() throws Exception {
-            int index = count++ % connections.length;
-            if (index < 0) {
-                index = 0;
-                count = 0;
+        public PooledConnection getConnection() throws Exception {
+            CompletableFuture<PooledConnection> future = acquire();
+            int connectTimeout = connectOptions.getConnectTimeout();
+            try {
+                // the connect tasks may queue behind the others, never wait longer than a connect
+                return connectTimeout > 0 ? future.get(connectTimeout, TimeUnit.MILLISECONDS) : future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            } catch (TimeoutException e) {
+                throw new ConnectException("connect timeout " + connectTimeout + "ms : " + socketAddress);
             }
-            Connection connection = connections[index];
-            if (connection == null || !connection.isActive()) {
-                if (connection != null) {
-                    connection.destroy();
+        }
+
+        @Override
+        protected CompletableFuture<PooledConnection> connect() {
+            CompletableFuture<PooledConnection> connecting = new CompletableFuture<>();
+            connectExecutor.execute(() -> {
+                try {
+                    connecting.complete(new PooledConnection(photonConnector.connect(socketAddress)));
+                } catch (Throwable e) {
+                    connecting.completeExceptionally(e);
                 }
+            });
+            return connecting;
+        }
 
-                connection = photonConnector.connect(socketAddress);
-                connections[index] = connection;
-            }
-            return connection;
+        @Override
+        protected boolean isActive(PooledConnection connection) {
+            return connection.isActive();
         }
 
-        public void destroy() {
-            for (Connection connection : connections) {
-                if (connection != null) {
-                    connection.destroy();
-                }
-            }
+        @Override
+        protected int load(PooledConnection connection) {
+            return connection.getPendingCount();
+        }
+
+        @Override
+        protected boolean isBusy(PooledConnection connection) {
+            return connection.getPendingCount() >= pendingThreshold
+                    || connection.getPendingBytes() >= pendingBytesThreshold;
         }
 
+        @Override
+        protected boolean isDrained(PooledConnection connection) {
+            return connection.getPendingCount() <= 0;
+        }
+
+        @Override
+        protected void close(PooledConnection connection) {
+            connection.destroy();
+        }
+
+    }
+
+    private static int minSize(PhotonConnectOptions connectOptions) {
+        if (connectOptions.isElasticPool()) {
+            return Math.max(1, connectOptions.getMinPoolSize());
+        }
+        return Math.max(1, connectOptions.getConnectPoolSize());
+    }
+
+    private static int maxSize(PhotonConnectOptions connectOptions) {
+        if (connectOptions.isElasticPool()) {
+            return Math.max(minSize(connectOptions), connectOptions.getMaxPoolSize());
+        }
+        return minSize(connectOptions);
     }
 
 }
@@ -15,8 +15,14 @@
  */
 package com.dinstone.focus.transport.photon;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.dinstone.focus.StatusCode;
 import com.dinstone.focus.compress.Compressor;
@@ -30,13 +36,14 @@ import com.dinstone.focus.invoke.Invocation;
 import com.dinstone.focus.naming.ServiceInstance;
 import com.dinstone.focus.serialize.Serializer;
 import com.dinstone.focus.transport.Connector;
+import com.dinstone.focus.transport.photon.PhotonConnectOptions.DecodeStrategy;
 import com.dinstone.focus.utils.ConstantUtil;
 import com.dinstone.focus.utils.NetworkUtil;
-import com.dinstone.photon.Connection;
 import com.dinstone.photon.message.Headers;
 import com.dinstone.photon.message.Request;
 import com.dinstone.photon.message.Response;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 public class PhotonConnector implements Connector {
 
@@ -44,11 +51,42 @@ public class PhotonConnector implements Connector {
 
     private final PhotonConnectionFactory secureConnectionFactory;
 
+    private final DecodeMetrics decodeMetrics = new DecodeMetrics();
+
+    private final DecodeStrategy decodeStrategy;
+
+    private final int inlineThreshold;
+
+    private final Executor decodeExecutor;
+
+    private ThreadPoolExecutor decodePool;
+
     public PhotonConnector(PhotonConnectOptions connectOptions) {
         if (connectOptions == null) {
             throw new IllegalArgumentException("connectOptions is null");
         }
 
+        decodeStrategy = connectOptions.getDecodeStrategy() == null ? DecodeStrategy.POOL
+                : connectOptions.getDecodeStrategy();
+        inlineThreshold = connectOptions.getInlineThreshold();
+        if (decodeStrategy == DecodeStrategy.EXECUTOR) {
+            if (connectOptions.getDecodeExecutor() == null) {
+                throw new IllegalArgumentException("decodeExecutor is null");
+            }
+            decodeExecutor = connectOptions.getDecodeExecutor();
+        } else {
+            int poolSize = connectOptions.getDecodePoolSize();
+            if (poolSize < 1) {
+                poolSize = PhotonConnectOptions.DEFAULT_DECODE_POOL_SIZE;
+            }
+            int queueSize = Math.max(1, connectOptions.getDecodeQueueSize());
+            // decode on the IO thread when the decode queue is full
+            decodePool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueSize), new DefaultThreadFactory("PCT-Decode", true),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            decodeExecutor = decodePool;
+        }
+
         PhotonConnectOptions commonConnectOptions = new PhotonConnectOptions(connectOptions);
         commonConnectOptions.setEnableSsl(false);
         commonConnectionFactory = new PhotonConnectionFactory(commonConnectOptions);
@@ -61,7 +99,7 @@ public class PhotonConnector implements Connector {
     @Override
     public CompletableFuture<Object> send(Invocation invocation, ServiceInstance instance) throws Exception {
         // create connection
-        Connection connection;
+        PooledConnection connection;
         if (instance.isEnableSsl()) {
             connection = secureConnectionFactory.create(instance.getInstanceAddress());
         } else {
@@ -69,21 +107,56 @@ public class PhotonConnector implements Connector {
         }
 
         String link = NetworkUtil.link(connection.getLocalAddress(), connection.getRemoteAddress());
-        invocation.context().put(ConstantUtil.RPC_LINK, link);
+        invocation.context().put(ConstantUtil.RPC_LINK_KEY, link);
 
         ServiceConfig serviceConfig = invocation.getServiceConfig();
         MethodConfig methodConfig = invocation.getMethodConfig();
 
         // codec invocation to request
-        Request request = encode(invocation, serviceConfig, methodConfig);
+        Request request = encode(invocation, serviceConfig, methodConfig, connection.getMethodId(methodConfig));
 
         // process request
-        return connection.sendRequest(request).thenApplyAsync((response) -> {
+        return connection.sendRequest(request).thenCompose((response) -> {
+            // learn the method id for the later requests
+            String methodId = response.headers().get(Invocation.METHOD_ID_KEY);
+            if (methodId != null) {
+                connection.setMethodId(methodConfig, methodId);
+            }
             // process response
-            return decode(response, serviceConfig, methodConfig);
+            return decodeAsync(response, serviceConfig, methodConfig);
         });
     }
 
+    private CompletableFuture<Object> decodeAsync(Response response, ServiceConfig serviceConfig,
+            MethodConfig methodConfig) {
+        if (decodeStrategy == DecodeStrategy.INLINE) {
+            byte[] content = response.getContent();
+            if (content == null || content.length <= inlineThreshold) {
+                decodeMetrics.inlined();
+                return CompletableFuture.completedFuture(decode(response, serviceConfig, methodConfig));
+            }
+        }
+
+        long arrivalTime = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            decodeMetrics.queued(System.nanoTime() - arrivalTime);
+            return decode(response, serviceConfig, methodConfig);
+        }, decodeExecutor);
+    }
+
+    public DecodeMetrics getDecodeMetrics() {
+        return decodeMetrics;
+    }
+
+    private InputStream decompress(Compressor compressor, byte[] content, MethodConfig methodConfig) {
+        try {
+            return compressor.decode(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.CODEC_ERROR, "compress decode error: " + methodConfig.getMethodName(),
+                    e);
+        }
+    }
+
     private Object decode(Response response, ServiceConfig serviceConfig, MethodConfig methodConfig) {
         Headers headers = response.headers();
         if (response.getStatus() == StatusCode.SUCCESS) {
@@ -93,19 +166,16 @@ public class PhotonConnector implements Connector {
             } else {
                 String compressorType = headers.get(Compressor.TYPE_KEY);
                 Compressor compressor = serviceConfig.getCompressor();
-                if (compressor != null && compressorType != null) {
-                    try {
-                        content = compressor.decode(content);
-                    } catch (IOException e) {
-                        throw new ServiceException(ErrorCode.CODEC_ERROR,
-                                "compress decode error: " + methodConfig.getMethodName(), e);
-                    }
-                }
-
                 try {
                     Serializer serializer = serviceConfig.getSerializer();
                     Class<?> contentType = methodConfig.getReturnType();
-                    return serializer.decode(content, contentType);
+                    if (compressor != null && compressorType != null) {
+                        // decompress as a stream into the serializer, no intermediate array
+                        InputStream input = decompress(compressor, content, methodConfig);
+                        return serializer.decode(input, contentType);
+                    } else {
+                        return serializer.decode(content, contentType);
+                    }
                 } catch (IOException e) {
                     throw new ServiceException(ErrorCode.CODEC_ERROR,
                             "serialize decode error: " + methodConfig.getMethodName(), e);
@@ -123,7 +193,8 @@ public class PhotonConnector implements Connector {
         }
     }
 
-    private Request encode(Invocation invocation, ServiceConfig serviceConfig, MethodConfig methodConfig) {
+    private Request encode(Invocation invocation, ServiceConfig serviceConfig, MethodConfig methodConfig,
+            String methodId) {
         byte[] content = null;
         if (invocation.getParameter() != null) {
             try {
@@ -150,9 +221,14 @@ public class PhotonConnector implements Connector {
         Request request = new Request();
         Headers headers = request.headers();
         headers.add(Invocation.CONSUMER_KEY, invocation.getConsumer());
-        headers.add(Invocation.PROVIDER_KEY, invocation.getProvider());
-        headers.add(Invocation.SERVICE_KEY, invocation.getService());
-        headers.add(Invocation.METHOD_KEY, invocation.getMethod());
+        if (methodId != null) {
+            // the method id replaces the provider, service and method names
+            headers.add(Invocation.METHOD_ID_KEY, methodId);
+        } else {
+            headers.add(Invocation.PROVIDER_KEY, invocation.getProvider());
+            headers.add(Invocation.SERVICE_KEY, invocation.getService());
+            headers.add(Invocation.METHOD_KEY, invocation.getMethod());
+        }
         headers.setAll(invocation.attributes().entrySet());
         request.setTimeout(invocation.getTimeout());
         request.setContent(content);
@@ -162,6 +238,10 @@ public class PhotonConnector implements Connector {
     @Override
     public void destroy() {
         commonConnectionFactory.destroy();
+        secureConnectionFactory.destroy();
+        if (decodePool != null) {
+            decodePool.shutdown();
+        }
     }
 
 }
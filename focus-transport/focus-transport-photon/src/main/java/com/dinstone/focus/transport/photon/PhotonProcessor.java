@@ -15,10 +15,17 @@
  */
 package com.dinstone.focus.transport.photon;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.function.Function;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import com.dinstone.focus.StatusCode;
 import com.dinstone.focus.compress.Compressor;
@@ -29,9 +36,13 @@ import com.dinstone.focus.exception.InvokeException;
 import com.dinstone.focus.exception.ServiceException;
 import com.dinstone.focus.invoke.Context;
 import com.dinstone.focus.invoke.DefaultInvocation;
+import com.dinstone.focus.invoke.HeaderAttributes;
 import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.invoke.InvocationRecycler;
 import com.dinstone.focus.serialize.Serializer;
 import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.transport.executor.StallWatchdog;
 import com.dinstone.focus.utils.ConstantUtil;
 import com.dinstone.focus.utils.NetworkUtil;
 import com.dinstone.photon.Connection;
@@ -42,38 +53,82 @@ import com.dinstone.photon.message.Response;
 import io.netty.util.CharsetUtil;
 
 public final class PhotonProcessor extends Processor {
-    private final Function<String, ServiceConfig> serviceFinder;
+    private final MethodDictionary methodDictionary;
     private final ExecutorSelector executorSelector;
     private final ExecutorService sharedExecutor;
+    private final boolean loadShedding;
+    // created at the first inline dispatch invocation
+    private final Supplier<StallWatchdog> stallWatchdog;
+    private final InvocationRecycler invocationRecycler;
+    private final Map<MethodConfig, ServiceTime> serviceTimes = new ConcurrentHashMap<>();
 
-    public PhotonProcessor(Function<String, ServiceConfig> serviceFinder, ExecutorService sharedExecutor,
-            ExecutorSelector executorSelector) {
-        this.serviceFinder = serviceFinder;
+    public PhotonProcessor(MethodDictionary methodDictionary, ExecutorService sharedExecutor,
+            ExecutorSelector executorSelector, boolean loadShedding, Supplier<StallWatchdog> stallWatchdog,
+            InvocationRecycler invocationRecycler) {
+        this.methodDictionary = methodDictionary;
         this.sharedExecutor = sharedExecutor;
         this.executorSelector = executorSelector;
+        this.loadShedding = loadShedding;
+        this.stallWatchdog = stallWatchdog;
+        this.invocationRecycler = invocationRecycler;
     }
 
     @Override
     public void process(Connection connection, Request request) {
-        Executor methodExecutor = methodExecutor(request);
-        if (methodExecutor != null) {
-            methodExecutor.execute(() -> invoke(connection, request));
-        } else {
-            sharedExecutor.execute(() -> invoke(connection, request));
+        long arrivalTime = System.nanoTime();
+        MethodDictionary.Entry entry;
+        try {
+            // resolve by the method id or the names
+            Headers headers = request.headers();
+            entry = methodDictionary.resolve(headers.get(Invocation.METHOD_ID_KEY),
+                    headers.get(Invocation.SERVICE_KEY), headers.get(Invocation.METHOD_KEY));
+        } catch (Throwable e) {
+            errorHandle(connection, request, e);
+            return;
+        }
+
+        if (entry.getMethodConfig().isInlineDispatch()) {
+            // non-blocking method, invoke on the event loop
+            invokeInline(connection, request, entry, arrivalTime);
+            return;
+        }
+
+        Executor methodExecutor = methodExecutor(entry, request.headers());
+        Executor executor = methodExecutor != null ? methodExecutor : sharedExecutor;
+        try {
+            executor.execute(() -> invoke(connection, request, entry, arrivalTime));
+        } catch (RejectedExecutionException e) {
+            // the business queue is full, reject immediately
+            errorHandle(connection, request, new ServiceException(ErrorCode.OVERLOAD_ERROR, "server is overload"));
         }
     }
 
-    private Executor methodExecutor(Request request) {
+    private void invokeInline(Connection connection, Request request, MethodDictionary.Entry entry,
+            long arrivalTime) {
+        StallWatchdog watchdog = stallWatchdog.get();
+        if (watchdog == null) {
+            invoke(connection, request, entry, arrivalTime);
+            return;
+        }
+
+        watchdog.enter(entry);
+        try {
+            invoke(connection, request, entry, arrivalTime);
+        } finally {
+            watchdog.exit();
+        }
+    }
+
+    private Executor methodExecutor(MethodDictionary.Entry entry, Headers headers) {
         if (executorSelector != null) {
-            Headers headers = request.headers();
-            String s = headers.get(Invocation.SERVICE_KEY);
-            String m = headers.get(Invocation.METHOD_KEY);
-            return executorSelector.select(s, m);
+            String s = entry.getServiceConfig().getService();
+            String m = entry.getMethodConfig().getMethodName();
+            return executorSelector.select(s, m, headers::get);
         }
         return null;
     }
 
-    private void invoke(Connection connection, Request request) {
+    private void invoke(Connection connection, Request request, MethodDictionary.Entry entry, long arrivalTime) {
         InvokeException exception;
         try {
             // check request timeout
@@ -81,43 +136,49 @@ public final class PhotonProcessor extends Processor {
                 throw new InvokeException(ErrorCode.TIMEOUT_ERROR, "request timeout");
             }
 
-            Headers headers = request.headers();
-            // check service
-            String service = headers.get(Invocation.SERVICE_KEY);
-            ServiceConfig serviceConfig = serviceFinder.apply(service);
-            if (serviceConfig == null) {
-                throw new ServiceException(ErrorCode.SERVICE_ERROR, "unknown service: " + service);
-            }
+            ServiceConfig serviceConfig = entry.getServiceConfig();
+            MethodConfig methodConfig = entry.getMethodConfig();
 
-            // check method
-            String methodName = headers.get(Invocation.METHOD_KEY);
-            MethodConfig methodConfig = serviceConfig.lookup(methodName);
-            if (methodConfig == null) {
-                throw new ServiceException(ErrorCode.METHOD_ERROR, "unknown method: " + service + "/" + methodName);
+            // drop the request which can't finish before its deadline
+            ServiceTime serviceTime = serviceTimes.computeIfAbsent(methodConfig, k -> new ServiceTime());
+            if (loadShedding && request.getTimeout() > 0) {
+                long now = System.nanoTime();
+                long remaining = TimeUnit.MILLISECONDS.toNanos(request.getTimeout()) - (now - arrivalTime);
+                if (serviceTime.shed(remaining, now)) {
+                    throw new InvokeException(ErrorCode.TIMEOUT_ERROR, "request shed, remaining deadline "
+                            + TimeUnit.NANOSECONDS.toMillis(remaining) + "ms is below the service time");
+                }
             }
+            long startTime = System.nanoTime();
+            // teach the client the method id if it has not learned yet
+            boolean learnId = entry.hasId() && request.headers().get(Invocation.METHOD_ID_KEY) == null;
 
             // decode invocation from request
             DefaultInvocation invocation = decode(request, serviceConfig, methodConfig);
 
-            try (Context context = Context.create()) {
-                // set link
-                String link = NetworkUtil.link(connection.getRemoteAddress(), connection.getLocalAddress());
-                context.put(ConstantUtil.RPC_LINK, link);
-
-                // invoke invocation
-                serviceConfig.getHandler().handle(invocation).whenComplete((reply, error) -> {
-                    if (error != null) {
-                        errorHandle(connection, request, error);
-                    } else {
-                        // encode reply to response
-                        Response response = encode(reply, serviceConfig, methodConfig);
-                        response.setSequence(request.getSequence());
-
-                        // send response with reply
-                        connection.sendResponse(response);
+            Context context = Context.fork();
+            // set link
+            String link = NetworkUtil.link(connection.getRemoteAddress(), connection.getLocalAddress());
+            context.put(ConstantUtil.RPC_LINK_KEY, link);
+
+            // invoke invocation
+            context.call(() -> serviceConfig.getHandler().handle(invocation)).whenComplete((reply, error) -> {
+                serviceTime.record(System.nanoTime() - startTime);
+                if (error != null) {
+                    errorHandle(connection, request, error);
+                } else {
+                    // encode reply to response
+                    Response response = encode(reply, serviceConfig, methodConfig);
+                    response.setSequence(request.getSequence());
+                    if (learnId) {
+                        response.headers().add(Invocation.METHOD_ID_KEY, entry.getIdText());
                     }
-                });
-            }
+
+                    // send response with reply
+                    connection.sendResponse(response);
+                }
+                invocationRecycler.recycle(invocation);
+            });
 
             return;
         } catch (InvokeException e) {
@@ -159,6 +220,15 @@ public final class PhotonProcessor extends Processor {
         return response;
     }
 
+    private InputStream decompress(Compressor compressor, byte[] content, MethodConfig methodConfig) {
+        try {
+            return compressor.decode(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.CODEC_ERROR, "compress decode error: " + methodConfig.getMethodName(),
+                    e);
+        }
+    }
+
     private DefaultInvocation decode(Request request, ServiceConfig serviceConfig, MethodConfig methodConfig) {
         Object value;
         Headers headers = request.headers();
@@ -168,34 +238,33 @@ public final class PhotonProcessor extends Processor {
         } else {
             String compressorType = headers.get(Compressor.TYPE_KEY);
             Compressor compressor = serviceConfig.getCompressor();
-            if (compressor != null && compressorType != null) {
-                try {
-                    content = compressor.decode(content);
-                } catch (IOException e) {
-                    throw new ServiceException(ErrorCode.CODEC_ERROR,
-                            "compress decode error: " + methodConfig.getMethodName(), e);
-                }
-            }
-
             try {
                 Serializer serializer = serviceConfig.getSerializer();
                 Class<?> contentType = methodConfig.getParamType();
-                value = serializer.decode(content, contentType);
+                if (compressor != null && compressorType != null) {
+                    // decompress as a stream into the serializer, no intermediate array
+                    InputStream input = decompress(compressor, content, methodConfig);
+                    value = serializer.decode(input, contentType);
+                } else {
+                    value = serializer.decode(content, contentType);
+                }
             } catch (IOException e) {
                 throw new ServiceException(ErrorCode.CODEC_ERROR,
                         "serialize decode error: " + methodConfig.getMethodName(), e);
             }
         }
 
-        String service = headers.get(Invocation.SERVICE_KEY);
-        String method = headers.get(Invocation.METHOD_KEY);
-        DefaultInvocation invocation = new DefaultInvocation(service, method, value);
+        // the names are omitted when the request carries the method id
+        String service = serviceConfig.getService();
+        String method = methodConfig.getMethodName();
+        String provider = headers.get(Invocation.PROVIDER_KEY);
+        DefaultInvocation invocation = invocationRecycler.acquire(service, method, value);
         invocation.setConsumer(headers.get(Invocation.CONSUMER_KEY));
-        invocation.setProvider(headers.get(Invocation.PROVIDER_KEY));
+        invocation.setProvider(provider != null ? provider : serviceConfig.getProvider());
         invocation.setTimeout(request.getTimeout());
         invocation.setServiceConfig(serviceConfig);
         invocation.setMethodConfig(methodConfig);
-        headers.forEach(e -> invocation.attributes().put(e.getKey(), e.getValue()));
+        invocation.attributes(new RequestAttributes(headers));
         return invocation;
     }
 
@@ -217,4 +286,26 @@ public final class PhotonProcessor extends Processor {
         }
         connection.sendResponse(response);
     }
+
+    /**
+     * invocation attributes view of the request headers.
+     */
+    private static final class RequestAttributes extends HeaderAttributes {
+
+        private final Headers headers;
+
+        RequestAttributes(Headers headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        protected String header(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        protected void forEachHeader(BiConsumer<String, String> action) {
+            headers.forEach(e -> action.accept(e.getKey(), e.getValue()));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.photon;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.photon.Connection;
+import com.dinstone.photon.message.Request;
+import com.dinstone.photon.message.Response;
+
+/**
+ * photon connection with in-flight request counters, used by the pool to pick the least loaded connection and to
+ * resize the elastic pool. It also keeps the method ids learned from the server, the ids are only valid on the
+ * connection that learned them.
+ *
+ * @author dinstone
+ */
+public class PooledConnection {
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private final Map<MethodConfig, String> methodIds = new ConcurrentHashMap<>();
+
+    private final Connection connection;
+
+    public PooledConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    public CompletableFuture<Response> sendRequest(Request request) {
+        byte[] content = request.getContent();
+        int bytes = content == null ? 0 : content.length;
+
+        pendingCount.incrementAndGet();
+        pendingBytes.addAndGet(bytes);
+        try {
+            return connection.sendRequest(request).whenComplete((response, error) -> released(bytes));
+        } catch (RuntimeException e) {
+            released(bytes);
+            throw e;
+        }
+    }
+
+    private void released(int bytes) {
+        pendingBytes.addAndGet(-bytes);
+        pendingCount.decrementAndGet();
+    }
+
+    public String getMethodId(MethodConfig methodConfig) {
+        return methodIds.get(methodConfig);
+    }
+
+    public void setMethodId(MethodConfig methodConfig, String methodId) {
+        methodIds.put(methodConfig, methodId);
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public boolean isActive() {
+        return connection.isActive();
+    }
+
+    public SocketAddress getLocalAddress() {
+        return connection.getLocalAddress();
+    }
+
+    public SocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+
+    public void destroy() {
+        connection.destroy();
+    }
+
+}
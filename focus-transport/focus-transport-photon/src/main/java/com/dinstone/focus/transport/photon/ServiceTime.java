@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.photon;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * exponentially weighted moving average of a method's service time. The update is not atomic, a lost sample under
+ * contention is acceptable for an estimate.
+ *
+ * @author dinstone
+ */
+class ServiceTime {
+
+    private static final double ALPHA = 0.2;
+
+    /**
+     * a shed method lets one request through per interval, so the average can learn the method is fast again.
+     */
+    static final long PROBE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final AtomicLong lastProbe = new AtomicLong(System.nanoTime() - PROBE_INTERVAL);
+
+    private volatile long averageNanos;
+
+    void record(long nanos) {
+        long average = averageNanos;
+        averageNanos = average == 0 ? nanos : (long) (average + ALPHA * (nanos - average));
+    }
+
+    long getAverageNanos() {
+        return averageNanos;
+    }
+
+    /**
+     * @param remainingNanos
+     *            the time left before the request deadline
+     * @param now
+     *            the current {@link System#nanoTime()}
+     *
+     * @return true if the request can't finish before its deadline and is not picked as a probe
+     */
+    boolean shed(long remainingNanos, long now) {
+        if (remainingNanos >= averageNanos) {
+            return false;
+        }
+        long last = lastProbe.get();
+        return now - last < PROBE_INTERVAL || !lastProbe.compareAndSet(last, now);
+    }
+
+}
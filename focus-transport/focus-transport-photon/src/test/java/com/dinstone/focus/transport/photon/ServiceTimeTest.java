@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.photon;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServiceTimeTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void shedBelowServiceTime() {
+        ServiceTime serviceTime = new ServiceTime();
+        serviceTime.record(100 * MS);
+
+        long now = System.nanoTime();
+        Assert.assertFalse(serviceTime.shed(200 * MS, now));
+        // the first slow request is a probe, the next ones in the interval are shed
+        Assert.assertFalse(serviceTime.shed(50 * MS, now));
+        Assert.assertTrue(serviceTime.shed(50 * MS, now + MS));
+        Assert.assertTrue(serviceTime.shed(50 * MS, now + ServiceTime.PROBE_INTERVAL - MS));
+        Assert.assertFalse(serviceTime.shed(50 * MS, now + ServiceTime.PROBE_INTERVAL));
+    }
+
+    @Test
+    public void recoverAfterStall() {
+        ServiceTime serviceTime = new ServiceTime();
+        // a stall pushes the average far above the deadline
+        serviceTime.record(10000 * MS);
+
+        long now = System.nanoTime();
+        int probes = 0;
+        while (serviceTime.getAverageNanos() > 100 * MS) {
+            Assert.assertTrue("the method is never probed", probes < 100);
+            if (!serviceTime.shed(100 * MS, now)) {
+                probes++;
+                // the probe finds the method fast again
+                serviceTime.record(MS);
+            }
+            now += MS * 10;
+        }
+
+        Assert.assertTrue(probes > 1);
+        Assert.assertFalse(serviceTime.shed(100 * MS, now));
+        Assert.assertFalse(serviceTime.shed(100 * MS, now));
+    }
+
+}
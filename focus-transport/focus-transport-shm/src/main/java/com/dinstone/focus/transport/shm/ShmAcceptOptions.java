@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.dinstone.focus.transport.AcceptOptions;
+import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.focus.utils.NetworkUtil;
+
+public class ShmAcceptOptions implements AcceptOptions {
+
+    /**
+     * instance metadata : the base directory of the acceptor ring files, the acceptor listens on its port sub
+     * directory.
+     */
+    public static final String DIRECTORY_KEY = "transport.shm.path";
+
+    /**
+     * The default worker size = available processors
+     */
+    public static final int DEFAULT_WORKER_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The default idle timeout 30s
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+    /**
+     * The default busy spin count before the reader yields and parks
+     */
+    public static final int DEFAULT_SPIN_COUNT = 10000;
+
+    /**
+     * The default max park time of the idle reader 100us
+     */
+    public static final int DEFAULT_MAX_PARK_MICROS = 100;
+
+    private String directory;
+
+    private int workerSize;
+
+    private int idleTimeout;
+
+    private int spinCount;
+
+    private int maxParkMicros;
+
+    private ExecutorSelector executorSelector;
+
+    public ShmAcceptOptions() {
+        directory = System.getProperty("java.io.tmpdir") + File.separator + "focus-shm";
+        workerSize = DEFAULT_WORKER_SIZE;
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        spinCount = DEFAULT_SPIN_COUNT;
+        maxParkMicros = DEFAULT_MAX_PARK_MICROS;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * the base directory of the ring files, /dev/shm keeps them in memory. The clients must see the same directory.
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getWorkerSize() {
+        return workerSize;
+    }
+
+    /**
+     * the business thread size, the invocations run on the reader threads if it is 0.
+     */
+    public void setWorkerSize(int workerSize) {
+        this.workerSize = workerSize;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * the connection is closed if the peer reader doesn't report heartbeat in the idle timeout seconds.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getSpinCount() {
+        return spinCount;
+    }
+
+    public void setSpinCount(int spinCount) {
+        this.spinCount = spinCount;
+    }
+
+    public int getMaxParkMicros() {
+        return maxParkMicros;
+    }
+
+    /**
+     * the max park time of the idle reader, it bounds the wakeup latency of the idle connection.
+     */
+    public void setMaxParkMicros(int maxParkMicros) {
+        this.maxParkMicros = maxParkMicros;
+    }
+
+    @Override
+    public ExecutorSelector getExecutorSelector() {
+        return executorSelector;
+    }
+
+    public void setExecutorSelector(ExecutorSelector executorSelector) {
+        this.executorSelector = executorSelector;
+    }
+
+    @Override
+    public boolean isEnableSsl() {
+        return false;
+    }
+
+    @Override
+    public Map<String, String> getMetadata() {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(DIRECTORY_KEY, directory);
+        metadata.put(ConstantUtil.HOST_IDENTITY, NetworkUtil.getHostIdentity());
+        return metadata;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "shm";
+    }
+
+}
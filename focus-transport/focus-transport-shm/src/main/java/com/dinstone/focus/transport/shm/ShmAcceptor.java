@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.transport.Acceptor;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.transport.executor.NamedThreadFactory;
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * accepts the clients of the same host in the port sub directory of the base directory. The clients announce
+ * themselves by the ready marker files, the accept thread scans them.
+ *
+ * @author dinstone
+ */
+public class ShmAcceptor implements Acceptor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShmAcceptor.class);
+
+    private static final long SCAN_INTERVAL_MILLIS = 10;
+
+    private final ShmAcceptOptions acceptOptions;
+
+    private final ExecutorService businessExecutor;
+
+    private final ThreadFactory readerFactory;
+
+    private final Set<ShmConnection> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+
+    private Thread acceptThread;
+
+    private Path directory;
+
+    private ShmProcessor processor;
+
+    public ShmAcceptor(ShmAcceptOptions acceptOptions) {
+        this.acceptOptions = acceptOptions;
+        this.readerFactory = new NamedThreadFactory("SHM-Reader", true);
+
+        int workerSize = acceptOptions.getWorkerSize();
+        if (workerSize > 0) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(workerSize, workerSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new NamedThreadFactory("SHM-Work"));
+            executor.allowCoreThreadTimeOut(true);
+            businessExecutor = executor;
+        } else {
+            businessExecutor = null;
+        }
+    }
+
+    @Override
+    public void bind(InetSocketAddress serviceAddress, Function<String, ServiceConfig> serviceFinder) throws Exception {
+        bind(serviceAddress, new MethodDictionary(serviceFinder));
+    }
+
+    @Override
+    public void bind(InetSocketAddress serviceAddress, MethodDictionary methodDictionary) throws Exception {
+        directory = Paths.get(acceptOptions.getDirectory(), String.valueOf(serviceAddress.getPort()));
+        Files.createDirectories(directory);
+        // the ring files of the last run are stale
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                ShmConnection.delete(file);
+            }
+        }
+
+        processor = new ShmProcessor(methodDictionary, acceptOptions.getExecutorSelector(), businessExecutor);
+        running = true;
+        acceptThread = new NamedThreadFactory("SHM-Accept", true).newThread(this::scan);
+        acceptThread.start();
+    }
+
+    private void scan() {
+        String pattern = "*" + ShmConnection.READY_SUFFIX;
+        while (running) {
+            try (DirectoryStream<Path> readyFiles = Files.newDirectoryStream(directory, pattern)) {
+                for (Path readyFile : readyFiles) {
+                    String name = readyFile.getFileName().toString();
+                    accept(name.substring(0, name.length() - ShmConnection.READY_SUFFIX.length()));
+                }
+            } catch (IOException e) {
+                LOG.warn("shm acceptor scans {} error", directory, e);
+            }
+
+            try {
+                Thread.sleep(SCAN_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void accept(String id) {
+        ShmConnection connection;
+        try {
+            connection = ShmConnection.accept(directory, id, acceptOptions);
+        } catch (IOException e) {
+            LOG.warn("shm acceptor accepts {} error", id, e);
+            return;
+        }
+
+        connections.add(connection);
+        connection.start(record -> processor.process(connection, record), () -> connections.remove(connection),
+                readerFactory);
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (acceptThread != null) {
+            acceptThread.interrupt();
+        }
+        for (ShmConnection connection : connections) {
+            connection.close();
+        }
+        if (businessExecutor != null) {
+            businessExecutor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import com.dinstone.focus.transport.Acceptor;
+import com.dinstone.focus.transport.AcceptorFactory;
+import com.dinstone.focus.transport.AcceptOptions;
+
+public class ShmAcceptorFactory implements AcceptorFactory {
+
+    @Override
+    public boolean applicable(AcceptOptions acceptOptions) {
+        return acceptOptions instanceof ShmAcceptOptions;
+    }
+
+    @Override
+    public Acceptor create(AcceptOptions acceptOptions) {
+        return new ShmAcceptor((ShmAcceptOptions) acceptOptions);
+    }
+
+}
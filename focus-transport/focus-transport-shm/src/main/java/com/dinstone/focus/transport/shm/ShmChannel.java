@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.ExceptionUtil;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * the client side of a shm connection, the responses are matched to the calls by the frame id. The reader thread only
+ * drains the ring, the responses are decoded and completed on the callback executor.
+ *
+ * @author dinstone
+ */
+public class ShmChannel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShmChannel.class);
+
+    private final ShmConnection connection;
+
+    private final Executor callbackExecutor;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ConcurrentMap<Long, Call> calls = new ConcurrentHashMap<>();
+
+    // method ids learned from the server, only valid on this connection
+    private final Map<MethodConfig, String> methodIds = new ConcurrentHashMap<>();
+
+    ShmChannel(ShmConnection connection, ThreadFactory readerFactory, Executor callbackExecutor) {
+        this.connection = connection;
+        this.callbackExecutor = callbackExecutor;
+        connection.start(this::receive, this::closed, readerFactory);
+    }
+
+    public boolean isActive() {
+        return connection.isActive();
+    }
+
+    public String getLink() {
+        return "shm:" + connection.getId();
+    }
+
+    public void destroy() {
+        connection.close();
+    }
+
+    public CompletableFuture<Object> send(Invocation invocation) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        ServiceConfig serviceConfig = invocation.getServiceConfig();
+        MethodConfig methodConfig = invocation.getMethodConfig();
+
+        long id = sequence.incrementAndGet();
+        ShmFrame request = new ShmFrame(id, ShmFrame.REQUEST);
+        // encode first, the codec types are carried by the invocation attributes
+        request.setContent(ShmCodec.encode(invocation.getParameter(), methodConfig.getParamType(), serviceConfig,
+                methodConfig, invocation.attributes()::put));
+
+        Map<String, String> headers = request.headers();
+        headers.put(Invocation.CONSUMER_KEY, invocation.getConsumer());
+        String methodId = methodIds.get(methodConfig);
+        if (methodId != null) {
+            // the method id replaces the provider, service and method names
+            headers.put(Invocation.METHOD_ID_KEY, methodId);
+        } else {
+            headers.put(Invocation.PROVIDER_KEY, invocation.getProvider());
+            headers.put(Invocation.SERVICE_KEY, invocation.getService());
+            headers.put(Invocation.METHOD_KEY, invocation.getMethod());
+        }
+        headers.put(Invocation.TIMEOUT_KEY, String.valueOf(invocation.getTimeout()));
+        invocation.attributes().forEach((k, v) -> {
+            if (k != null && v != null) {
+                headers.put(k, v);
+            }
+        });
+
+        calls.put(id, new Call(future, serviceConfig, methodConfig));
+        try {
+            connection.send(request.encode());
+        } catch (IllegalArgumentException e) {
+            // the request is larger than the ring
+            calls.remove(id);
+            future.completeExceptionally(new ServiceException(ErrorCode.CODEC_ERROR, e.getMessage()));
+        } catch (IOException e) {
+            // nothing is sent, the request can be retried on another instance
+            calls.remove(id);
+            ConnectException error = new ConnectException("shm connection is closed: " + e);
+            error.initCause(e);
+            future.completeExceptionally(error);
+            return future;
+        }
+        // the close handler may have failed the pending calls before this one was put
+        if (connection.isClosed() && calls.remove(id) != null) {
+            future.completeExceptionally(new ServiceException(ErrorCode.INVOKE_ERROR,
+                    "shm connection is closed before the response: " + methodConfig.getMethodName()));
+        }
+        return future;
+    }
+
+    private void receive(byte[] record) {
+        try {
+            callbackExecutor.execute(() -> handle(record));
+        } catch (RejectedExecutionException e) {
+            // the connector is destroyed
+            handle(record);
+        }
+    }
+
+    private void handle(byte[] record) {
+        ShmFrame response;
+        try {
+            response = ShmFrame.decode(record);
+        } catch (IOException e) {
+            LOG.warn("shm connection {} drops the broken response", connection.getId(), e);
+            return;
+        }
+
+        Call call = calls.remove(response.getId());
+        if (call == null) {
+            return;
+        }
+        try {
+            call.handle(response);
+        } catch (Throwable e) {
+            call.future.completeExceptionally(e);
+        }
+    }
+
+    private void closed() {
+        Iterator<Call> iterator = calls.values().iterator();
+        while (iterator.hasNext()) {
+            Call call = iterator.next();
+            iterator.remove();
+            call.future.completeExceptionally(new ServiceException(ErrorCode.INVOKE_ERROR,
+                    "shm connection is closed before the response: " + call.methodConfig.getMethodName()));
+        }
+    }
+
+    private class Call {
+
+        private final CompletableFuture<Object> future;
+        private final ServiceConfig serviceConfig;
+        private final MethodConfig methodConfig;
+
+        Call(CompletableFuture<Object> future, ServiceConfig serviceConfig, MethodConfig methodConfig) {
+            this.future = future;
+            this.serviceConfig = serviceConfig;
+            this.methodConfig = methodConfig;
+        }
+
+        void handle(ShmFrame response) {
+            Map<String, String> headers = response.headers();
+            if (response.getType() == ShmFrame.RESPONSE) {
+                // learn the method id for the later requests
+                String methodId = headers.get(Invocation.METHOD_ID_KEY);
+                if (methodId != null) {
+                    methodIds.put(methodConfig, methodId);
+                }
+
+                Object value = ShmCodec.decode(response.getContent(), methodConfig.getReturnType(),
+                        headers.get(Compressor.TYPE_KEY), serviceConfig, methodConfig);
+                future.complete(value);
+            } else {
+                // error handle
+                String message = null;
+                if (response.getContent() != null) {
+                    message = new String(response.getContent(), StandardCharsets.UTF_8);
+                }
+
+                String errorCode = headers.get(InvokeException.CODE_KEY);
+                int code = errorCode != null ? Integer.parseInt(errorCode) : 0;
+                future.complete(ExceptionUtil.invokeException(code, message));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.serialize.Serializer;
+
+/**
+ * the content codec of the shm transport, shared by the request and the response side.
+ *
+ * @author dinstone
+ */
+final class ShmCodec {
+
+    private ShmCodec() {
+    }
+
+    /**
+     * serialize and compress the value, the codec types are reported to the type consumer.
+     *
+     * @return null if the value is null
+     */
+    static byte[] encode(Object value, Class<?> type, ServiceConfig serviceConfig, MethodConfig methodConfig,
+            BiConsumer<String, String> codecTypes) {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] content;
+        try {
+            Serializer serializer = serviceConfig.getSerializer();
+            content = serializer.encode(value, type);
+            codecTypes.accept(Serializer.TYPE_KEY, serializer.type());
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.CODEC_ERROR,
+                    "serialize encode error: " + methodConfig.getMethodName(), e);
+        }
+
+        Compressor compressor = serviceConfig.getCompressor();
+        if (compressor != null && content.length > serviceConfig.getCompressThreshold()) {
+            try {
+                content = compressor.encode(content);
+                codecTypes.accept(Compressor.TYPE_KEY, compressor.type());
+            } catch (IOException e) {
+                throw new ServiceException(ErrorCode.CODEC_ERROR,
+                        "compress encode error: " + methodConfig.getMethodName(), e);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * decompress and deserialize the content.
+     */
+    static Object decode(byte[] content, Class<?> type, String compressorType, ServiceConfig serviceConfig,
+            MethodConfig methodConfig) {
+        if (content == null) {
+            return null;
+        }
+
+        Compressor compressor = serviceConfig.getCompressor();
+        if (compressor != null && compressorType != null) {
+            try {
+                content = compressor.decode(content);
+            } catch (IOException e) {
+                throw new ServiceException(ErrorCode.CODEC_ERROR,
+                        "compress decode error: " + methodConfig.getMethodName(), e);
+            }
+        }
+
+        try {
+            return serviceConfig.getSerializer().decode(content, type);
+        } catch (IOException e) {
+            throw new ServiceException(ErrorCode.CODEC_ERROR,
+                    "serialize decode error: " + methodConfig.getMethodName(), e);
+        }
+    }
+
+}
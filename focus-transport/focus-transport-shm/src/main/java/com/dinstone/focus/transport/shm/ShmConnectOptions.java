@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import com.dinstone.focus.transport.ConnectOptions;
+
+public class ShmConnectOptions implements ConnectOptions {
+
+    /**
+     * The default ring size 4MB per direction
+     */
+    public static final int DEFAULT_RING_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The default connect timeout 3000ms
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+
+    /**
+     * The default idle timeout 30s
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+    /**
+     * The default busy spin count before the reader yields and parks
+     */
+    public static final int DEFAULT_SPIN_COUNT = 10000;
+
+    /**
+     * The default max park time of the idle reader 100us
+     */
+    public static final int DEFAULT_MAX_PARK_MICROS = 100;
+
+    /**
+     * The default callback thread size, decode and complete the responses off the reader thread
+     */
+    public static final int DEFAULT_CALLBACK_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private int ringSize;
+
+    private int connectTimeout;
+
+    private int idleTimeout;
+
+    private int spinCount;
+
+    private int maxParkMicros;
+
+    private int callbackSize;
+
+    public ShmConnectOptions() {
+        ringSize = DEFAULT_RING_SIZE;
+        connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        spinCount = DEFAULT_SPIN_COUNT;
+        maxParkMicros = DEFAULT_MAX_PARK_MICROS;
+        callbackSize = DEFAULT_CALLBACK_SIZE;
+    }
+
+    public ShmConnectOptions(ShmConnectOptions other) {
+        ringSize = other.ringSize;
+        connectTimeout = other.connectTimeout;
+        idleTimeout = other.idleTimeout;
+        spinCount = other.spinCount;
+        maxParkMicros = other.maxParkMicros;
+        callbackSize = other.callbackSize;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    /**
+     * the ring size in bytes of both directions, it is rounded up to a power of two.
+     */
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * the time in milliseconds to wait for the acceptor to open the rings.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * the connection is closed if the peer reader doesn't report heartbeat in the idle timeout seconds.
+     */
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getSpinCount() {
+        return spinCount;
+    }
+
+    public void setSpinCount(int spinCount) {
+        this.spinCount = spinCount;
+    }
+
+    public int getMaxParkMicros() {
+        return maxParkMicros;
+    }
+
+    /**
+     * the max park time of the idle reader, it bounds the wakeup latency of the idle connection.
+     */
+    public void setMaxParkMicros(int maxParkMicros) {
+        this.maxParkMicros = maxParkMicros;
+    }
+
+    public int getCallbackSize() {
+        return callbackSize;
+    }
+
+    /**
+     * the threads decoding the responses and completing the calls, so the reader keeps draining the ring.
+     */
+    public void setCallbackSize(int callbackSize) {
+        this.callbackSize = callbackSize;
+    }
+
+    @Override
+    public boolean isEnableSsl() {
+        return false;
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+/**
+ * a pair of rings between a client and the acceptor. The client creates the request and the response ring files and
+ * a ready marker in the acceptor directory, the acceptor maps them and opens the request ring.
+ * <p>
+ * Every side has one reader thread polling its inbound ring, it reports the heartbeat on the inbound ring and checks
+ * the peer heartbeat on the outbound ring, so the crashed peer is found after the idle timeout.
+ *
+ * @author dinstone
+ */
+final class ShmConnection {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShmConnection.class);
+
+    static final String REQUEST_SUFFIX = ".req";
+
+    static final String RESPONSE_SUFFIX = ".rsp";
+
+    static final String READY_SUFFIX = ".ready";
+
+    private static final long HEARTBEAT_MILLIS = 1000;
+
+    private static final int CHECK_READS = 1024;
+
+    private final String id;
+
+    private final ShmRing inbound;
+
+    private final ShmRing outbound;
+
+    private final int spinCount;
+
+    private final long maxParkNanos;
+
+    private final long idleTimeoutMillis;
+
+    // the writers may be virtual threads, spinning in a monitor would pin their carriers
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile boolean closed;
+
+    private ShmConnection(String id, ShmRing inbound, ShmRing outbound, int spinCount, int maxParkMicros,
+            int idleTimeout) {
+        this.id = id;
+        this.inbound = inbound;
+        this.outbound = outbound;
+        this.spinCount = spinCount;
+        this.maxParkNanos = TimeUnit.MICROSECONDS.toNanos(maxParkMicros);
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeout);
+    }
+
+    /**
+     * create the rings in the acceptor directory and wait for the acceptor to open them.
+     */
+    static ShmConnection connect(Path directory, ShmConnectOptions options) throws ConnectException {
+        if (!Files.isDirectory(directory)) {
+            throw new ConnectException("shm directory is not found: " + directory);
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path requestFile = directory.resolve(id + REQUEST_SUFFIX);
+        Path responseFile = directory.resolve(id + RESPONSE_SUFFIX);
+        Path readyFile = directory.resolve(id + READY_SUFFIX);
+        try {
+            ShmRing request = ShmRing.create(requestFile, options.getRingSize());
+            ShmRing response = ShmRing.create(responseFile, options.getRingSize());
+            long now = System.currentTimeMillis();
+            request.setHeartbeat(now);
+            response.setHeartbeat(now);
+            Files.createFile(readyFile);
+
+            // the acceptor scans the ready markers
+            long deadline = now + options.getConnectTimeout();
+            ShmIdler idler = new ShmIdler(0, TimeUnit.MILLISECONDS.toNanos(1));
+            while (request.getState() != ShmRing.STATE_OPEN) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new ConnectException("shm connect timeout: " + directory);
+                }
+                idler.idle();
+            }
+            return new ShmConnection(id, response, request, options.getSpinCount(), options.getMaxParkMicros(),
+                    options.getIdleTimeout());
+        } catch (IOException e) {
+            delete(readyFile);
+            delete(requestFile);
+            delete(responseFile);
+            if (e instanceof ConnectException) {
+                throw (ConnectException) e;
+            }
+            ConnectException error = new ConnectException("shm connect error: " + directory + " " + e);
+            error.initCause(e);
+            throw error;
+        }
+    }
+
+    /**
+     * open the rings of the ready client.
+     */
+    static ShmConnection accept(Path directory, String id, ShmAcceptOptions options) throws IOException {
+        delete(directory.resolve(id + READY_SUFFIX));
+        ShmRing request = ShmRing.open(directory.resolve(id + REQUEST_SUFFIX));
+        ShmRing response = ShmRing.open(directory.resolve(id + RESPONSE_SUFFIX));
+        request.setHeartbeat(System.currentTimeMillis());
+        request.setState(ShmRing.STATE_OPEN);
+        return new ShmConnection(id, request, response, options.getSpinCount(), options.getMaxParkMicros(),
+                options.getIdleTimeout());
+    }
+
+    String getId() {
+        return id;
+    }
+
+    boolean isActive() {
+        return !closed && inbound.getState() != ShmRing.STATE_CLOSED;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * write the record to the outbound ring, wait while the ring is full.
+     */
+    void send(byte[] record) throws IOException {
+        writeLock.lock();
+        try {
+            // no record is written after the outbound ring is closed
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            ShmIdler idler = null;
+            while (!outbound.offer(record)) {
+                if (!isActive()) {
+                    throw new ClosedChannelException();
+                }
+                if (idler == null) {
+                    idler = new ShmIdler(spinCount, maxParkNanos);
+                }
+                idler.idle();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * start the reader thread, the close handler runs on it after the connection is closed.
+     */
+    void start(Consumer<byte[]> recordHandler, Runnable closeHandler, ThreadFactory threadFactory) {
+        threadFactory.newThread(() -> {
+            try {
+                read(recordHandler);
+            } finally {
+                close();
+                closeHandler.run();
+            }
+        }).start();
+    }
+
+    private void read(Consumer<byte[]> recordHandler) {
+        ShmIdler idler = new ShmIdler(spinCount, maxParkNanos);
+        long checkTime = 0;
+        int reads = 0;
+        while (!closed) {
+            byte[] record = inbound.poll();
+            if (record != null) {
+                idler.reset();
+                try {
+                    recordHandler.accept(record);
+                } catch (Throwable e) {
+                    LOG.warn("shm connection {} handle record error", id, e);
+                }
+                if (++reads % CHECK_READS != 0) {
+                    continue;
+                }
+            } else if (inbound.getState() == ShmRing.STATE_CLOSED) {
+                // the peer is closed and its records are drained
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - checkTime >= HEARTBEAT_MILLIS) {
+                checkTime = now;
+                inbound.setHeartbeat(now);
+                if (now - outbound.getHeartbeat() > idleTimeoutMillis) {
+                    LOG.warn("shm connection {} peer is not alive", id);
+                    return;
+                }
+            }
+            if (record == null) {
+                idler.idle();
+            }
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // the writer leaves its loop on the closed flag
+        writeLock.lock();
+        try {
+            outbound.setState(ShmRing.STATE_CLOSED);
+        } finally {
+            writeLock.unlock();
+        }
+        // the peer keeps its mappings after the files are deleted
+        delete(inbound.getFile());
+        delete(outbound.getFile());
+    }
+
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.naming.ServiceInstance;
+import com.dinstone.focus.transport.Connector;
+import com.dinstone.focus.transport.executor.NamedThreadFactory;
+import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.focus.utils.NetworkUtil;
+
+/**
+ * connects the acceptor on the same host by the directory of the instance metadata.
+ *
+ * @author dinstone
+ */
+public class ShmConnector implements Connector {
+
+    private final ShmConnectOptions connectOptions;
+
+    private final ConcurrentMap<Path, CompletableFuture<ShmChannel>> channels = new ConcurrentHashMap<>();
+
+    private final ExecutorService connectExecutor;
+
+    private final ThreadFactory readerFactory;
+
+    private final ExecutorService callbackExecutor;
+
+    public ShmConnector(ShmConnectOptions connectOptions) {
+        this.connectOptions = new ShmConnectOptions(connectOptions);
+        this.connectExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("SHM-Connect", true));
+        this.readerFactory = new NamedThreadFactory("SHM-Client", true);
+        int callbackSize = connectOptions.getCallbackSize();
+        if (callbackSize < 1) {
+            callbackSize = ShmConnectOptions.DEFAULT_CALLBACK_SIZE;
+        }
+        this.callbackExecutor = Executors.newFixedThreadPool(callbackSize,
+                new NamedThreadFactory("SHM-Callback", true));
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Invocation invocation, ServiceInstance instance) throws Exception {
+        Map<String, String> metadata = instance.getMetadata();
+        String baseDirectory = metadata != null ? metadata.get(ShmAcceptOptions.DIRECTORY_KEY) : null;
+        if (baseDirectory == null || !NetworkUtil.getHostIdentity().equals(metadata.get(ConstantUtil.HOST_IDENTITY))) {
+            throw new ConnectException("shm acceptor is not on this host: " + instance.getInstanceAddress());
+        }
+
+        Path directory = Paths.get(baseDirectory, String.valueOf(instance.getInstancePort()));
+        return channel(directory).thenCompose(shmChannel -> {
+            invocation.context().put(ConstantUtil.RPC_LINK_KEY, shmChannel.getLink());
+            return shmChannel.send(invocation);
+        });
+    }
+
+    /**
+     * the live channel of the directory, the concurrent callers share the connecting future.
+     */
+    private CompletableFuture<ShmChannel> channel(Path directory) {
+        CompletableFuture<ShmChannel> current = channels.get(directory);
+        if (current != null && (!current.isDone() || isActive(current))) {
+            return current;
+        }
+
+        CompletableFuture<ShmChannel> connecting = new CompletableFuture<>();
+        boolean swapped = current == null ? channels.putIfAbsent(directory, connecting) == null
+                : channels.replace(directory, current, connecting);
+        if (!swapped) {
+            return channel(directory);
+        }
+
+        connectExecutor.execute(() -> {
+            try {
+                ShmConnection connection = ShmConnection.connect(directory, connectOptions);
+                connecting.complete(new ShmChannel(connection, readerFactory, callbackExecutor));
+            } catch (Throwable e) {
+                channels.remove(directory, connecting);
+                connecting.completeExceptionally(e);
+            }
+        });
+        return connecting;
+    }
+
+    private static boolean isActive(CompletableFuture<ShmChannel> future) {
+        return !future.isCompletedExceptionally() && future.join().isActive();
+    }
+
+    @Override
+    public void destroy() {
+        for (CompletableFuture<ShmChannel> future : channels.values()) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                future.join().destroy();
+            }
+        }
+        channels.clear();
+        connectExecutor.shutdown();
+        callbackExecutor.shutdown();
+    }
+
+}
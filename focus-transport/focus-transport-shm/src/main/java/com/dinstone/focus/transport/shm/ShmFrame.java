@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the message record of the rings : id, type, headers and content.
+ *
+ * @author dinstone
+ */
+final class ShmFrame {
+
+    static final byte REQUEST = 1;
+
+    static final byte RESPONSE = 2;
+
+    static final byte ERROR = 3;
+
+    private final long id;
+
+    private final byte type;
+
+    private final Map<String, String> headers;
+
+    private byte[] content;
+
+    ShmFrame(long id, byte type) {
+        this(id, type, new HashMap<>());
+    }
+
+    private ShmFrame(long id, byte type, Map<String, String> headers) {
+        this.id = id;
+        this.type = type;
+        this.headers = headers;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    byte getType() {
+        return type;
+    }
+
+    Map<String, String> headers() {
+        return headers;
+    }
+
+    byte[] getContent() {
+        return content;
+    }
+
+    void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    byte[] encode() throws IOException {
+        int contentLength = content == null ? 0 : content.length;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 32 * headers.size() + contentLength);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeLong(id);
+        output.writeByte(type);
+        output.writeShort(headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            output.writeUTF(header.getKey());
+            output.writeUTF(header.getValue());
+        }
+        if (content == null) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(content.length);
+            output.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    static ShmFrame decode(byte[] record) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        long id = input.readLong();
+        byte type = input.readByte();
+        int count = input.readUnsignedShort();
+        Map<String, String> headers = new HashMap<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            headers.put(input.readUTF(), input.readUTF());
+        }
+        ShmFrame frame = new ShmFrame(id, type, headers);
+        int length = input.readInt();
+        if (length >= 0) {
+            byte[] content = new byte[length];
+            input.readFully(content);
+            frame.setContent(content);
+        }
+        return frame;
+    }
+
+}
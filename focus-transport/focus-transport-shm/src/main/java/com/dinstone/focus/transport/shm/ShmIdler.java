@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * the wait strategy of the ring polling. There is no cross process notification without a syscall, so the waiter
+ * spins first for the microsecond latency under load, then yields, then parks with an exponential backoff up to the
+ * max park time, which bounds the wakeup latency of an idle connection.
+ *
+ * @author dinstone
+ */
+final class ShmIdler {
+
+    private static final int YIELD_COUNT = 100;
+
+    private static final long MIN_PARK_NANOS = 1000;
+
+    private final int spinCount;
+
+    private final long maxParkNanos;
+
+    private int idles;
+
+    private long parkNanos;
+
+    ShmIdler(int spinCount, long maxParkNanos) {
+        this.spinCount = spinCount;
+        this.maxParkNanos = Math.max(MIN_PARK_NANOS, maxParkNanos);
+    }
+
+    void idle() {
+        if (idles < spinCount) {
+            idles++;
+        } else if (idles < spinCount + YIELD_COUNT) {
+            idles++;
+            Thread.yield();
+        } else {
+            parkNanos = parkNanos == 0 ? MIN_PARK_NANOS : Math.min(parkNanos << 1, maxParkNanos);
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+
+    void reset() {
+        idles = 0;
+        parkNanos = 0;
+    }
+
+}
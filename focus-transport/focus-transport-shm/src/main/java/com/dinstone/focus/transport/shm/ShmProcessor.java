@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.dinstone.focus.compress.Compressor;
+import com.dinstone.focus.config.MethodConfig;
+import com.dinstone.focus.config.ServiceConfig;
+import com.dinstone.focus.exception.ErrorCode;
+import com.dinstone.focus.exception.InvokeException;
+import com.dinstone.focus.exception.ServiceException;
+import com.dinstone.focus.invoke.Context;
+import com.dinstone.focus.invoke.DefaultInvocation;
+import com.dinstone.focus.invoke.Invocation;
+import com.dinstone.focus.transport.ExecutorSelector;
+import com.dinstone.focus.transport.MethodDictionary;
+import com.dinstone.focus.utils.ConstantUtil;
+import com.dinstone.loghub.Logger;
+import com.dinstone.loghub.LoggerFactory;
+
+public final class ShmProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShmProcessor.class);
+
+    private final MethodDictionary methodDictionary;
+    private final ExecutorSelector executorSelector;
+    private final Executor sharedExecutor;
+
+    public ShmProcessor(MethodDictionary methodDictionary, ExecutorSelector executorSelector,
+            Executor sharedExecutor) {
+        this.methodDictionary = methodDictionary;
+        this.executorSelector = executorSelector;
+        this.sharedExecutor = sharedExecutor;
+    }
+
+    /**
+     * process the request record on the reader thread of the connection.
+     */
+    void process(ShmConnection connection, byte[] record) {
+        ShmFrame request;
+        try {
+            request = ShmFrame.decode(record);
+        } catch (IOException e) {
+            LOG.warn("shm connection {} drops the broken request", connection.getId(), e);
+            return;
+        }
+
+        MethodDictionary.Entry entry;
+        try {
+            // resolve by the method id or the names
+            Map<String, String> headers = request.headers();
+            entry = methodDictionary.resolve(headers.get(Invocation.METHOD_ID_KEY),
+                    headers.get(Invocation.SERVICE_KEY), headers.get(Invocation.METHOD_KEY));
+        } catch (Throwable e) {
+            errorHandle(connection, request, e);
+            return;
+        }
+
+        Executor executor = null;
+        if (executorSelector != null) {
+            String s = entry.getServiceConfig().getService();
+            String m = entry.getMethodConfig().getMethodName();
+            executor = executorSelector.select(s, m, request.headers()::get);
+        }
+        if (executor == null && !entry.getMethodConfig().isInlineDispatch()) {
+            executor = sharedExecutor;
+        }
+        if (executor != null) {
+            try {
+                executor.execute(() -> invoke(connection, request, entry));
+            } catch (RejectedExecutionException e) {
+                errorHandle(connection, request, new ServiceException(ErrorCode.OVERLOAD_ERROR, "server is overload"));
+            }
+        } else {
+            invoke(connection, request, entry);
+        }
+    }
+
+    private void invoke(ShmConnection connection, ShmFrame request, MethodDictionary.Entry entry) {
+        InvokeException exception;
+        try {
+            ServiceConfig serviceConfig = entry.getServiceConfig();
+            MethodConfig methodConfig = entry.getMethodConfig();
+            // teach the client the method id if it has not learned yet
+            String learnId = entry.hasId() && !request.headers().containsKey(Invocation.METHOD_ID_KEY)
+                    ? entry.getIdText()
+                    : null;
+
+            // decode invocation from request
+            Invocation invocation = decode(request, serviceConfig, methodConfig);
+
+            Context context = Context.fork();
+            context.put(ConstantUtil.RPC_LINK_KEY, "shm:" + connection.getId());
+
+            // invoke invocation
+            context.call(() -> serviceConfig.getHandler().handle(invocation)).whenComplete((reply, error) -> {
+                if (error != null) {
+                    errorHandle(connection, request, error);
+                } else {
+                    replyHandle(connection, request, reply, serviceConfig, methodConfig, learnId);
+                }
+            });
+
+            return;
+        } catch (InvokeException e) {
+            exception = e;
+        } catch (Throwable e) {
+            exception = new InvokeException(ErrorCode.INVOKE_ERROR, e);
+        }
+
+        errorHandle(connection, request, exception);
+    }
+
+    private Invocation decode(ShmFrame request, ServiceConfig serviceConfig, MethodConfig methodConfig) {
+        Map<String, String> headers = request.headers();
+        Object value = ShmCodec.decode(request.getContent(), methodConfig.getParamType(),
+                headers.get(Compressor.TYPE_KEY), serviceConfig, methodConfig);
+
+        // the names are omitted when the request carries the method id
+        String service = serviceConfig.getService();
+        String method = methodConfig.getMethodName();
+        String provider = headers.get(Invocation.PROVIDER_KEY);
+        String timeout = headers.remove(Invocation.TIMEOUT_KEY);
+        DefaultInvocation invocation = new DefaultInvocation(service, method, value);
+        invocation.setConsumer(headers.get(Invocation.CONSUMER_KEY));
+        invocation.setProvider(provider != null ? provider : serviceConfig.getProvider());
+        invocation.setTimeout(timeout != null ? Integer.parseInt(timeout) : 0);
+        invocation.setServiceConfig(serviceConfig);
+        invocation.setMethodConfig(methodConfig);
+        // the frame owns the decoded headers, use them as the attributes without copying
+        invocation.attributes(headers);
+        return invocation;
+    }
+
+    private void replyHandle(ShmConnection connection, ShmFrame request, Object reply, ServiceConfig serviceConfig,
+            MethodConfig methodConfig, String learnId) {
+        ShmFrame response = new ShmFrame(request.getId(), ShmFrame.RESPONSE);
+        if (learnId != null) {
+            response.headers().put(Invocation.METHOD_ID_KEY, learnId);
+        }
+        try {
+            response.setContent(ShmCodec.encode(reply, methodConfig.getReturnType(), serviceConfig, methodConfig,
+                    response.headers()::put));
+            connection.send(response.encode());
+        } catch (IllegalArgumentException e) {
+            // the reply is larger than the ring
+            errorHandle(connection, request, new ServiceException(ErrorCode.CODEC_ERROR, e.getMessage()));
+        } catch (IOException e) {
+            LOG.warn("shm connection {} reply error", connection.getId(), e);
+        } catch (Throwable e) {
+            errorHandle(connection, request, e);
+        }
+    }
+
+    private void errorHandle(ShmConnection connection, ShmFrame request, Throwable error) {
+        InvokeException exception;
+        if (error instanceof InvokeException) {
+            exception = (InvokeException) error;
+        } else {
+            exception = new InvokeException(ErrorCode.INVOKE_ERROR, error);
+        }
+        // send response with exception
+        ShmFrame response = new ShmFrame(request.getId(), ShmFrame.ERROR);
+        response.headers().put(InvokeException.CODE_KEY, String.valueOf(exception.getCode().value()));
+        String message = exception.getMessage();
+        if (message != null) {
+            response.setContent(message.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            connection.send(response.encode());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("shm connection {} reply error", connection.getId(), e);
+        }
+    }
+
+}
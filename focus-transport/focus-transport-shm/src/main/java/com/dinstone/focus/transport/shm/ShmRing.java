@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * single producer, single consumer ring buffer on a memory-mapped file, shared by two processes. The threads of the
+ * producer process are serialized by the caller, so only one writer touches the tail and one reader the head.
+ * <p>
+ * The records are length prefixed and 8 bytes aligned, a record never wraps, the tail of the buffer is skipped by a
+ * padding record. The positions are published with release stores and read with acquire loads of the byte buffer
+ * view VarHandle on JDK 9+, JDK 8 falls back to the plain accesses which are only ordered on TSO hardware like x86.
+ *
+ * @author dinstone
+ */
+final class ShmRing {
+
+    static final long STATE_INIT = 0;
+
+    static final long STATE_OPEN = 1;
+
+    static final long STATE_CLOSED = 2;
+
+    // the producer and the consumer positions are on their own cache lines
+    private static final int TAIL_OFFSET = 0;
+
+    private static final int HEAD_OFFSET = 64;
+
+    private static final int HEARTBEAT_OFFSET = 128;
+
+    private static final int STATE_OFFSET = 192;
+
+    private static final int DATA_OFFSET = 256;
+
+    private static final int PADDING = -1;
+
+    private static final int ALIGNMENT = 8;
+
+    private static final MethodHandle GET_ACQUIRE;
+
+    private static final MethodHandle SET_RELEASE;
+
+    static {
+        MethodHandle getAcquire = null;
+        MethodHandle setRelease = null;
+        try {
+            Method viewMethod = MethodHandles.class.getMethod("byteBufferViewVarHandle", Class.class,
+                    ByteOrder.class);
+            Object varHandle = viewMethod.invoke(null, long[].class, ByteOrder.nativeOrder());
+
+            Class<?> varHandleClass = Class.forName("java.lang.invoke.VarHandle");
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            Class<Enum> modeClass = (Class<Enum>) Class.forName("java.lang.invoke.VarHandle$AccessMode");
+            @SuppressWarnings("unchecked")
+            Object getMode = Enum.valueOf(modeClass, "GET_ACQUIRE");
+            @SuppressWarnings("unchecked")
+            Object setMode = Enum.valueOf(modeClass, "SET_RELEASE");
+            Method toMethodHandle = varHandleClass.getMethod("toMethodHandle", modeClass);
+            getAcquire = (MethodHandle) toMethodHandle.invoke(varHandle, getMode);
+            setRelease = (MethodHandle) toMethodHandle.invoke(varHandle, setMode);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // JDK 8
+        }
+        GET_ACQUIRE = getAcquire;
+        SET_RELEASE = setRelease;
+    }
+
+    private final Path file;
+
+    private final ByteBuffer buffer;
+
+    private final ByteBuffer writeView;
+
+    private final ByteBuffer readView;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private ShmRing(Path file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer.order(ByteOrder.nativeOrder());
+        this.writeView = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.readView = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.capacity = buffer.capacity() - DATA_OFFSET;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * create the ring file, the capacity is rounded up to a power of two.
+     */
+    static ShmRing create(Path file, int capacity) throws IOException {
+        int size = Integer.highestOneBit(Math.max(capacity, 4096) - 1) << 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping outlives the channel
+            return new ShmRing(file, channel.map(MapMode.READ_WRITE, 0, DATA_OFFSET + size));
+        }
+    }
+
+    /**
+     * map the ring file created by the peer.
+     */
+    static ShmRing open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long capacity = size - DATA_OFFSET;
+            if (capacity <= 0 || Long.bitCount(capacity) != 1 || size > Integer.MAX_VALUE) {
+                throw new IOException("invalid ring file " + file + " size " + size);
+            }
+            return new ShmRing(file, channel.map(MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * the max record length of the ring.
+     */
+    int maxLength() {
+        return capacity / 2 - ALIGNMENT;
+    }
+
+    /**
+     * append the record, only one thread writes at a time.
+     *
+     * @return false if the ring is full
+     */
+    boolean offer(byte[] record) {
+        int length = record.length;
+        if (length > maxLength()) {
+            throw new IllegalArgumentException("record length " + length + " exceeds the max " + maxLength());
+        }
+
+        int size = align(4 + length);
+        long tail = writeView.getLong(TAIL_OFFSET);
+        long head = getAcquire(HEAD_OFFSET);
+        int index = (int) (tail & mask);
+        int remaining = capacity - index;
+        int required = size <= remaining ? size : remaining + size;
+        if (tail + required - head > capacity) {
+            return false;
+        }
+
+        if (size > remaining) {
+            // skip the tail of the buffer, the record starts at the beginning
+            writeView.putInt(DATA_OFFSET + index, PADDING);
+            tail += remaining;
+            index = 0;
+        }
+        writeView.position(DATA_OFFSET + index + 4);
+        writeView.put(record);
+        writeView.putInt(DATA_OFFSET + index, length);
+        setRelease(TAIL_OFFSET, tail + size);
+        return true;
+    }
+
+    /**
+     * take the next record, only one thread reads at a time.
+     *
+     * @return null if the ring is empty
+     */
+    byte[] poll() {
+        long head = readView.getLong(HEAD_OFFSET);
+        long tail = getAcquire(TAIL_OFFSET);
+        if (head == tail) {
+            return null;
+        }
+
+        int index = (int) (head & mask);
+        int length = readView.getInt(DATA_OFFSET + index);
+        if (length == PADDING) {
+            head += capacity - index;
+            index = 0;
+            length = readView.getInt(DATA_OFFSET);
+        }
+        byte[] record = new byte[length];
+        readView.position(DATA_OFFSET + index + 4);
+        readView.get(record);
+        setRelease(HEAD_OFFSET, head + align(4 + length));
+        return record;
+    }
+
+    long getHeartbeat() {
+        return getAcquire(HEARTBEAT_OFFSET);
+    }
+
+    /**
+     * the consumer reports it is alive.
+     */
+    void setHeartbeat(long timeMillis) {
+        setRelease(HEARTBEAT_OFFSET, timeMillis);
+    }
+
+    long getState() {
+        return getAcquire(STATE_OFFSET);
+    }
+
+    void setState(long state) {
+        setRelease(STATE_OFFSET, state);
+    }
+
+    private long getAcquire(int index) {
+        if (GET_ACQUIRE == null) {
+            return buffer.getLong(index);
+        }
+        try {
+            return (long) GET_ACQUIRE.invokeExact(buffer, index);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void setRelease(int index, long value) {
+        if (SET_RELEASE == null) {
+            buffer.putLong(index, value);
+            return;
+        }
+        try {
+            SET_RELEASE.invokeExact(buffer, index, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2019~2024 dinstone<dinstone@163.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dinstone.focus.transport.shm;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShmRingTest {
+
+    @Test
+    public void padTheTailOfTheBuffer() throws Exception {
+        Path directory = Files.createTempDirectory("shm-ring");
+        Path file = directory.resolve("ring");
+        try {
+            ShmRing ring = ShmRing.create(file, 4096);
+            byte[] small = new byte[1000];
+            for (int i = 0; i < 3; i++) {
+                Assert.assertTrue(ring.offer(small));
+            }
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(1000, ring.poll().length);
+            }
+            Assert.assertNull(ring.poll());
+
+            // 1072 bytes are left before the end, the record starts at the beginning after a padding record
+            byte[] large = record(7, 1500);
+            Assert.assertTrue(ring.offer(large));
+            Assert.assertArrayEquals(large, ring.poll());
+            Assert.assertNull(ring.poll());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void rejectTheRecordWhenFull() throws Exception {
+        Path directory = Files.createTempDirectory("shm-ring");
+        Path file = directory.resolve("ring");
+        try {
+            ShmRing ring = ShmRing.create(file, 4096);
+            byte[] record = new byte[ring.maxLength()];
+            Assert.assertTrue(ring.offer(record));
+            Assert.assertTrue(ring.offer(record));
+            Assert.assertFalse(ring.offer(new byte[1]));
+
+            Assert.assertEquals(record.length, ring.poll().length);
+            Assert.assertTrue(ring.offer(new byte[1]));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void loopbackAcrossWraparound() throws Exception {
+        Path directory = Files.createTempDirectory("shm-ring");
+        Path file = directory.resolve("ring");
+        try {
+            // the writer and the reader map the file separately like two processes
+            ShmRing writer = ShmRing.create(file, 4096);
+            ShmRing reader = ShmRing.open(file);
+            int count = 100000;
+
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread consumer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        byte[] record;
+                        while ((record = reader.poll()) == null) {
+                            Thread.yield();
+                        }
+                        Assert.assertArrayEquals(record(i, length(i)), record);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            consumer.start();
+
+            for (int i = 0; i < count && failure.get() == null; i++) {
+                byte[] record = record(i, length(i));
+                while (!writer.offer(record)) {
+                    if (!consumer.isAlive()) {
+                        break;
+                    }
+                    Thread.yield();
+                }
+            }
+            consumer.join(30000);
+
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            Assert.assertFalse(consumer.isAlive());
+            Assert.assertNull(reader.poll());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // the lengths are not aligned and vary, so the records end at every offset of the ring
+    private static int length(int sequence) {
+        return 1 + (sequence * 37) % 1500;
+    }
+
+    private static byte[] record(int sequence, int length) {
+        byte[] record = new byte[Math.max(length, 4)];
+        Arrays.fill(record, (byte) sequence);
+        ByteBuffer.wrap(record).putInt(sequence);
+        return Arrays.copyOf(record, length);
+    }
+
+}